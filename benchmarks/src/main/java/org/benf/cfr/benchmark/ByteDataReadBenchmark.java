@@ -0,0 +1,66 @@
+package org.benf.cfr.benchmark;
+
+import org.benf.cfr.reader.util.bytestream.BaseByteData;
+import org.benf.cfr.reader.util.bytestream.ByteData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Raw primitive reads across every byte of the corpus, against ByteData and against the
+ * stream-per-read decoding CFR used to do, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ByteDataReadBenchmark {
+    private List<Corpus.Entry> corpus;
+
+    @Setup
+    public void setup() throws IOException {
+        corpus = Corpus.load();
+    }
+
+    @Benchmark
+    public long byteDataU2S4() {
+        long acc = 0;
+        for (Corpus.Entry entry : corpus) {
+            byte[] bytes = entry.getBytes();
+            ByteData data = new BaseByteData(bytes);
+            for (int x = 0, len = bytes.length - 4; x < len; ++x) {
+                acc += data.getU2At(x);
+                acc += data.getS4At(x);
+            }
+        }
+        return acc;
+    }
+
+    @Benchmark
+    public long streamPerReadU2S4() throws IOException {
+        long acc = 0;
+        for (Corpus.Entry entry : corpus) {
+            byte[] bytes = entry.getBytes();
+            for (int x = 0, len = bytes.length - 4; x < len; ++x) {
+                acc += new DataInputStream(new ByteArrayInputStream(bytes, x, 2)).readUnsignedShort();
+                acc += new DataInputStream(new ByteArrayInputStream(bytes, x, 4)).readInt();
+            }
+        }
+        return acc;
+    }
+}
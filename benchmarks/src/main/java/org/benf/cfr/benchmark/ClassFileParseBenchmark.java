@@ -0,0 +1,56 @@
+package org.benf.cfr.benchmark;
+
+import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.state.ClassFileSourceImpl;
+import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.util.bytestream.BaseByteData;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Parse (but don't analyse) every class in the corpus - this is constant pool, member and
+ * attribute decoding, which is dominated by ByteData reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassFileParseBenchmark {
+    private List<Corpus.Entry> corpus;
+    private Options options;
+    private ClassFileSourceImpl classFileSource;
+
+    @Setup
+    public void setup() throws IOException {
+        corpus = Corpus.load();
+        options = new OptionsImpl(new HashMap<String, String>());
+        classFileSource = new ClassFileSourceImpl(options);
+    }
+
+    @Benchmark
+    public void parseCorpus(Blackhole blackhole) {
+        // Fresh state each time, or we'd be measuring cache hits for the types.
+        DCCommonState dcCommonState = new DCCommonState(options, classFileSource);
+        for (Corpus.Entry entry : corpus) {
+            blackhole.consume(new ClassFile(new BaseByteData(entry.getBytes()), entry.getPath(), dcCommonState));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.benf.cfr.benchmark;
+
+import org.benf.cfr.reader.entities.ClassFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+ * The class files benchmarks run against.
+ *
+ * Set -Dcfr.benchmark.corpus=some.jar to use a specific jar - otherwise we use the jar CFR itself
+ * was loaded from, which at least means numbers are comparable for a given version.
+ */
+final class Corpus {
+    static final String CORPUS_PROPERTY = "cfr.benchmark.corpus";
+
+    static final class Entry {
+        private final String path;
+        private final byte[] bytes;
+
+        Entry(String path, byte[] bytes) {
+            this.path = path;
+            this.bytes = bytes;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+    }
+
+    private Corpus() {
+    }
+
+    static File getCorpusFile() {
+        String path = System.getProperty(CORPUS_PROPERTY);
+        if (path != null) return new File(path);
+        try {
+            return new File(ClassFile.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * Sorted by path, so iteration order is stable run to run.
+     */
+    static List<Entry> load() throws IOException {
+        File file = getCorpusFile();
+        List<Entry> res = new ArrayList<Entry>();
+        ZipFile zipFile = new ZipFile(file);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".class")) continue;
+                InputStream is = zipFile.getInputStream(entry);
+                try {
+                    res.add(new Entry(entry.getName(), readFully(is)));
+                } finally {
+                    is.close();
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+        if (res.isEmpty()) throw new IllegalStateException("No class files in corpus " + file);
+        Collections.sort(res, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return a.getPath().compareTo(b.getPath());
+            }
+        });
+        return res;
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int read;
+        while ((read = is.read(buf)) >= 0) {
+            bos.write(buf, 0, read);
+        }
+        return bos.toByteArray();
+    }
+}
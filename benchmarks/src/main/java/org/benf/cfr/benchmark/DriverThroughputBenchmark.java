@@ -0,0 +1,49 @@
+package org.benf.cfr.benchmark;
+
+import org.benf.cfr.reader.api.CfrDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Decompile the whole corpus jar, end to end, with output discarded.  This is the number to watch
+ * for overall regressions - the other benchmarks tell you where they are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class DriverThroughputBenchmark {
+    @Param({"1", "4"})
+    public int threads;
+
+    private String corpusPath;
+
+    @Setup
+    public void setup() {
+        corpusPath = Corpus.getCorpusFile().getPath();
+    }
+
+    @Benchmark
+    public void decompileJar() {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("threads", Integer.toString(threads));
+        CfrDriver driver = new CfrDriver.Builder().withOptions(options).withOutputSink(new NullSinkFactory()).build();
+        driver.analyse(Collections.singletonList(corpusPath));
+    }
+}
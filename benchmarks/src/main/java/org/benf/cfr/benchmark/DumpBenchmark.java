@@ -0,0 +1,64 @@
+package org.benf.cfr.benchmark;
+
+import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.state.ClassFileSourceImpl;
+import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.state.TypeUsageCollectingDumper;
+import org.benf.cfr.reader.util.bytestream.BaseByteData;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+import org.benf.cfr.reader.util.output.IllegalIdentifierDump;
+import org.benf.cfr.reader.util.output.StringStreamDumper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Output of an already analysed class - as the driver does it, a pass to collect type usage (for
+ * imports), then the real one, replayed through that.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DumpBenchmark {
+    @Param({"SWITCH", "TRY_FINALLY", "LAMBDA"})
+    public String shape;
+
+    private Options options;
+    private ClassFile classFile;
+
+    @Setup
+    public void setup() throws IOException {
+        GeneratedCorpus.Shape generated = GeneratedCorpus.Shape.valueOf(shape);
+        byte[] bytes = GeneratedCorpus.read(GeneratedCorpus.compile(generated));
+        options = new OptionsImpl(new HashMap<String, String>());
+        DCCommonState dcCommonState = new DCCommonState(options, new ClassFileSourceImpl(options));
+        classFile = new ClassFile(new BaseByteData(bytes), generated.getClassName() + ".class", dcCommonState);
+        classFile.analyseTop(dcCommonState);
+    }
+
+    @Benchmark
+    public int dump() {
+        TypeUsageCollectingDumper collectingDumper = new TypeUsageCollectingDumper(options, classFile);
+        classFile.dump(collectingDumper);
+        StringBuilder sb = new StringBuilder();
+        StringStreamDumper dumper = new StringStreamDumper(sb, collectingDumper.getRealTypeUsageInformation(), options, IllegalIdentifierDump.Factory.get(options));
+        classFile.dump(collectingDumper.getReplayingDumper(dumper));
+        return sb.length();
+    }
+}
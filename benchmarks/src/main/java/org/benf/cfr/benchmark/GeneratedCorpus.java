@@ -0,0 +1,171 @@
+package org.benf.cfr.benchmark;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/*
+ * Classes generated from fixed source at setup, each exercising one shape of code analysis finds
+ * hard.  As the source never changes, numbers are comparable run to run on a given JDK (javac
+ * output differs a little between JDKs).
+ *
+ * Needs to run on a JDK, as the source is compiled at setup.
+ */
+final class GeneratedCorpus {
+    enum Shape {
+        /*
+         * Dense and sparse int switches, and a string switch (which javac lowers to a hashCode switch
+         * followed by another).
+         */
+        SWITCH("Switches") {
+            @Override
+            String generateBody() {
+                StringBuilder sb = new StringBuilder();
+                sb.append("  public static int dense(int x) {\n    switch (x) {\n");
+                for (int i = 0; i < 200; ++i) {
+                    sb.append("      case ").append(i).append(": return ").append(i * 31 % 17).append(";\n");
+                }
+                sb.append("      default: return -1;\n    }\n  }\n");
+                sb.append("  public static int sparse(int x) {\n    int r = 0;\n    switch (x) {\n");
+                for (int i = 0; i < 100; ++i) {
+                    sb.append("      case ").append(i * 1009).append(": r += ").append(i).append(";");
+                    if (i % 3 != 0) sb.append(" break;");
+                    sb.append("\n");
+                }
+                sb.append("      default: r = -r;\n    }\n    return r;\n  }\n");
+                sb.append("  public static int strings(String s) {\n    switch (s) {\n");
+                for (int i = 0; i < 50; ++i) {
+                    sb.append("      case \"key").append(i).append("\": return ").append(i).append(";\n");
+                }
+                sb.append("      default: return s.length();\n    }\n  }\n");
+                return sb.toString();
+            }
+        },
+        /*
+         * Deeply nested try/finally (each finally is copied onto every exit) and try-with-resources.
+         */
+        TRY_FINALLY("TryFinally") {
+            @Override
+            String generateBody() {
+                StringBuilder sb = new StringBuilder();
+                int depth = 8;
+                sb.append("  static int counter;\n");
+                sb.append("  public static int nested(int[] arr) {\n");
+                for (int i = 0; i < depth; ++i) {
+                    sb.append("    try {\n");
+                    sb.append("      if (arr[").append(i).append("] == 0) return ").append(i).append(";\n");
+                    sb.append("      for (int i").append(i).append(" = 0; i").append(i).append(" < arr.length; ++i").append(i).append(") { if (arr[i").append(i).append("] < 0) break; counter++; }\n");
+                }
+                sb.append("    return arr.length;\n");
+                for (int i = depth - 1; i >= 0; --i) {
+                    sb.append("    } finally {\n      counter += ").append(i).append(";\n    }\n");
+                }
+                sb.append("  }\n");
+                sb.append("  public static String resources(java.io.InputStream a, java.io.InputStream b) throws java.io.IOException {\n");
+                sb.append("    try (java.io.InputStream x = a; java.io.InputStream y = b) {\n");
+                sb.append("      try { return x.read() + \":\" + y.read(); } finally { counter--; }\n");
+                sb.append("    } catch (IllegalStateException e) {\n      return null;\n    }\n  }\n");
+                return sb.toString();
+            }
+        },
+        /*
+         * Lambdas and method references, capturing and not - these are rewritten from invokedynamic and
+         * synthetic methods.
+         */
+        LAMBDA("Lambdas") {
+            @Override
+            String generateBody() {
+                StringBuilder sb = new StringBuilder();
+                sb.append("  public static java.util.List<java.util.function.Function<String, Object>> make(final int k, final String p) {\n");
+                sb.append("    java.util.List<java.util.function.Function<String, Object>> res = new java.util.ArrayList<>();\n");
+                for (int i = 0; i < 40; ++i) {
+                    switch (i % 4) {
+                        case 0:
+                            sb.append("    res.add(s -> s.length() + k + ").append(i).append(");\n");
+                            break;
+                        case 1:
+                            sb.append("    res.add(String::trim);\n");
+                            break;
+                        case 2:
+                            sb.append("    res.add(s -> { java.util.function.Supplier<String> q = () -> p + s + ").append(i).append("; return q.get(); });\n");
+                            break;
+                        default:
+                            sb.append("    res.add(s -> java.util.Arrays.asList(s.split(\",\")).stream().map(String::toUpperCase).filter(t -> t.startsWith(p)).count());\n");
+                            break;
+                    }
+                }
+                sb.append("    return res;\n  }\n");
+                return sb.toString();
+            }
+        };
+
+        private final String className;
+
+        Shape(String className) {
+            this.className = className;
+        }
+
+        String getClassName() {
+            return className;
+        }
+
+        abstract String generateBody();
+
+        String generate() {
+            return "public class " + className + " {\n" + generateBody() + "}\n";
+        }
+    }
+
+    private GeneratedCorpus() {
+    }
+
+    static File compile(Shape shape) throws IOException {
+        return compile(shape.getClassName(), shape.generate());
+    }
+
+    /*
+     * Compile a single top level class, with no inner classes, into a temporary directory.
+     */
+    static File compile(String className, String source) throws IOException {
+        File dir = File.createTempFile("cfr-benchmark", "");
+        if (!dir.delete() || !dir.mkdir()) throw new IOException("Couldn't create " + dir);
+        dir.deleteOnExit();
+        File sourceFile = new File(dir, className + ".java");
+        OutputStream os = new FileOutputStream(sourceFile);
+        try {
+            os.write(source.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) throw new IllegalStateException("No system java compiler - run on a JDK");
+        if (compiler.run(null, null, null, "-nowarn", "-source", "8", "-target", "8", "-d", dir.getPath(), sourceFile.getPath()) != 0) {
+            throw new IllegalStateException("Failed to compile " + sourceFile);
+        }
+        File classFile = new File(dir, className + ".class");
+        sourceFile.deleteOnExit();
+        classFile.deleteOnExit();
+        return classFile;
+    }
+
+    static byte[] read(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int read;
+            while ((read = is.read(buf)) >= 0) {
+                bos.write(buf, 0, read);
+            }
+            return bos.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.benf.cfr.benchmark;
+
+import org.benf.cfr.reader.api.CfrDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Decompile a single, generated, very large method - this is where anything in op03 analysis which is
+ * worse than linear in the number of statements shows up.  Compare the scores across sizes; doubling
+ * 'blocks' should roughly double the time.
+ *
+ * Needs to run on a JDK, as the method is compiled at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LargeMethodBenchmark {
+    private static final String CLASS_NAME = "LargeMethod";
+
+    @Param({"100", "200", "400"})
+    public int blocks;
+
+    private String classPath;
+
+    @Setup
+    public void setup() throws IOException {
+        classPath = GeneratedCorpus.compile(CLASS_NAME, generate(blocks)).getPath();
+    }
+
+    /*
+     * A mix of the things op03 rewriters have to find structure in - conditionals, loops, switches
+     * and exception handlers.
+     */
+    private static String generate(int blocks) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("public class ").append(CLASS_NAME).append(" {\n");
+        sb.append("  public static int m(int a, int[] arr) {\n");
+        sb.append("    int r = 0;\n");
+        for (int i = 0; i < blocks; ++i) {
+            sb.append("    if (a > ").append(i).append(") { r += arr[").append(i).append(" % arr.length]; } else { r ^= ").append(i).append("; }\n");
+            switch (i % 4) {
+                case 0:
+                    sb.append("    for (int i = 0; i < a; i++) { if (arr[i] == ").append(i).append(") break; r++; }\n");
+                    break;
+                case 1:
+                    sb.append("    try { r /= arr[").append(i).append("]; } catch (RuntimeException e) { r--; }\n");
+                    break;
+                case 2:
+                    sb.append("    switch (arr[").append(i).append(" % 7]) { case 1: r++; break; case 2: r += 2; break; default: r = 0; }\n");
+                    break;
+                default:
+                    sb.append("    while (r > ").append(i).append(") { r >>= 1; }\n");
+                    break;
+            }
+        }
+        sb.append("    return r;\n");
+        sb.append("  }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    @Benchmark
+    public void decompile() {
+        CfrDriver driver = new CfrDriver.Builder().withOutputSink(new NullSinkFactory()).build();
+        driver.analyse(Collections.singletonList(classPath));
+    }
+
+}
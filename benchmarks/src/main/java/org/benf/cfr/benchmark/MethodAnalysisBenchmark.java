@@ -0,0 +1,66 @@
+package org.benf.cfr.benchmark;
+
+import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.entities.Method;
+import org.benf.cfr.reader.state.ClassFileSourceImpl;
+import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.util.bytestream.BaseByteData;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Code analysis (CodeAnalyser.getAnalysis) of every method of one generated class, without class
+ * level rewriting or output.
+ *
+ * Analysis is cached on the method, so the class is parsed afresh each time - that's small in
+ * comparison.  Common state is kept, so platform classes are only loaded once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MethodAnalysisBenchmark {
+    @Param({"SWITCH", "TRY_FINALLY", "LAMBDA"})
+    public String shape;
+
+    private String path;
+    private byte[] bytes;
+    private DCCommonState dcCommonState;
+
+    @Setup
+    public void setup() throws IOException {
+        GeneratedCorpus.Shape generated = GeneratedCorpus.Shape.valueOf(shape);
+        path = generated.getClassName() + ".class";
+        bytes = GeneratedCorpus.read(GeneratedCorpus.compile(generated));
+        Options options = new OptionsImpl(new HashMap<String, String>());
+        dcCommonState = new DCCommonState(options, new ClassFileSourceImpl(options));
+    }
+
+    @Benchmark
+    public void analyseMethods(Blackhole blackhole) {
+        ClassFile classFile = new ClassFile(new BaseByteData(bytes), path, dcCommonState);
+        for (Method method : classFile.getMethods()) {
+            if (method.hasCodeAttribute()) {
+                blackhole.consume(method.getAnalysis());
+            }
+        }
+    }
+}
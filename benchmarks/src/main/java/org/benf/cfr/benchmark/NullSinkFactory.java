@@ -0,0 +1,26 @@
+package org.benf.cfr.benchmark;
+
+import org.benf.cfr.reader.api.OutputSinkFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Discards everything - we're measuring decompilation, not whoever's consuming the output.
+ */
+class NullSinkFactory implements OutputSinkFactory {
+    @Override
+    public List<SinkClass> getSupportedSinks(SinkType sinkType, Collection<SinkClass> available) {
+        return Collections.singletonList(SinkClass.STRING);
+    }
+
+    @Override
+    public <T> Sink<T> getSink(SinkType sinkType, SinkClass sinkClass) {
+        return new Sink<T>() {
+            @Override
+            public void write(T sinkable) {
+            }
+        };
+    }
+}
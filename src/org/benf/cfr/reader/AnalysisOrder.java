@@ -0,0 +1,153 @@
+package org.benf.cfr.reader;
+
+import org.benf.cfr.reader.bytecode.analysis.types.ClassNameUtils;
+import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
+import org.benf.cfr.reader.entities.ClassHeader;
+import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.MapFactory;
+import org.benf.cfr.reader.util.collections.SetFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Analysing a class changes others - it marks overrides, hides synthetic members and arguments, ... - and
+ * later classes see those changes.  So when analysing in parallel, classes which can see each other have to be
+ * analysed in the order a single thread would use.  Anything else can be analysed at the same time.
+ *
+ * We can't know exactly what analysis will look at without doing it, so this is decided from a skim of each
+ * class file (see ClassHeader).  Classes are grouped by their top level class (inner classes are analysed with
+ * their outer class), and two groups are related if either refers to the other, or to one of its superclasses
+ * in this jar - overrides are found by looking at those.
+ */
+class AnalysisOrder {
+    private final List<String> groups;
+    private final Map<String, List<Integer>> indicesByGroup = MapFactory.newMap();
+    private final Map<String, Set<String>> referencesByGroup = MapFactory.newMap();
+    private final Map<String, Set<String>> supersByGroup = MapFactory.newMap();
+
+    private AnalysisOrder(List<JavaTypeInstance> types) {
+        this.groups = ListFactory.newList();
+        for (int idx = 0; idx < types.size(); ++idx) {
+            String group = getGroup(ClassNameUtils.convertToPath(types.get(idx).getRawName()));
+            groups.add(group);
+            List<Integer> indices = indicesByGroup.get(group);
+            if (indices == null) {
+                indices = ListFactory.newList();
+                indicesByGroup.put(group, indices);
+                referencesByGroup.put(group, SetFactory.<String>newSet());
+                supersByGroup.put(group, SetFactory.<String>newSet());
+            }
+            indices.add(idx);
+        }
+    }
+
+    /*
+     * For each of types, the (earlier) indices which must be analysed before it.
+     *
+     * allTypes are all the classes types were picked from - including inner classes, whose references count
+     * for their outer class.
+     */
+    static List<List<Integer>> getPrerequisites(DCCommonState dcCommonState, String pathPrefix, List<JavaTypeInstance> allTypes, List<JavaTypeInstance> types) {
+        AnalysisOrder order = new AnalysisOrder(types);
+        for (JavaTypeInstance type : allTypes) {
+            String path = ClassNameUtils.convertToPath(type.getRawName());
+            String group = getGroup(path);
+            if (!order.indicesByGroup.containsKey(group)) continue;
+            ClassHeader header = dcCommonState.getClassHeaderOrNull(pathPrefix + path + ".class", true);
+            if (header == null) {
+                // We can't tell what it refers to, so it has to wait for everything before it.
+                order.referencesByGroup.put(group, null);
+                continue;
+            }
+            order.addGroups(header.getReferencedClassNames(), order.referencesByGroup, group);
+            order.addGroups(header.getSuperClassNames(), order.supersByGroup, group);
+        }
+        return order.getPrerequisites();
+    }
+
+    private void addGroups(Collection<String> names, Map<String, Set<String>> target, String group) {
+        Set<String> res = target.get(group);
+        if (res == null) return;
+        for (String name : names) {
+            String referenced = getGroup(name);
+            if (indicesByGroup.containsKey(referenced) && !referenced.equals(group)) res.add(referenced);
+        }
+    }
+
+    private List<List<Integer>> getPrerequisites() {
+        Map<String, Set<String>> related = MapFactory.newMap();
+        Set<String> unknown = SetFactory.newSet();
+        for (String group : indicesByGroup.keySet()) {
+            Set<String> references = referencesByGroup.get(group);
+            if (references == null) {
+                unknown.add(group);
+                continue;
+            }
+            Set<String> relatedGroups = SetFactory.newSet(references);
+            for (String reference : references) {
+                addSupers(reference, relatedGroups);
+            }
+            addSupers(group, relatedGroups);
+            related.put(group, relatedGroups);
+        }
+        // Relations go both ways.
+        for (Map.Entry<String, Set<String>> entry : related.entrySet()) {
+            for (String other : entry.getValue()) {
+                Set<String> otherRelated = related.get(other);
+                if (otherRelated != null) otherRelated.add(entry.getKey());
+            }
+        }
+
+        List<Integer> unknownIndices = ListFactory.newList();
+        List<List<Integer>> res = ListFactory.newList();
+        for (int idx = 0; idx < groups.size(); ++idx) {
+            String group = groups.get(idx);
+            Set<Integer> before = SetFactory.newSortedSet();
+            if (unknown.contains(group)) {
+                for (int other = 0; other < idx; ++other) {
+                    before.add(other);
+                }
+                unknownIndices.add(idx);
+            } else {
+                addIndicesBefore(idx, indicesByGroup.get(group), before);
+                for (String otherGroup : related.get(group)) {
+                    addIndicesBefore(idx, indicesByGroup.get(otherGroup), before);
+                }
+                addIndicesBefore(idx, unknownIndices, before);
+            }
+            res.add(ListFactory.newList(before));
+        }
+        return res;
+    }
+
+    private static void addIndicesBefore(int idx, List<Integer> indices, Set<Integer> res) {
+        for (Integer other : indices) {
+            if (other < idx) res.add(other);
+        }
+    }
+
+    /*
+     * Superclasses of group, and theirs, which are in this jar.
+     */
+    private void addSupers(String group, Set<String> res) {
+        List<String> pending = ListFactory.newList(supersByGroup.get(group));
+        while (!pending.isEmpty()) {
+            String superGroup = pending.remove(pending.size() - 1);
+            if (!res.add(superGroup)) continue;
+            pending.addAll(supersByGroup.get(superGroup));
+        }
+    }
+
+    /*
+     * The top level class a raw class name belongs to, by name.  (Inner classes are named outer$inner; if
+     * a class only looks like an inner class, that just means we wait more than we need to).
+     */
+    private static String getGroup(String rawName) {
+        int inner = rawName.indexOf('$', rawName.lastIndexOf('/') + 1);
+        return inner == -1 ? rawName : rawName.substring(0, inner);
+    }
+}
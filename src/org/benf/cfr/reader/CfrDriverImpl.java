@@ -4,15 +4,19 @@ import org.benf.cfr.reader.api.CfrDriver;
 import org.benf.cfr.reader.api.ClassFileSource;
 import org.benf.cfr.reader.api.OutputSinkFactory;
 import org.benf.cfr.reader.apiunreleased.ClassFileSource2;
+import org.benf.cfr.reader.state.AnalysisMetrics;
 import org.benf.cfr.reader.state.ClassFileSourceImpl;
 import org.benf.cfr.reader.state.ClassFileSourceWrapper;
 import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.state.ResultCache;
 import org.benf.cfr.reader.util.AnalysisType;
 import org.benf.cfr.reader.util.getopt.Options;
 import org.benf.cfr.reader.util.getopt.OptionsImpl;
+import org.benf.cfr.reader.util.output.AsyncOutput;
 import org.benf.cfr.reader.util.output.DumperFactory;
 import org.benf.cfr.reader.util.output.InternalDumperFactoryImpl;
 import org.benf.cfr.reader.util.output.SinkDumperFactory;
+import org.benf.cfr.reader.util.output.ZipOutput;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -22,8 +26,13 @@ public class CfrDriverImpl implements CfrDriver {
     private final Options options;
     private final ClassFileSource2 classFileSource;
     private final OutputSinkFactory outputSinkFactory;
+    private final OutputSinkFactory.Sink<String> metricsSink;
 
     public CfrDriverImpl(ClassFileSource source, OutputSinkFactory outputSinkFactory, Options options) {
+        this(source, outputSinkFactory, options, null);
+    }
+
+    public CfrDriverImpl(ClassFileSource source, OutputSinkFactory outputSinkFactory, Options options, OutputSinkFactory.Sink<String> metricsSink) {
         if (options == null) {
             options = new OptionsImpl(new HashMap<String, String>());
         }
@@ -31,6 +40,7 @@ public class CfrDriverImpl implements CfrDriver {
             source = new ClassFileSourceImpl(options);
         }
         this.outputSinkFactory = outputSinkFactory;
+        this.metricsSink = metricsSink;
         this.options = options;
         this.classFileSource = source instanceof ClassFileSource2 ? (ClassFileSource2)source : new ClassFileSourceWrapper(source);
     }
@@ -46,15 +56,50 @@ public class CfrDriverImpl implements CfrDriver {
         boolean skipInnerClass = toAnalyse.size() > 1 && options.getOption(OptionsImpl.SKIP_BATCH_INNER_CLASSES);
 
         Collections.sort(toAnalyse);
+        // Cached output is plain text, so can't stand in for a token stream.
+        ResultCache resultCache = outputSinkFactory == null ? ResultCache.create(options) : null;
+        // One archive for all inputs, so it has to outlive them.
+        ZipOutput zipOutput = outputSinkFactory == null ? ZipOutput.create(options) : null;
+        // An archive is always written on its own thread.
+        AsyncOutput asyncOutput = zipOutput == null ? AsyncOutput.create(options) : null;
+        AnalysisMetrics metrics = AnalysisMetrics.create(options, metricsSink);
+        try {
+            analyseSorted(toAnalyse, skipInnerClass, resultCache, zipOutput, asyncOutput, metrics);
+        } finally {
+            if (asyncOutput != null) {
+                asyncOutput.close();
+            }
+            if (zipOutput != null) {
+                zipOutput.close();
+            }
+            if (resultCache != null) {
+                resultCache.close();
+            }
+            metrics.close();
+            // Our own source holds jars open for the duration - user supplied sources manage their own.
+            if (classFileSource instanceof ClassFileSourceImpl) {
+                ((ClassFileSourceImpl) classFileSource).close();
+            }
+        }
+    }
+
+    private void analyseSorted(List<String> toAnalyse, boolean skipInnerClass, ResultCache resultCache, ZipOutput zipOutput, AsyncOutput asyncOutput, AnalysisMetrics metrics) {
+        DCCommonState sharedState = options.getOption(OptionsImpl.SHARED_STATE) ? new DCCommonState(options, classFileSource, metrics) : null;
         for (String path : toAnalyse) {
-            // TODO : We shouldn't have to discard state here.  But we do, because
-            // it causes test fails.  (used class name table retains useful symbols).
+            // By default, we discard state between inputs - the used class name table retains symbols,
+            // which changes output.  If we've been asked to share, that table is reset instead.
             classFileSource.informAnalysisRelativePathDetail(null, null);
             // Note - both of these need to be reset, as they have caches.
-            DCCommonState dcCommonState = new DCCommonState(options, classFileSource);
+            DCCommonState dcCommonState;
+            if (sharedState != null) {
+                sharedState.beginInput();
+                dcCommonState = sharedState;
+            } else {
+                dcCommonState = new DCCommonState(options, classFileSource, metrics);
+            }
             DumperFactory dumperFactory = outputSinkFactory != null ?
-                    new SinkDumperFactory(outputSinkFactory, options) :
-                    new InternalDumperFactoryImpl(options);
+                    new SinkDumperFactory(outputSinkFactory, options, asyncOutput) :
+                    new InternalDumperFactoryImpl(options, zipOutput, asyncOutput);
 
             AnalysisType type = options.getOption(OptionsImpl.ANALYSE_AS);
             if (type == null || type == AnalysisType.DETECT) {
@@ -62,9 +107,9 @@ public class CfrDriverImpl implements CfrDriver {
             }
 
             if (type == AnalysisType.JAR || type == AnalysisType.WAR) {
-                Driver.doJar(dcCommonState, path, type, dumperFactory);
+                Driver.doJar(dcCommonState, path, type, dumperFactory, resultCache);
             } else if (type == AnalysisType.CLASS) {
-                Driver.doClass(dcCommonState, path, skipInnerClass, dumperFactory);
+                Driver.doClass(dcCommonState, path, skipInnerClass, dumperFactory, resultCache);
             }
         }
     }
@@ -1,15 +1,21 @@
 package org.benf.cfr.reader;
 
+import org.benf.cfr.reader.bytecode.analysis.types.ClassNameUtils;
 import org.benf.cfr.reader.bytecode.analysis.types.InnerClassInfo;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
 import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.entities.ClassHeader;
 import org.benf.cfr.reader.entities.Method;
 import org.benf.cfr.reader.mapping.MappingFactory;
+import org.benf.cfr.reader.mapping.NullMapping;
 import org.benf.cfr.reader.mapping.ObfuscationMapping;
 import org.benf.cfr.reader.relationship.MemberNameResolver;
+import org.benf.cfr.reader.state.AnalysisMetrics;
 import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.state.ResultCache;
 import org.benf.cfr.reader.state.TypeUsageCollectingDumper;
 import org.benf.cfr.reader.state.TypeUsageInformation;
+import org.benf.cfr.reader.state.TypeUsageInformationEmpty;
 import org.benf.cfr.reader.util.AnalysisType;
 import org.benf.cfr.reader.util.CannotLoadClassException;
 import org.benf.cfr.reader.util.MiscConstants;
@@ -27,38 +33,56 @@ import org.benf.cfr.reader.util.output.ExceptionDumper;
 import org.benf.cfr.reader.util.output.IllegalIdentifierDump;
 import org.benf.cfr.reader.util.output.NopSummaryDumper;
 import org.benf.cfr.reader.util.output.ProgressDumper;
+import org.benf.cfr.reader.util.output.StringStreamDumper;
 import org.benf.cfr.reader.util.output.SummaryDumper;
 import org.benf.cfr.reader.util.output.ToStringDumper;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class Driver {
 
     static void doClass(DCCommonState dcCommonState, String path, boolean skipInnerClass, DumperFactory dumperFactory) {
+        doClass(dcCommonState, path, skipInnerClass, dumperFactory, null);
+    }
+
+    static void doClass(DCCommonState dcCommonState, String path, boolean skipInnerClass, DumperFactory dumperFactory, ResultCache resultCache) {
         Options options = dcCommonState.getOptions();
         ObfuscationMapping mapping = MappingFactory.get(options, dcCommonState);
-        dcCommonState = new DCCommonState(dcCommonState, mapping);
+        dcCommonState = withMapping(dcCommonState, mapping);
 
         IllegalIdentifierDump illegalIdentifierDump = IllegalIdentifierDump.Factory.get(options);
         Dumper d = new ToStringDumper(); // sentinel dumper.
         ExceptionDumper ed = dumperFactory.getExceptionDumper();
+        AnalysisMetrics.ClassMetrics classMetrics = AnalysisMetrics.ClassMetrics.NONE;
         try {
             SummaryDumper summaryDumper = new NopSummaryDumper();
             ClassFile c = dcCommonState.getClassFileMaybePath(path);
             if (skipInnerClass && c.isInnerClass()) return;
+            classMetrics = dcCommonState.getMetrics().beginClass(c.getClassType());
 
             dcCommonState.configureWith(c);
             dumperFactory.getProgressDumper().analysingType(c.getClassType());
 
             // This may seem odd, but we want to make sure we're analysing the version
             // from the cache.  Because we might have been fed a random filename
-            try {
-                c = dcCommonState.getClassFile(c.getClassType());
-            } catch (CannotLoadClassException ignore) {
+            // (If the cache is shared, it may hold a same named class from a previous input).
+            if (options.getOption(OptionsImpl.SHARED_STATE)) {
+                dcCommonState.forgetClassFile(ClassNameUtils.convertToPath(c.getClassType().getRawName()) + ".class");
             }
+            ClassFile loaded = dcCommonState.getClassFileOrNull(c.getClassType());
+            if (loaded != null) c = loaded;
 
             if (options.getOption(OptionsImpl.DECOMPILE_INNER_CLASSES)) {
                 c.loadInnerClasses(dcCommonState);
@@ -67,8 +91,20 @@ class Driver {
                 MemberNameResolver.resolveNames(dcCommonState, ListFactory.newList(dcCommonState.getClassCache().getLoadedTypes()));
             }
 
+            String methname = options.getOption(OptionsImpl.METHODNAME);
+            String cacheKey = resultCache == null || methname != null ? null : resultCache.getKey(c);
+            String cached = cacheKey == null ? null : resultCache.get(cacheKey);
+            if (cached != null) {
+                classMetrics.begin(AnalysisMetrics.Phase.DUMP);
+                d = dumperFactory.getNewTopLevelDumper(c.getClassType(), summaryDumper, TypeUsageInformationEmpty.INSTANCE, illegalIdentifierDump);
+                replay(d, cached);
+                return;
+            }
+
             // THEN analyse.
+            classMetrics.begin(AnalysisMetrics.Phase.CLASS);
             c.analyseTop(dcCommonState);
+            classMetrics.begin(AnalysisMetrics.Phase.DUMP);
             /*
              * Perform a pass to determine what imports / classes etc we used / failed.
              */
@@ -80,13 +116,24 @@ class Driver {
             d = dumperFactory.getNewTopLevelDumper(c.getClassType(), summaryDumper, typeUsageInformation, illegalIdentifierDump);
             d = dcCommonState.getObfuscationMapping().wrap(d);
 
-            String methname = options.getOption(OptionsImpl.METHODNAME);
+            if (cacheKey != null) {
+                ResultCapturingDumper capture = new ResultCapturingDumper(typeUsageInformation, options, illegalIdentifierDump, d);
+                try {
+                    c.dump(collectingDumper.getReplayingDumper(capture));
+                    capture.print("");
+                } finally {
+                    replay(d, capture.getResult());
+                }
+                if (!capture.hasSummaryErrors()) resultCache.put(cacheKey, capture.getResult());
+                return;
+            }
             if (methname == null) {
-                c.dump(d);
+                c.dump(collectingDumper.getReplayingDumper(d));
             } else {
                 try {
+                    Dumper replaying = collectingDumper.getReplayingDumper(d);
                     for (Method method : c.getMethodByName(methname)) {
-                        method.dump(d, true);
+                        method.dump(replaying, true);
                     }
                 } catch (NoSuchMethodException e) {
                     throw new IllegalArgumentException("No such method '" + methname + "'.");
@@ -97,16 +144,23 @@ class Driver {
             ed.noteException(path, null, e);
         } finally {
             if (d != null) d.close();
+            classMetrics.end();
         }
     }
 
     static void doJar(DCCommonState dcCommonState, String path, AnalysisType analysisType, DumperFactory dumperFactory) {
+        doJar(dcCommonState, path, analysisType, dumperFactory, null);
+    }
+
+    static void doJar(DCCommonState dcCommonState, String path, AnalysisType analysisType, DumperFactory dumperFactory, ResultCache resultCache) {
         Options options = dcCommonState.getOptions();
         IllegalIdentifierDump illegalIdentifierDump = IllegalIdentifierDump.Factory.get(options);
         ObfuscationMapping mapping = MappingFactory.get(options, dcCommonState);
-        dcCommonState = new DCCommonState(dcCommonState, mapping);
+        dcCommonState = withMapping(dcCommonState, mapping);
+        if (resultCache != null) resultCache = resultCache.forJarOrNull(path);
 
         SummaryDumper summaryDumper = null;
+        int metricsMark = dcCommonState.getMetrics().mark();
         try {
             ProgressDumper progressDumper = dumperFactory.getProgressDumper();
             summaryDumper = dumperFactory.getSummaryDumper();
@@ -125,8 +179,9 @@ class Driver {
                 versionsSeen.add(forVersion);
                 List<Integer> localVersionsSeen = ListFactory.newList(versionsSeen);
                 List<JavaTypeInstance> types = entry.getValue();
-                doJarVersionTypes(forVersion, localVersionsSeen, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper, progressDumper, types);
+                doJarVersionTypes(forVersion, localVersionsSeen, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper, progressDumper, types, resultCache);
             }
+            dcCommonState.getMetrics().summarise(metricsMark, summaryDumper);
         } catch (Exception e) {
             dumperFactory.getExceptionDumper().noteException(path, "Exception analysing jar", e);
             if (summaryDumper != null) summaryDumper.notify("Exception analysing jar " + e);
@@ -137,6 +192,16 @@ class Driver {
         }
     }
 
+    /*
+     * If state is shared between inputs, we don't want a fresh copy - unless there's a mapping to apply to it.
+     */
+    private static DCCommonState withMapping(DCCommonState dcCommonState, ObfuscationMapping mapping) {
+        if (mapping == NullMapping.INSTANCE && dcCommonState.getOptions().getOption(OptionsImpl.SHARED_STATE)) {
+            return dcCommonState;
+        }
+        return new DCCommonState(dcCommonState, mapping);
+    }
+
     /*
      * If there are any inner classes in values which are orphaned, then we want to
      * additionally add their outer classes, to ensure that they are not skipped as
@@ -174,9 +239,9 @@ class Driver {
         return collisions;
     }
 
-    private static void doJarVersionTypes(int forVersion, final List<Integer> versionsSeen, DCCommonState dcCommonState, DumperFactory dumperFactory, IllegalIdentifierDump illegalIdentifierDump, SummaryDumper summaryDumper, ProgressDumper progressDumper, List<JavaTypeInstance> types) {
+    private static void doJarVersionTypes(int forVersion, final List<Integer> versionsSeen, DCCommonState dcCommonState, DumperFactory dumperFactory, IllegalIdentifierDump illegalIdentifierDump, SummaryDumper summaryDumper, ProgressDumper progressDumper, List<JavaTypeInstance> types, ResultCache resultCache) {
         Options options = dcCommonState.getOptions();
-        final boolean lomem = options.getOption(OptionsImpl.LOMEM);
+        final boolean lomem = isLoMem(options);
         final Predicate<String> matcher = MiscUtils.mkRegexFilter(options.getOption(OptionsImpl.JAR_FILTER), true);
         final boolean silent = options.getOption(OptionsImpl.SILENT);
 
@@ -190,7 +255,7 @@ class Driver {
                 @Override
                 public ClassFile invoke(String arg, DCCommonState arg2) {
                     // First we try to load forVersion, then forVersion-1, etc.
-                    Exception lastException = null;
+                    CannotLoadClassException lastException = null;
                     for (int version : versionsSeen) {
                         try {
                             if (version == 0) {
@@ -201,6 +266,9 @@ class Driver {
                             lastException = e;
                         }
                     }
+                    if (lastException != null && lastException.isMissing()) {
+                        throw CannotLoadClassException.missing(arg, lastException);
+                    }
                     throw new CannotLoadClassException(arg, lastException);
                 }
             });
@@ -220,17 +288,28 @@ class Driver {
                 options.getOption(OptionsImpl.RENAME_ENUM_MEMBERS)) {
             MemberNameResolver.resolveNames(dcCommonState, types);
         }
+        List<JavaTypeInstance> allTypes = types;
+        fixClassNames(forVersion, dcCommonState, allTypes);
+        types = getPossibleOuters(forVersion, dcCommonState, types);
+        int threads = getThreadCount(options);
+        if (threads > 1 && types.size() > 1) {
+            List<List<Integer>> prerequisites = AnalysisOrder.getPrerequisites(dcCommonState, getPathPrefix(forVersion), allTypes, types);
+            doJarVersionTypesParallel(threads, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper, progressDumper, types, prerequisites, resultCache);
+            return;
+        }
         /*
          * If we're working on a case insensitive file system (OH COME ON!) then make sure that
          * we don't have any collisions.
          */
         for (JavaTypeInstance type : types) {
             Dumper d = new ToStringDumper();  // Sentinel dumper.
+            AnalysisMetrics.ClassMetrics classMetrics = dcCommonState.getMetrics().beginClass(type);
             try {
                 ClassFile c = dcCommonState.getClassFile(type);
                 // Don't explicitly dump inner classes.  But make sure we ask the CLASS if it's
                 // an inner class, rather than using the name, as scala tends to abuse '$'.
                 if (c.isInnerClass()) {
+                    classMetrics.discard();
                     d = null;
                     continue;
                 }
@@ -241,31 +320,345 @@ class Driver {
                 if (options.getOption(OptionsImpl.DECOMPILE_INNER_CLASSES)) {
                     c.loadInnerClasses(dcCommonState);
                 }
+                String cacheKey = resultCache == null ? null : resultCache.getKey(c);
+                String cached = cacheKey == null ? null : resultCache.get(cacheKey);
+                if (cached != null) {
+                    classMetrics.begin(AnalysisMetrics.Phase.DUMP);
+                    d = dumpCached(c, cached, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper);
+                    continue;
+                }
                 // THEN analyse.
+                classMetrics.begin(AnalysisMetrics.Phase.CLASS);
                 c.analyseTop(dcCommonState);
 
+                classMetrics.begin(AnalysisMetrics.Phase.DUMP);
                 TypeUsageCollectingDumper collectingDumper = new TypeUsageCollectingDumper(options, c);
                 c.dump(collectingDumper);
 
-                JavaTypeInstance classType = c.getClassType();
-                classType = dcCommonState.getObfuscationMapping().get(classType);
-                d = dumperFactory.getNewTopLevelDumper(classType, summaryDumper, collectingDumper.getRealTypeUsageInformation(), illegalIdentifierDump);
-                d = dcCommonState.getObfuscationMapping().wrap(d);
-
-                c.dump(d);
-                d.newln();
-                d.newln();
-                if (lomem) {
-                    c.releaseCode();
-                }
+                d = dumpAnalysed(c, collectingDumper, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper, lomem, resultCache, cacheKey);
             } catch (Dumper.CannotCreate e) {
                 throw e;
             } catch (RuntimeException e) {
                 d.print(e.toString()).newln().newln().newln();
             } finally {
                 if (d != null) d.close();
+                classMetrics.end();
+                dcCommonState.trimClassFiles(Long.MAX_VALUE);
             }
 
         }
     }
+
+    /*
+     * Inner classes are dumped with their outer classes, so there's no need to load them here just to skip them -
+     * a quick skim of each class file will find most of them.  Anything the skim can't rule out is loaded, and
+     * checked, as before.
+     */
+    private static List<JavaTypeInstance> getPossibleOuters(int forVersion, final DCCommonState dcCommonState, List<JavaTypeInstance> types) {
+        final String prefix = getPathPrefix(forVersion);
+        return Functional.filter(types, new Predicate<JavaTypeInstance>() {
+            @Override
+            public boolean test(JavaTypeInstance in) {
+                ClassHeader header = dcCommonState.getClassHeaderOrNull(prefix + ClassNameUtils.convertToPath(in.getRawName()) + ".class", false);
+                return header == null || !header.isInnerClass();
+            }
+        });
+    }
+
+    /*
+     * The class names variables must avoid are decided before anything is analysed - every class in the jar, and
+     * everything they refer to - so that output doesn't depend on the order classes are analysed in.
+     */
+    private static void fixClassNames(int forVersion, DCCommonState dcCommonState, List<JavaTypeInstance> types) {
+        String prefix = getPathPrefix(forVersion);
+        Set<String> names = SetFactory.newSet();
+        for (JavaTypeInstance type : types) {
+            String path = ClassNameUtils.convertToPath(type.getRawName());
+            names.add(path);
+            ClassHeader header = dcCommonState.getClassHeaderOrNull(prefix + path + ".class", true);
+            if (header != null) names.addAll(header.getReferencedClassNames());
+        }
+        dcCommonState.getClassCache().fixClassNames(names);
+    }
+
+    private static String getPathPrefix(int forVersion) {
+        return forVersion > 0 ? MiscConstants.MULTI_RELEASE_PREFIX + forVersion + "/" : "";
+    }
+
+    /*
+     * Returns the (open) dumper used, so the caller can report any exceptions into it.
+     */
+    private static Dumper dumpAnalysed(ClassFile c, TypeUsageCollectingDumper collectingDumper, DCCommonState dcCommonState, DumperFactory dumperFactory, IllegalIdentifierDump illegalIdentifierDump, SummaryDumper summaryDumper, boolean lomem, ResultCache resultCache, String cacheKey) {
+        TypeUsageInformation typeUsageInformation = collectingDumper.getRealTypeUsageInformation();
+        JavaTypeInstance classType = c.getClassType();
+        classType = dcCommonState.getObfuscationMapping().get(classType);
+        Dumper d = dumperFactory.getNewTopLevelDumper(classType, summaryDumper, typeUsageInformation, illegalIdentifierDump);
+        d = dcCommonState.getObfuscationMapping().wrap(d);
+
+        if (cacheKey == null) {
+            c.dump(collectingDumper.getReplayingDumper(d));
+            d.newln();
+            d.newln();
+        } else {
+            ResultCapturingDumper capture = new ResultCapturingDumper(typeUsageInformation, dcCommonState.getOptions(), illegalIdentifierDump, d);
+            try {
+                c.dump(collectingDumper.getReplayingDumper(capture));
+                capture.newln();
+                capture.newln();
+            } finally {
+                replay(d, capture.getResult());
+            }
+            if (!capture.hasSummaryErrors()) resultCache.put(cacheKey, capture.getResult());
+        }
+        if (lomem) {
+            c.releaseCode();
+        }
+        return d;
+    }
+
+    private static Dumper dumpCached(ClassFile c, String cached, DCCommonState dcCommonState, DumperFactory dumperFactory, IllegalIdentifierDump illegalIdentifierDump, SummaryDumper summaryDumper) {
+        JavaTypeInstance classType = c.getClassType();
+        classType = dcCommonState.getObfuscationMapping().get(classType);
+        Dumper d = dumperFactory.getNewTopLevelDumper(classType, summaryDumper, TypeUsageInformationEmpty.INSTANCE, illegalIdentifierDump);
+        replay(d, cached);
+        return d;
+    }
+
+    /*
+     * Feed previously captured output to a dumper a line at a time, so it gets the same content (including any
+     * trailing blank lines) it would have seen had it dumped the class itself.
+     */
+    private static void replay(Dumper d, String content) {
+        String[] lines = content.split("\n", -1);
+        for (int x = 0; x < lines.length; ++x) {
+            if (x > 0) d.newln();
+            d.print(lines[x]);
+        }
+    }
+
+    /*
+     * Captures output for the result cache.  Anything that should go in the summary is passed on - but
+     * results with summary errors aren't cached, as we couldn't reproduce the summary from the cache.
+     */
+    private static class ResultCapturingDumper extends StringStreamDumper {
+        private final StringBuilder sb;
+        private final Dumper target;
+        private boolean summaryErrors = false;
+
+        ResultCapturingDumper(TypeUsageInformation typeUsageInformation, Options options, IllegalIdentifierDump illegalIdentifierDump, Dumper target) {
+            this(new StringBuilder(), typeUsageInformation, options, illegalIdentifierDump, target);
+        }
+
+        private ResultCapturingDumper(StringBuilder sb, TypeUsageInformation typeUsageInformation, Options options, IllegalIdentifierDump illegalIdentifierDump, Dumper target) {
+            super(sb, typeUsageInformation, options, illegalIdentifierDump);
+            this.sb = sb;
+            this.target = target;
+        }
+
+        @Override
+        public void addSummaryError(Method method, String s) {
+            summaryErrors = true;
+            target.addSummaryError(method, s);
+        }
+
+        boolean hasSummaryErrors() {
+            return summaryErrors;
+        }
+
+        String getResult() {
+            return sb.toString();
+        }
+    }
+
+    /*
+     * A class cache budget is no use if dumped classes keep hold of their analysis.
+     */
+    private static boolean isLoMem(Options options) {
+        return options.getOption(OptionsImpl.LOMEM) || options.getOption(OptionsImpl.CLASS_CACHE_SIZE) > 0;
+    }
+
+    private static int getThreadCount(Options options) {
+        int threads = options.getOption(OptionsImpl.THREADS);
+        if (threads == 0) threads = Runtime.getRuntime().availableProcessors();
+        return threads;
+    }
+
+    /*
+     * The expensive part of decompiling a class is the analysis, so that's what we farm out to a pool.
+     * Each task gets its own collecting dumper - the real dump happens here, on the calling thread, in the
+     * original order, so that output (and the summary) is in the same order as a single threaded run.
+     *
+     * A task waits for its prerequisites (see AnalysisOrder) to be analysed before it starts.  Tasks are
+     * started in order, and only wait for earlier ones, so this can't deadlock.
+     *
+     * Analysis isn't allowed to get too far ahead of dumping, otherwise we'd hold every analysed class in memory.
+     */
+    private static void doJarVersionTypesParallel(int threads, DCCommonState dcCommonState, DumperFactory dumperFactory, IllegalIdentifierDump illegalIdentifierDump, SummaryDumper summaryDumper, ProgressDumper progressDumper, List<JavaTypeInstance> types, List<List<Integer>> prerequisites, final ResultCache resultCache) {
+        Options options = dcCommonState.getOptions();
+        final boolean lomem = isLoMem(options);
+        final boolean silent = options.getOption(OptionsImpl.SILENT);
+        final int window = threads * 4;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new AnalysisThreadFactory());
+        try {
+            Queue<Future<AnalysisResult>> pending = new ArrayDeque<Future<AnalysisResult>>();
+            // Classes used by tasks still running must be kept - see DCCommonState.trimClassFiles.
+            Queue<Long> pendingGenerations = new ArrayDeque<Long>();
+            // By index - null once dumped, as then there's nothing to wait for.
+            List<Future<AnalysisResult>> submittedResults = ListFactory.newList();
+            for (int idx = 0; idx < types.size(); ++idx) {
+                while (submittedResults.size() < types.size() && submittedResults.size() < idx + window) {
+                    int submitting = submittedResults.size();
+                    List<Future<AnalysisResult>> waitFor = ListFactory.newList();
+                    for (Integer before : prerequisites.get(submitting)) {
+                        Future<AnalysisResult> beforeResult = submittedResults.get(before);
+                        if (beforeResult != null) waitFor.add(beforeResult);
+                    }
+                    pendingGenerations.add(dcCommonState.beginGeneration());
+                    Future<AnalysisResult> submitted = executor.submit(new AnalysisTask(dcCommonState, types.get(submitting), waitFor, resultCache));
+                    pending.add(submitted);
+                    submittedResults.add(submitted);
+                }
+                Future<AnalysisResult> result = pending.remove();
+                submittedResults.set(idx, null);
+                pendingGenerations.remove();
+                JavaTypeInstance type = types.get(idx);
+                Dumper d = new ToStringDumper();  // Sentinel dumper.
+                AnalysisMetrics.ClassMetrics classMetrics = AnalysisMetrics.ClassMetrics.NONE;
+                try {
+                    AnalysisResult analysed = getAnalysisResult(result);
+                    // Inner classes are dumped as part of their outer class.
+                    if (analysed == null) {
+                        d = null;
+                        continue;
+                    }
+                    classMetrics = analysed.classMetrics;
+                    classMetrics.begin(AnalysisMetrics.Phase.DUMP);
+                    if (!silent) {
+                        type = dcCommonState.getObfuscationMapping().get(type);
+                        progressDumper.analysingType(type);
+                    }
+                    if (analysed.cached != null) {
+                        d = dumpCached(analysed.classFile, analysed.cached, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper);
+                    } else {
+                        d = dumpAnalysed(analysed.classFile, analysed.collectingDumper, dcCommonState, dumperFactory, illegalIdentifierDump, summaryDumper, lomem, resultCache, analysed.cacheKey);
+                    }
+                } catch (Dumper.CannotCreate e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    d.print(e.toString()).newln().newln().newln();
+                } finally {
+                    if (d != null) d.close();
+                    classMetrics.end();
+                    Long oldestRunning = pendingGenerations.peek();
+                    dcCommonState.trimClassFiles(oldestRunning == null ? Long.MAX_VALUE : oldestRunning);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> T getAnalysisResult(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /*
+     * Either an analysed class, or its output from the result cache.
+     */
+    private static class AnalysisResult {
+        private final ClassFile classFile;
+        private final TypeUsageCollectingDumper collectingDumper;
+        private final String cacheKey;
+        private final String cached;
+        private final AnalysisMetrics.ClassMetrics classMetrics;
+
+        AnalysisResult(ClassFile classFile, TypeUsageCollectingDumper collectingDumper, String cacheKey, String cached, AnalysisMetrics.ClassMetrics classMetrics) {
+            this.classFile = classFile;
+            this.collectingDumper = collectingDumper;
+            this.cacheKey = cacheKey;
+            this.cached = cached;
+            this.classMetrics = classMetrics;
+        }
+    }
+
+    /*
+     * Load and analyse a single top level class, and discover the types it uses.
+     * Returns null if this is an inner class, as that will be handled by its outer class.
+     */
+    private static class AnalysisTask implements Callable<AnalysisResult> {
+        private final DCCommonState dcCommonState;
+        private final JavaTypeInstance type;
+        private final List<Future<AnalysisResult>> waitFor;
+        private final ResultCache resultCache;
+
+        AnalysisTask(DCCommonState dcCommonState, JavaTypeInstance type, List<Future<AnalysisResult>> waitFor, ResultCache resultCache) {
+            this.dcCommonState = dcCommonState;
+            this.type = type;
+            this.waitFor = waitFor;
+            this.resultCache = resultCache;
+        }
+
+        @Override
+        public AnalysisResult call() throws InterruptedException {
+            for (Future<AnalysisResult> before : waitFor) {
+                try {
+                    before.get();
+                } catch (ExecutionException e) {
+                    // That's its problem - it's finished, which is all we need.
+                }
+            }
+            AnalysisMetrics.ClassMetrics classMetrics = dcCommonState.getMetrics().beginClass(type);
+            try {
+                return analyse(classMetrics);
+            } finally {
+                classMetrics.end();
+            }
+        }
+
+        private AnalysisResult analyse(AnalysisMetrics.ClassMetrics classMetrics) {
+            Options options = dcCommonState.getOptions();
+            ClassFile c = dcCommonState.getClassFile(type);
+            if (c.isInnerClass()) {
+                classMetrics.discard();
+                return null;
+            }
+            if (options.getOption(OptionsImpl.DECOMPILE_INNER_CLASSES)) {
+                c.loadInnerClasses(dcCommonState);
+            }
+            String cacheKey = resultCache == null ? null : resultCache.getKey(c);
+            String cached = cacheKey == null ? null : resultCache.get(cacheKey);
+            if (cached != null) {
+                return new AnalysisResult(c, null, cacheKey, cached, classMetrics);
+            }
+            classMetrics.begin(AnalysisMetrics.Phase.CLASS);
+            c.analyseTop(dcCommonState);
+
+            classMetrics.begin(AnalysisMetrics.Phase.DUMP);
+            TypeUsageCollectingDumper collectingDumper = new TypeUsageCollectingDumper(options, c);
+            c.dump(collectingDumper);
+            return new AnalysisResult(c, collectingDumper, cacheKey, null, classMetrics);
+        }
+    }
+
+    private static class AnalysisThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "cfr-analysis-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
@@ -30,6 +30,7 @@ public interface CfrDriver {
         ClassFileSource source = null;
         Options builtOptions = null;
         OutputSinkFactory output = null;
+        OutputSinkFactory.Sink<String> metrics = null;
 
         /**
          * Overrides where CFR searches for bytecode.
@@ -86,6 +87,20 @@ public interface CfrDriver {
             return this;
         }
 
+        /**
+         * Receive timings (per class, method and analysis phase) for each call to {@link CfrDriver#analyse},
+         * as the same JSON document --metrics writes.
+         *
+         * Note that the content of this is *not* guaranteed to be stable.
+         *
+         * @param metrics sink, called once at the end of each analyse.
+         * @return this builder.
+         */
+        public Builder withMetricsSink(OutputSinkFactory.Sink<String> metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
         /**
          * Given provided artifacts, build an instance of {@link CfrDriver}.
          * Note that if artifacts are not provided, you will get default CFR behaviour.
@@ -93,7 +108,7 @@ public interface CfrDriver {
          * @return Constructed instance of {@link CfrDriver}
          */
         public CfrDriver build() {
-            return new CfrDriverImpl(source, output, builtOptions);
+            return new CfrDriverImpl(source, output, builtOptions, metrics);
         }
     }
 }
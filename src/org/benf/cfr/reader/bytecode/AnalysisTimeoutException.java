@@ -0,0 +1,12 @@
+package org.benf.cfr.reader.bytecode;
+
+import org.benf.cfr.reader.util.ConfusedCFRException;
+
+/*
+ * Thrown from between analysis stages when a method has used up its time budget.
+ */
+class AnalysisTimeoutException extends ConfusedCFRException {
+    AnalysisTimeoutException(String s) {
+        super(s);
+    }
+}
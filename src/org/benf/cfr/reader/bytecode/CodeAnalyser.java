@@ -52,11 +52,13 @@ import org.benf.cfr.reader.entities.attributes.AttributeCode;
 import org.benf.cfr.reader.entities.constantpool.ConstantPool;
 import org.benf.cfr.reader.entities.exceptions.ExceptionAggregator;
 import org.benf.cfr.reader.entities.exceptions.ExceptionTableEntry;
+import org.benf.cfr.reader.state.AnalysisMetrics;
 import org.benf.cfr.reader.state.DCCommonState;
 import org.benf.cfr.reader.util.ClassFileVersion;
 import org.benf.cfr.reader.util.ConfusedCFRException;
 import org.benf.cfr.reader.util.DecompilerComment;
 import org.benf.cfr.reader.util.DecompilerComments;
+import org.benf.cfr.reader.util.PendingResult;
 import org.benf.cfr.reader.util.Troolean;
 import org.benf.cfr.reader.util.bytestream.ByteData;
 import org.benf.cfr.reader.util.bytestream.OffsettingByteData;
@@ -79,6 +81,19 @@ public class CodeAnalyser {
     private Method method;
 
     private Op04StructuredStatement analysed;
+    /*
+     * Set while a thread is analysing - guarded, like analysed, by this.
+     */
+    private PendingResult<Op04StructuredStatement> analysing;
+    /*
+     * Wall clock time after which we give up on this method, or 0 if there's no limit.
+     * Checked between stages of analysis.
+     */
+    private long deadline;
+    /*
+     * Where we're recording time spent on this analysis.  Like deadline, only valid during getAnalysis.
+     */
+    private AnalysisMetrics.MethodMetrics metrics = AnalysisMetrics.MethodMetrics.NONE;
     private static final Op04StructuredStatement POISON = new Op04StructuredStatement(new StructuredComment("Analysis utterly failed (Recursive inlining?)"));
 
     public CodeAnalyser(AttributeCode attributeCode) {
@@ -138,32 +153,78 @@ public class CodeAnalyser {
 
     /*
      * This method should not throw.  If it does, something serious has gone wrong.
+     *
+     * Another analysis thread may want the same method (eg a synthetic accessor) - it waits for the result,
+     * rather than see POISON.  (But no lock is held while analysing - that may need other methods.)
      */
     public Op04StructuredStatement getAnalysis(DCCommonState dcCommonState) {
-        if (analysed == POISON) {
+        PendingResult<Op04StructuredStatement> pending;
+        boolean owner = false;
+        synchronized (this) {
+            if (analysed == POISON) {
+                throw new ConfusedCFRException("Recursive analysis");
+            }
+            if (analysed != null) {
+                return analysed;
+            }
+            pending = analysing;
+            if (pending == null) {
+                pending = analysing = dcCommonState.getPendingResults().newPendingResult();
+                owner = true;
+            }
+        }
+        if (!owner) {
+            if (pending.await()) return pending.get();
             /*
              * We shouldn't get here, unless a method needs to inline a copy of itself.
-             * (which can't end well!)
+             * (which can't end well!)  (Or another thread analysing it is waiting for us).
              *
              * Seen when decompiling scala - a lambda which (to java) looks like an
              * intermediate.
              */
             throw new ConfusedCFRException("Recursive analysis");
         }
-        if (analysed != null) {
-            return analysed;
+
+        Op04StructuredStatement res = null;
+        try {
+            res = getAnalysisTimed(dcCommonState);
+            return res;
+        } finally {
+            synchronized (this) {
+                analysed = res == null ? POISON : res;
+                analysing = null;
+            }
+            if (res != null) {
+                pending.complete(res);
+            } else {
+                pending.fail(new ConfusedCFRException("Analysis failed"));
+            }
         }
-        analysed = POISON;
+    }
 
+    private Op04StructuredStatement getAnalysisTimed(DCCommonState dcCommonState) {
         Options options = dcCommonState.getOptions();
-        List<Op01WithProcessedDataAndByteJumps> instrs = getInstrs();
+        int timeout = options.getOption(OptionsImpl.METHOD_TIMEOUT);
+        deadline = timeout > 0 ? System.currentTimeMillis() + timeout * 1000L : 0;
+        metrics = dcCommonState.getMetrics().beginMethod(method);
+        try {
+            return getAnalysisMeasured(dcCommonState, options);
+        } finally {
+            metrics.end();
+            metrics = AnalysisMetrics.MethodMetrics.NONE;
+        }
+    }
+
+    private Op04StructuredStatement getAnalysisMeasured(final DCCommonState dcCommonState, Options options) {
+        final List<Op01WithProcessedDataAndByteJumps> instrs = getInstrs();
 
         AnalysisResult res;
+        int resPass;
 
         /*
          * Very quick scan to check for presence of certain instructions.
          */
-        BytecodeMeta bytecodeMeta = new BytecodeMeta(instrs, originalCodeAttribute, options);
+        final BytecodeMeta bytecodeMeta = new BytecodeMeta(instrs, originalCodeAttribute, options);
 
         if (options.optionIsSet(OptionsImpl.FORCE_PASS)) {
             int pass = options.getOption(OptionsImpl.FORCE_PASS);
@@ -172,31 +233,46 @@ public class CodeAnalyser {
             }
             RecoveryOptions.Applied applied = recoveryOptionsArr[pass].apply(dcCommonState, options, bytecodeMeta);
             res = getAnalysisOrWrapFail(pass, instrs, dcCommonState, applied.options, applied.comments, bytecodeMeta);
+            resPass = pass;
         } else {
 
             res = getAnalysisOrWrapFail(0, instrs, dcCommonState, options, null, bytecodeMeta);
+            resPass = 0;
 
-            if (res.isFailed() && options.getOption(OptionsImpl.RECOVER)) {
+            if (res.isFailed() && options.getOption(OptionsImpl.RECOVER) && !isOverDeadline()) {
                 int passIdx = 1;
+                RecoveryAttempts attempts = new RecoveryAttempts(new RecoveryAttempts.Analysis() {
+                    @Override
+                    public AnalysisResult analyse(int pass, RecoveryOptions.Applied applied) {
+                        return getAnalysisOrWrapFail(pass, instrs, dcCommonState, applied.options, applied.comments, bytecodeMeta);
+                    }
+                });
                 for (RecoveryOptions recoveryOptions : recoveryOptionsArr) {
                     RecoveryOptions.Applied applied = recoveryOptions.apply(dcCommonState, options, bytecodeMeta);
                     if (!applied.valid) continue;
-                    AnalysisResult nextRes = getAnalysisOrWrapFail(passIdx++, instrs, dcCommonState, applied.options, applied.comments, bytecodeMeta);
+                    AnalysisResult nextRes = attempts.get(passIdx, applied);
                     if (nextRes != null) {
                         if (res.isFailed() && nextRes.isFailed()) {
                             // If they both failed, only replace if the later failure is not an exception.
                             // (or if the earlier one is).
-                            if (res.isThrown() || !nextRes.isThrown()) res = nextRes;
+                            if (res.isThrown() || !nextRes.isThrown()) {
+                                res = nextRes;
+                                resPass = passIdx;
+                            }
                         } else {
                             res = nextRes;
+                            resPass = passIdx;
                         }
                     }
-                    if (res.isFailed()) continue;
+                    passIdx++;
+                    if (res.isFailed() && !isOverDeadline()) continue;
                     break;
                 }
             }
         }
 
+        metrics.setResult(resPass, res.isFailed());
+
         if (res.getComments() != null) {
             method.setComments(res.getComments());
         }
@@ -206,8 +282,17 @@ public class CodeAnalyser {
          */
         res.getAnonymousClassUsage().useNotes();
 
-        analysed = res.getCode();
-        return analysed;
+        return res.getCode();
+    }
+
+    private boolean isOverDeadline() {
+        return deadline != 0 && System.currentTimeMillis() > deadline;
+    }
+
+    private void checkDeadline() {
+        if (isOverDeadline()) {
+            throw new AnalysisTimeoutException("Analysis took longer than --" + OptionsImpl.METHOD_TIMEOUT.getName() + " allows");
+        }
     }
 
     /*
@@ -250,6 +335,7 @@ public class CodeAnalyser {
      * passIdx is only useful for breakpointing.
      */
     private AnalysisResult getAnalysisInner(List<Op01WithProcessedDataAndByteJumps> instrs, DCCommonState dcCommonState, Options options, BytecodeMeta bytecodeMeta, int passIdx) {
+        metrics.begin(AnalysisMetrics.Phase.OP02);
 
         boolean willSort = options.getOption(OptionsImpl.FORCE_TOPSORT) == Troolean.TRUE;
 
@@ -301,6 +387,7 @@ public class CodeAnalyser {
         }
 
 
+        checkDeadline();
         BlockIdentifierFactory blockIdentifierFactory = new BlockIdentifierFactory();
 
         // These are 'processed' exceptions, which we can use to lay out code.
@@ -358,6 +445,8 @@ public class CodeAnalyser {
         }
 
 
+        checkDeadline();
+        metrics.begin(AnalysisMetrics.Phase.STACK);
         // Populate stack info (each instruction gets references to stack objects
         // consumed / produced.
         // This is the point at which we combine temporaries from merging
@@ -386,8 +475,11 @@ public class CodeAnalyser {
 
 
         // Discover slot re-use, infer invisible constructor parameters, etc.
+        metrics.begin(AnalysisMetrics.Phase.LIVENESS);
         Op02WithProcessedDataAndRefs.discoverStorageLiveness(method, comments, op2list, bytecodeMeta);
 
+        checkDeadline();
+        metrics.begin(AnalysisMetrics.Phase.OP03);
         // Create a non final version...
         final VariableFactory variableFactory = new VariableFactory(method);
 
@@ -418,12 +510,16 @@ public class CodeAnalyser {
 
         Op03Rewriters.nopIsolatedStackValues(op03SimpleParseNodes);
 
+        checkDeadline();
+        metrics.begin(AnalysisMetrics.Phase.SSA);
         Op03SimpleStatement.assignSSAIdentifiers(method, op03SimpleParseNodes);
+        metrics.begin(AnalysisMetrics.Phase.OP03_REWRITE);
 
         // Condense pointless assignments
         LValueProp.condenseLValues(op03SimpleParseNodes);
         op03SimpleParseNodes = Cleaner.sortAndRenumber(op03SimpleParseNodes);
 
+        checkDeadline();
         // Before we expand raw switches, try to spot a particularly nasty pattern that kotlin
         // generates for string switches.
         op03SimpleParseNodes = KotlinSwitchHandler.extractStringSwitches(op03SimpleParseNodes, bytecodeMeta);
@@ -458,6 +554,7 @@ public class CodeAnalyser {
          */
 
 
+        checkDeadline();
         Op03Rewriters.condenseConstruction(dcCommonState, method, op03SimpleParseNodes, anonymousClassUsage);
         LValueProp.condenseLValues(op03SimpleParseNodes);
         Op03Rewriters.condenseLValueChain1(op03SimpleParseNodes);
@@ -475,6 +572,7 @@ public class CodeAnalyser {
          * See if try blocks can be extended with simple returns here.  This is an extra pass, because we might have
          * missed backjumps from catches earlier.
          */
+        checkDeadline();
         Op03Rewriters.extendTryBlocks(dcCommonState, op03SimpleParseNodes);
         Op03Rewriters.combineTryCatchEnds(op03SimpleParseNodes);
 
@@ -513,7 +611,10 @@ public class CodeAnalyser {
 
             op03SimpleParseNodes = Cleaner.removeUnreachableCode(op03SimpleParseNodes, false);
 
+            checkDeadline();
+            metrics.begin(AnalysisMetrics.Phase.TOPSORT);
             op03SimpleParseNodes = Op03Blocks.topologicalSort(op03SimpleParseNodes, comments, options);
+            metrics.begin(AnalysisMetrics.Phase.OP03_REWRITE);
             Op03Rewriters.removePointlessJumps(op03SimpleParseNodes);
 
             /*
@@ -545,6 +646,7 @@ public class CodeAnalyser {
 
         boolean reloop;
         do {
+            checkDeadline();
             Op03Rewriters.rewriteNegativeJumps(op03SimpleParseNodes, true);
 
             Op03Rewriters.collapseAssignmentsIntoConditionals(op03SimpleParseNodes, options);
@@ -591,6 +693,7 @@ public class CodeAnalyser {
             Op03Rewriters.eclipseLoopPass(op03SimpleParseNodes);
         }
 
+        checkDeadline();
         // Identify simple while loops.
         op03SimpleParseNodes = Cleaner.removeUnreachableCode(op03SimpleParseNodes, true);
         LoopIdentifier.identifyLoops1(method, op03SimpleParseNodes, blockIdentifierFactory);
@@ -630,6 +733,7 @@ public class CodeAnalyser {
         Op03Rewriters.extractAssertionJumps(op03SimpleParseNodes);
         op03SimpleParseNodes = Cleaner.removeUnreachableCode(op03SimpleParseNodes, true);
 
+        checkDeadline();
         // Identify simple (nested) conditionals - note that this also generates ternary expressions,
         // if the conditional is simple enough.
         ConditionalRewriter.identifyNonjumpingConditionals(op03SimpleParseNodes, blockIdentifierFactory);
@@ -680,6 +784,7 @@ public class CodeAnalyser {
             checkLoopTypeClash = true;
         }
 
+        checkDeadline();
         SynchronizedBlocks.findSynchronizedBlocks(op03SimpleParseNodes);
 
         Op03SimpleStatement.removePointlessSwitchDefaults(op03SimpleParseNodes);
@@ -748,6 +853,8 @@ public class CodeAnalyser {
         Op03Rewriters.rewriteWith(op03SimpleParseNodes, new BadNarrowingArgRewriter());
         Cleaner.reindexInPlace(op03SimpleParseNodes);
 
+        checkDeadline();
+        metrics.begin(AnalysisMetrics.Phase.OP04);
         Op04StructuredStatement block = Op03SimpleStatement.createInitialStructuredBlock(op03SimpleParseNodes);
 
         Op04StructuredStatement.tidyEmptyCatch(block);
@@ -771,6 +878,7 @@ public class CodeAnalyser {
          * If we can't fully structure the code, we bow out here.
          */
 
+        checkDeadline();
         if (!block.isFullyStructured()) {
             comments.addComment(DecompilerComment.UNABLE_TO_STRUCTURE);
         } else {
@@ -805,6 +913,7 @@ public class CodeAnalyser {
                 Op04StructuredStatement.switchExpression(block, comments, classFileVersion);
             }
 
+            checkDeadline();
             Op04StructuredStatement.rewriteLambdas(dcCommonState, method, block);
             // Now lambdas have been rewritten, reprocess ONLY to insert local class
             // definitions.
@@ -828,6 +937,7 @@ public class CodeAnalyser {
             // Or narrowing casts which are no longer needed because boxed assignments allow them.
             Op04StructuredStatement.rewriteNarrowingAssignments(options, method, block);
 
+            checkDeadline();
             // Tidy variable names
             Op04StructuredStatement.tidyVariableNames(method, block, bytecodeMeta, comments, cp.getClassCache());
 
@@ -863,7 +973,7 @@ public class CodeAnalyser {
         analysed.dump(d);
     }
 
-    public void releaseCode() {
+    public synchronized void releaseCode() {
         analysed = null;
     }
 }
@@ -324,23 +324,18 @@ public class CodeAnalyserWholeClass {
          * This is a bit of a hack - we may be referring to a classfile field from a partially analysed
          * class.  So replace the local one with the field variable one.
          */
-        try {
-            ClassFileField localClassFileField = classFile.getFieldByName(originalName, fieldType);
+        ClassFileField localClassFileField = classFile.getFieldByNameOrNull(originalName, fieldType);
+        if (localClassFileField != null) {
             localClassFileField.overrideName(explicitName);
             localClassFileField.markSyntheticOuterRef();
-        } catch (NoSuchFieldException ignore) {
         }
         classFile.getClassType().getInnerClassHereInfo().setHideSyntheticThis();
     }
 
     private static Method getStaticConstructor(ClassFile classFile) {
-        Method staticInit;
-        try {
-            staticInit = classFile.getMethodByName(MiscConstants.STATIC_INIT_METHOD).get(0);
-        } catch (NoSuchMethodException e) {
-            return null;
-        }
-        return staticInit;
+        List<Method> staticInit = classFile.getMethodsByNameOrNull(MiscConstants.STATIC_INIT_METHOD);
+        if (staticInit == null) return null;
+        return staticInit.get(0);
     }
 
     /* As much as possible, lift code from a <clinit> method into the declarations.
@@ -420,11 +415,7 @@ public class CodeAnalyserWholeClass {
             }
             if (currClass.isInnerClass()) {
                 JavaTypeInstance parent = currClass.getClassType().getInnerClassHereInfo().getOuterClass();
-                try {
-                    currClass = state.getClassFile(parent);
-                } catch (Exception ignore) {
-                    currClass = null;
-                }
+                currClass = state.getClassFileOrNull(parent);
                 local = false;
             } else {
                 break;
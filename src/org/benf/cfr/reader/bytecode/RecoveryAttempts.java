@@ -0,0 +1,39 @@
+package org.benf.cfr.reader.bytecode;
+
+import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
+import org.benf.cfr.reader.util.DecompilerComment;
+import org.benf.cfr.reader.util.collections.MapFactory;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The recovery passes tried on one method.
+ *
+ * Options which can't help a method aren't applied, so different recovery passes can end up identical (eg
+ * recoverExAgg is just recover0 if there are no exceptions).  There's no point re-running those - and for a
+ * method which defeats every pass, each one is expensive.  So results are kept by what was applied (see
+ * RecoveryOptions.Applied.getKey), and an identical pass gets the earlier result.
+ */
+class RecoveryAttempts {
+    interface Analysis {
+        AnalysisResult analyse(int passIdx, RecoveryOptions.Applied applied);
+    }
+
+    private final Map<Pair<Map<String, String>, List<DecompilerComment>>, AnalysisResult> attempted = MapFactory.newMap();
+    private final Analysis analysis;
+
+    RecoveryAttempts(Analysis analysis) {
+        this.analysis = analysis;
+    }
+
+    AnalysisResult get(int passIdx, RecoveryOptions.Applied applied) {
+        Pair<Map<String, String>, List<DecompilerComment>> key = applied.getKey();
+        AnalysisResult res = attempted.get(key);
+        if (res == null) {
+            res = analysis.analyse(passIdx, applied);
+            attempted.put(key, res);
+        }
+        return res;
+    }
+}
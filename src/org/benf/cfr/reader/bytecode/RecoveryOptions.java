@@ -1,5 +1,6 @@
 package org.benf.cfr.reader.bytecode;
 
+import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
 import org.benf.cfr.reader.state.DCCommonState;
 import org.benf.cfr.reader.util.DecompilerComment;
 import org.benf.cfr.reader.util.collections.ListFactory;
@@ -7,6 +8,7 @@ import org.benf.cfr.reader.util.getopt.MutableOptions;
 import org.benf.cfr.reader.util.getopt.Options;
 
 import java.util.List;
+import java.util.Map;
 
 public class RecoveryOptions {
     private final List<RecoveryOption<?>> recoveryOptions;
@@ -23,15 +25,27 @@ public class RecoveryOptions {
     }
 
     public static class Applied {
-        public Options options;
+        public MutableOptions options;
         public List<DecompilerComment> comments;
         public boolean valid;
 
-        public Applied(Options options, List<DecompilerComment> comments, boolean valid) {
+        public Applied(MutableOptions options, List<DecompilerComment> comments, boolean valid) {
             this.options = options;
             this.comments = comments;
             this.valid = valid;
         }
+
+        /*
+         * Analysis depends only on the options and comments, so two applications with equal keys
+         * will get the same result.
+         *
+         * NB: DecompilerComment doesn't define equals, so comments are compared by identity.  That's enough -
+         * recovery options only apply the shared constants in DecompilerComment.  (If one didn't, identical
+         * passes would stop being recognised - no pass would be mistaken for another).
+         */
+        public Pair<Map<String, String>, List<DecompilerComment>> getKey() {
+            return Pair.make(options.getOverrides(), comments);
+        }
     }
 
     public Applied apply(DCCommonState commonState, Options originalOptions, BytecodeMeta bytecodeMeta) {
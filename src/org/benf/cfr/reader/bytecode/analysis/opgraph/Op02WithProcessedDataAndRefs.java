@@ -485,12 +485,7 @@ public class Op02WithProcessedDataAndRefs implements Dumpable, Graph<Op02WithPro
 
     private JavaTypeInstance determineDynamicGeneric(final JavaTypeInstance callsiteReturn, MethodPrototype proto, Expression instantiated, DCCommonState dcCommonState) {
 
-        ClassFile classFile = null;
-        try {
-            classFile = dcCommonState.getClassFile(proto.getReturnType());
-        } catch (CannotLoadClassException ignore) {
-            // ignore.
-        }
+        ClassFile classFile = dcCommonState.getClassFileOrNull(proto.getReturnType());
         if (classFile == null) return callsiteReturn;
 
         // Note - we need to examine the methods, but NOT look at their code.
@@ -110,12 +110,8 @@ public class AssertRewriter {
         public void collectStatement(String name, StructuredStatement statement) {
             StaticVariable staticVariable = wcm.getStaticVariable("assertbool").getMatch();
 
-            ClassFileField field;
-            try {
-                field = classFile.getFieldByName(staticVariable.getFieldName(), staticVariable.getInferredJavaType().getJavaTypeInstance());
-            } catch (NoSuchFieldException e) {
-                return;
-            }
+            ClassFileField field = classFile.getFieldByNameOrNull(staticVariable.getFieldName(), staticVariable.getInferredJavaType().getJavaTypeInstance());
+            if (field == null) return;
             if (!field.getField().testAccessFlag(AccessFlag.ACC_SYNTHETIC)) return;
             assertField = field;
             statement.getContainer().nopOut();
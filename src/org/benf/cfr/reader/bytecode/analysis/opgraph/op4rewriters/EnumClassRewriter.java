@@ -88,13 +88,10 @@ public class EnumClassRewriter {
         // Nop out this code from the static initialiser.  There MAY be code left, if the enum
         // actually HAD a static initialiser!
 
-        Method staticInit;
-        try {
-            staticInit = classFile.getMethodByName(MiscConstants.STATIC_INIT_METHOD).get(0);
-        } catch (NoSuchMethodException e) {
-            // Should have a static constructor.
-            return false;
-        }
+        List<Method> staticInits = classFile.getMethodsByNameOrNull(MiscConstants.STATIC_INIT_METHOD);
+        // Should have a static constructor.
+        if (staticInits == null) return false;
+        Method staticInit = staticInits.get(0);
 
         Op04StructuredStatement staticInitCode = staticInit.getAnalysis();
         if (!staticInitCode.isFullyStructured()) return false;
@@ -104,14 +101,11 @@ public class EnumClassRewriter {
         /*
          * Need to hide all the fields, the 'static values' and 'static valueOf' method.
          */
-        Method valueOf;
-        Method values;
-        try {
-            valueOf = classFile.getMethodByName("valueOf").get(0);
-            values = classFile.getMethodByName("values").get(0);
-        } catch (NoSuchMethodException e) {
-            return false;
-        }
+        List<Method> valueOfMethods = classFile.getMethodsByNameOrNull("valueOf");
+        List<Method> valuesMethods = classFile.getMethodsByNameOrNull("values");
+        if (valueOfMethods == null || valuesMethods == null) return false;
+        Method valueOf = valueOfMethods.get(0);
+        Method values = valuesMethods.get(0);
         valueOf.hideSynthetic();
         values.hideSynthetic();
         for (ClassFileField field : initMatchCollector.getMatchedHideTheseFields()) {
@@ -345,15 +339,11 @@ public class EnumClassRewriter {
                 return false;
             }
             StaticVariable valuesArrayStatic = (StaticVariable) valuesArray;
-            try {
-                ClassFileField valuesField = classFile.getFieldByName(valuesArrayStatic.getFieldName(), valuesArrayStatic.getInferredJavaType().getJavaTypeInstance());
-                if (!valuesField.getField().testAccessFlag(AccessFlag.ACC_STATIC)) {
-                    return false;
-                }
-                matchedHideTheseFields.add(valuesField);
-            } catch (NoSuchFieldException e) {
+            ClassFileField valuesField = classFile.getFieldByNameOrNull(valuesArrayStatic.getFieldName(), valuesArrayStatic.getInferredJavaType().getJavaTypeInstance());
+            if (valuesField == null || !valuesField.getField().testAccessFlag(AccessFlag.ACC_STATIC)) {
                 return false;
             }
+            matchedHideTheseFields.add(valuesField);
             return true;
         }
 
@@ -45,9 +45,9 @@ public class InnerClassConstructorRewriter implements Op04Rewriter {
             if (m.match(mi, collector)) {
                 LValue lValue = wcm1.getLValueWildCard("outercopy").getMatch();
                 if (lValue instanceof FieldVariable) {
-                    try {
-                        FieldVariable fieldVariable = (FieldVariable)lValue;
-                        ClassFileField classField = classFile.getFieldByName(fieldVariable.getRawFieldName(), fieldVariable.getInferredJavaType().getJavaTypeInstance());
+                    FieldVariable fieldVariable = (FieldVariable)lValue;
+                    ClassFileField classField = classFile.getFieldByNameOrNull(fieldVariable.getRawFieldName(), fieldVariable.getInferredJavaType().getJavaTypeInstance());
+                    if (classField != null) {
                         Field field = classField.getField();
                         // Don't continue if it's not final + synthetic?
                         // it's a bad match, so we don't want to try for a later one.
@@ -55,7 +55,6 @@ public class InnerClassConstructorRewriter implements Op04Rewriter {
                             assignmentStatement = collector.assignmentStatement;
                             matchedField = (FieldVariable) lValue;
                         }
-                    } catch (NoSuchFieldException ignore) {
                     }
                 }
                 return;
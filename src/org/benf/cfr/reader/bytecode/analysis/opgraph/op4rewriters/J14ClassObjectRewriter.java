@@ -150,11 +150,8 @@ public class J14ClassObjectRewriter {
         }
 
         for (Pair<String, JavaTypeInstance> hideThis : hideThese) {
-            try {
-                ClassFileField fileField = classFile.getFieldByName(hideThis.getFirst(), hideThis.getSecond());
-                fileField.markHidden();
-            } catch (NoSuchFieldException ignore) {
-            }
+            ClassFileField fileField = classFile.getFieldByNameOrNull(hideThis.getFirst(), hideThis.getSecond());
+            if (fileField != null) fileField.markHidden();
         }
     }
 
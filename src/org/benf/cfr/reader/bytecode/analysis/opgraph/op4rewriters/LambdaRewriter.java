@@ -183,11 +183,8 @@ public class LambdaRewriter implements Op04Rewriter, ExpressionRewriter {
         if (this.typeInstance.equals(lambdaTypeRefLocation)) {
             classFile = thisClassFile;
         } else {
-            try {
-                classFile = state.getClassFile(lambdaTypeRefLocation);
-            } catch (CannotLoadClassException ignore) {
-                // We can't load the lambda target - we can't really make any assumptions about what it will do.
-            }
+            // If we can't load the lambda target, we can't really make any assumptions about what it will do.
+            classFile = state.getClassFileOrNull(lambdaTypeRefLocation);
         }
 
         // We can't ask the prototype for instance behaviour, we have to get it from the
@@ -216,10 +213,8 @@ public class LambdaRewriter implements Op04Rewriter, ExpressionRewriter {
         /* Now, we can call the synthetic function directly and emit it, or we could inline the synthetic, and no
          * longer emit it.
          */
-        Method lambdaMethod;
-        try {
-            lambdaMethod = classFile.getMethodByPrototype(lambdaFn);
-        } catch (NoSuchMethodException ignore) {
+        Method lambdaMethod = classFile.getMethodByPrototypeOrNull(lambdaFn);
+        if (lambdaMethod == null) {
             // This might happen if you're using a JRE which doesn't have support classes, etc.
             return dynamicExpression;
         }
@@ -65,12 +65,8 @@ public class StaticLifter {
         LValue lValue = assignment.getLvalue();
         if (!(lValue instanceof StaticVariable)) return false;
         StaticVariable fieldVariable = (StaticVariable) lValue;
-        ClassFileField field;
-        try {
-            field = classFile.getFieldByName(fieldVariable.getFieldName(), fieldVariable.getInferredJavaType().getJavaTypeInstance());
-        } catch (NoSuchFieldException e) {
-            return false;
-        }
+        ClassFileField field = classFile.getFieldByNameOrNull(fieldVariable.getFieldName(), fieldVariable.getInferredJavaType().getJavaTypeInstance());
+        if (field == null) return false;
         if (classFileFields.isEmpty()) return false;
         if (field != classFileFields.getFirst()) return false;
         classFileFields.removeFirst();
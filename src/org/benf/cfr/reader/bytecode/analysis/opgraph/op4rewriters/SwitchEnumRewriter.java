@@ -23,7 +23,6 @@ import org.benf.cfr.reader.bytecode.analysis.types.RawJavaType;
 import org.benf.cfr.reader.bytecode.analysis.types.discovery.InferredJavaType;
 import org.benf.cfr.reader.entities.*;
 import org.benf.cfr.reader.state.DCCommonState;
-import org.benf.cfr.reader.util.CannotLoadClassException;
 import org.benf.cfr.reader.util.ClassFileVersion;
 import org.benf.cfr.reader.util.collections.Functional;
 import org.benf.cfr.reader.util.collections.ListFactory;
@@ -162,15 +161,12 @@ public class SwitchEnumRewriter implements Op04Rewriter {
             return;
         }
         Method meth = null;
-        try {
-            List<Method> methods = this.classFile.getMethodByName(lookupFn.getName());
-            if (methods.size() == 1) {
-                meth = methods.get(0);
-                if (!meth.getMethodPrototype().getArgs().isEmpty()) {
-                    meth = null;
-                }
+        List<Method> methods = this.classFile.getMethodsByNameOrNull(lookupFn.getName());
+        if (methods != null && methods.size() == 1) {
+            meth = methods.get(0);
+            if (!meth.getMethodPrototype().getArgs().isEmpty()) {
+                meth = null;
             }
-        } catch (NoSuchMethodException ignore) {
         }
         if (meth == null) {
             return;
@@ -311,28 +307,20 @@ public class SwitchEnumRewriter implements Op04Rewriter {
          * So here's the tricky bit - we now have to load (cached?) clazz, and find out if
          * varName was initialised like a lookup table....
          */
-        ClassFile enumLutClass;
-        try {
-            enumLutClass = dcCommonState.getClassFile(classInfo);
-        } catch (CannotLoadClassException e) {
+        ClassFile enumLutClass = dcCommonState.getClassFileOrNull(classInfo);
+        if (enumLutClass == null) {
             // Oh dear, can't load that class.  Proceed without it.
             return;
         }
-        Field lut;
-        try {
-            lut = enumLutClass.getFieldByName(varName, staticLookupTable.getInferredJavaType().getJavaTypeInstance()).getField();
-        } catch (NoSuchFieldException e) {
-            return;
-        }
+        ClassFileField lutField = enumLutClass.getFieldByNameOrNull(varName, staticLookupTable.getInferredJavaType().getJavaTypeInstance());
+        if (lutField == null) return;
+        Field lut = lutField.getField();
         JavaTypeInstance fieldType = lut.getJavaTypeInstance();
         if (!fieldType.equals(expectedLUTType)) return;
 
-        Method lutStaticInit;
-        try {
-            lutStaticInit = enumLutClass.getMethodByName("<clinit>").get(0);
-        } catch (NoSuchMethodException e) {
-            return;
-        }
+        List<Method> lutStaticInits = enumLutClass.getMethodsByNameOrNull("<clinit>");
+        if (lutStaticInits == null) return;
+        Method lutStaticInit = lutStaticInits.get(0);
         List<StructuredStatement> structuredStatements = getLookupMethodStatements(lutStaticInit);
         if (structuredStatements == null) return;
 
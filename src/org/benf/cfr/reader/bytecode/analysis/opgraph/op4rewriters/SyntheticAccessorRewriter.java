@@ -150,10 +150,8 @@ public class SyntheticAccessorRewriter extends AbstractExpressionRewriter implem
          *
          * Either way, the accessor method SHOULD be a static synthetic.
          */
-        Method otherMethod;
-        try {
-            otherMethod = otherClass.getMethodByPrototype(otherPrototype);
-        } catch (NoSuchMethodException e) {
+        Method otherMethod = otherClass.getMethodByPrototypeOrNull(otherPrototype);
+        if (otherMethod == null) {
             // Ignore and return.
             return null;
         }
@@ -11,7 +11,6 @@ import org.benf.cfr.reader.entities.*;
 import org.benf.cfr.reader.entities.classfilehelpers.ClassFileDumperAnonymousInner;
 import org.benf.cfr.reader.entities.constantpool.ConstantPool;
 import org.benf.cfr.reader.state.DCCommonState;
-import org.benf.cfr.reader.util.CannotLoadClassException;
 import org.benf.cfr.reader.util.output.Dumper;
 
 import java.util.List;
@@ -31,15 +30,10 @@ public class ConstructorInvokationAnonymousInner extends AbstractConstructorInvo
          * As much as I'd rather not tie this to its use, we have to make sure that the target variables etc
          * are available at the time of usage, so we can hide anonymous inner member clones.
          */
-        ClassFile classFile = null;
-        try {
-            classFile = dcCommonState.getClassFile(
-                    constructorInvokation.getMethodPrototype().getReturnType().getDeGenerifiedType()
-            );
-        } catch (CannotLoadClassException e) {
-            // Can't find class - live with it.
-        }
-        this.classFile = classFile;
+        // If we can't find the class, live with it.
+        this.classFile = dcCommonState.getClassFileOrNull(
+                constructorInvokation.getMethodPrototype().getReturnType().getDeGenerifiedType()
+        );
     }
 
     private ConstructorInvokationAnonymousInner(ConstructorInvokationAnonymousInner other, CloneHelper cloneHelper) {
@@ -80,10 +74,8 @@ public class ConstructorInvokationAnonymousInner extends AbstractConstructorInvo
     private MethodPrototype improveMethodPrototype(Dumper d) {
         ConstantPool cp = constructorInvokation.getCp();
 
-        ClassFile anonymousClassFile;
-        try {
-            anonymousClassFile = cp.getDCCommonState().getClassFile(anonymousTypeInstance);
-        } catch (CannotLoadClassException e) {
+        ClassFile anonymousClassFile = cp.getDCCommonState().getClassFileOrNull(anonymousTypeInstance);
+        if (anonymousClassFile == null) {
             anonymousClassFile = classFile;
         }
         if (anonymousClassFile != classFile) {
@@ -92,10 +84,8 @@ public class ConstructorInvokationAnonymousInner extends AbstractConstructorInvo
 
         d.keyword("new ");
         MethodPrototype prototype = this.constructorInvokation.getMethodPrototype();
-        try {
-            if (classFile != null) prototype = classFile.getMethodByPrototype(prototype).getMethodPrototype();
-        } catch (NoSuchMethodException ignore) {
-        }
+        Method method = classFile == null ? null : classFile.getMethodByPrototypeOrNull(prototype);
+        if (method != null) prototype = method.getMethodPrototype();
         return prototype;
     }
 
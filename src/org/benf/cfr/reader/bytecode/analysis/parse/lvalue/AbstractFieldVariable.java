@@ -15,7 +15,6 @@ import org.benf.cfr.reader.entities.Field;
 import org.benf.cfr.reader.entities.constantpool.ConstantPoolEntry;
 import org.benf.cfr.reader.entities.constantpool.ConstantPoolEntryFieldRef;
 import org.benf.cfr.reader.state.TypeUsageCollector;
-import org.benf.cfr.reader.util.CannotLoadClassException;
 import org.benf.cfr.reader.util.ConfusedCFRException;
 
 public abstract class AbstractFieldVariable extends AbstractLValue {
@@ -128,31 +127,21 @@ public abstract class AbstractFieldVariable extends AbstractLValue {
     public static ClassFileField getField(ConstantPoolEntryFieldRef fieldRef) {
         String name = fieldRef.getLocalName();
         JavaRefTypeInstance ref = (JavaRefTypeInstance) fieldRef.getClassEntry().getTypeInstance();
-        try {
-            ClassFile classFile = ref.getClassFile();
-            if (classFile == null) return null;
-
-            ClassFileField field = classFile.getFieldByName(name, fieldRef.getJavaTypeInstance());
-            return field;
-        } catch (NoSuchFieldException ignore) {
-        } catch (CannotLoadClassException ignore) {
-        }
-        return null;
+        ClassFile classFile = ref.getClassFile();
+        if (classFile == null) return null;
+        return classFile.getFieldByNameOrNull(name, fieldRef.getJavaTypeInstance());
     }
 
 
     private static InferredJavaType getFieldType(ConstantPoolEntryFieldRef fieldRef) {
         String name = fieldRef.getLocalName();
         JavaRefTypeInstance ref = (JavaRefTypeInstance) fieldRef.getClassEntry().getTypeInstance();
-        try {
-            ClassFile classFile = ref.getClassFile();
-            if (classFile != null) {
-                // this now seems rather pointless, as it's passing the type to GET the type!
-                Field field = classFile.getFieldByName(name, fieldRef.getJavaTypeInstance()).getField();
-                return new InferredJavaType(field.getJavaTypeInstance(), InferredJavaType.Source.FIELD, true);
-            }
-        } catch (CannotLoadClassException ignore) {
-        } catch (NoSuchFieldException ignore) {
+        ClassFile classFile = ref.getClassFile();
+        ClassFileField classFileField = classFile == null ? null : classFile.getFieldByNameOrNull(name, fieldRef.getJavaTypeInstance());
+        if (classFileField != null) {
+            // this now seems rather pointless, as it's passing the type to GET the type!
+            Field field = classFileField.getField();
+            return new InferredJavaType(field.getJavaTypeInstance(), InferredJavaType.Source.FIELD, true);
         }
         return new InferredJavaType(fieldRef.getJavaTypeInstance(), InferredJavaType.Source.FIELD, true);
     }
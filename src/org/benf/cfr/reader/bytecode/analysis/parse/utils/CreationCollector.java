@@ -20,7 +20,6 @@ import org.benf.cfr.reader.bytecode.analysis.types.discovery.InferredJavaType;
 import org.benf.cfr.reader.entities.ClassFile;
 import org.benf.cfr.reader.entities.Method;
 import org.benf.cfr.reader.state.DCCommonState;
-import org.benf.cfr.reader.util.CannotLoadClassException;
 import org.benf.cfr.reader.util.ClassFileVersion;
 import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.collections.MapFactory;
@@ -201,10 +200,9 @@ public class CreationCollector {
                     // TODO:  Feels like the concept of anonymousClassUsage and methodScopedClass
                     // can be run together in the method, NOT in the class.
                     method.markUsedLocalClassType(lValueType);
-                    try {
-                        ClassFile cls = dcCommonState.getClassFile(lValueType);
+                    ClassFile cls = dcCommonState.getClassFileOrNull(lValueType);
+                    if (cls != null) {
                         anonymousClassUsage.noteMethodClass(cls, cis);
-                    } catch (CannotLoadClassException ignore) {
                     }
                 }
             }
@@ -19,6 +19,11 @@ public interface InnerClassInfo {
 
     boolean isHideSyntheticThis();
 
+    /*
+     * Forget what analysis has decided about synthetics (when the analysed class is being discarded).
+     */
+    void clearSyntheticMarks();
+
     /*
      * I'd rather not have this in the interface, but at the point when we're creating the class, we only
      * know its name, not if it has a 'legit outer'.
@@ -89,5 +94,9 @@ public interface InnerClassInfo {
         public boolean isHideSyntheticThis() {
             return false;
         }
+
+        @Override
+        public void clearSyntheticMarks() {
+        }
     };
 }
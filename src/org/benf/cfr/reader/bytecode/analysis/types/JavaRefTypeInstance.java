@@ -284,6 +284,16 @@ public class JavaRefTypeInstance implements JavaTypeInstance {
         cachedBindingSupers = bindingSuperContainer;
     }
 
+    /*
+     * Our class file is being discarded - the supers will be recalculated from its replacement.
+     *
+     * (Unless they never came from a class file - the standard types' supers are fixed when they're built).
+     */
+    public void clearBindingSupers() {
+        if (dcCommonState == null) return;
+        cachedBindingSupers = BindingSuperContainer.POISON;
+    }
+
     @Override
     public BindingSuperContainer getBindingSupers() {
         if (cachedBindingSupers != BindingSuperContainer.POISON) return cachedBindingSupers;
@@ -425,12 +435,7 @@ public class JavaRefTypeInstance implements JavaTypeInstance {
 
     public ClassFile getClassFile() {
         if (dcCommonState == null) return null;
-        try {
-            ClassFile classFile = dcCommonState.getClassFile(this);
-            return classFile;
-        } catch (CannotLoadClassException e) {
-            return null;
-        }
+        return dcCommonState.getClassFileOrNull(this);
     }
 
     private static String getShortName(String fullClassName, InnerClassInfo innerClassInfo) {
@@ -535,5 +540,11 @@ public class JavaRefTypeInstance implements JavaTypeInstance {
         public boolean isHideSyntheticThis() {
             return hideSyntheticThis;
         }
+
+        @Override
+        public void clearSyntheticMarks() {
+            hideSyntheticThis = false;
+            hideSyntheticFriendClass = false;
+        }
     }
 }
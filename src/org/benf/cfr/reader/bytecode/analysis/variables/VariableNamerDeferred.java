@@ -0,0 +1,49 @@
+package org.benf.cfr.reader.bytecode.analysis.variables;
+
+import org.benf.cfr.reader.entities.attributes.AttributeCode;
+import org.benf.cfr.reader.entities.constantpool.ConstantPool;
+
+import java.util.List;
+
+/*
+ * Which namer we want depends on the local variable table, and finding that means decoding the
+ * code attribute's sub-attributes.  Most methods are never analysed (their class was only loaded so we could
+ * look at its members), so don't decide until something asks for a name.
+ */
+class VariableNamerDeferred implements VariableNamer {
+    private final AttributeCode codeAttribute;
+    private final ConstantPool cp;
+    private VariableNamer delegate;
+
+    VariableNamerDeferred(AttributeCode codeAttribute, ConstantPool cp) {
+        this.codeAttribute = codeAttribute;
+        this.cp = cp;
+    }
+
+    private synchronized VariableNamer getDelegate() {
+        if (delegate == null) {
+            delegate = VariableNamerFactory.getNamer(codeAttribute.getLocalVariableTable(), cp);
+        }
+        return delegate;
+    }
+
+    @Override
+    public NamedVariable getName(int originalRawOffset, Ident ident, long stackPosition) {
+        return getDelegate().getName(originalRawOffset, ident, stackPosition);
+    }
+
+    @Override
+    public List<NamedVariable> getNamedVariables() {
+        return getDelegate().getNamedVariables();
+    }
+
+    @Override
+    public void mutatingRenameUnClash(NamedVariable toRename) {
+        getDelegate().mutatingRenameUnClash(toRename);
+    }
+
+    @Override
+    public void forceName(Ident ident, long stackPosition, String name) {
+        getDelegate().forceName(ident, stackPosition, name);
+    }
+}
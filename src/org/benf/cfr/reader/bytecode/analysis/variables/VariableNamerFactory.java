@@ -1,5 +1,6 @@
 package org.benf.cfr.reader.bytecode.analysis.variables;
 
+import org.benf.cfr.reader.entities.attributes.AttributeCode;
 import org.benf.cfr.reader.entities.constantpool.ConstantPool;
 import org.benf.cfr.reader.entities.attributes.AttributeLocalVariableTable;
 
@@ -8,4 +9,8 @@ public class VariableNamerFactory {
         if (source == null) return new VariableNamerDefault();
         return new VariableNamerHinted(source.getLocalVariableEntryList(), cp);
     }
+
+    public static VariableNamer getDeferredNamer(AttributeCode codeAttribute, ConstantPool cp) {
+        return new VariableNamerDeferred(codeAttribute, cp);
+    }
 }
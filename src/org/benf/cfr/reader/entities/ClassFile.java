@@ -21,7 +21,6 @@ import org.benf.cfr.reader.bytecode.analysis.types.RawJavaType;
 import org.benf.cfr.reader.bytecode.analysis.types.TypeConstants;
 import org.benf.cfr.reader.bytecode.analysis.variables.VariableNamer;
 import org.benf.cfr.reader.bytecode.analysis.variables.VariableNamerDefault;
-import org.benf.cfr.reader.entities.attributes.Attribute;
 import org.benf.cfr.reader.entities.attributes.AttributeBootstrapMethods;
 import org.benf.cfr.reader.entities.attributes.AttributeEnclosingMethod;
 import org.benf.cfr.reader.entities.attributes.AttributeInnerClasses;
@@ -90,10 +89,10 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
     private final ConstantPool constantPool;
     private final Set<AccessFlag> accessFlags;
     private final List<ClassFileField> fields;
-    private Map<String, Map<JavaTypeInstance, ClassFileField>> fieldsByName; // Lazily populated if interrogated.
+    private volatile Map<String, Map<JavaTypeInstance, ClassFileField>> fieldsByName; // Lazily populated if interrogated.
 
     private final List<Method> methods;
-    private Map<String, List<Method>> methodsByName; // Lazily populated if interrogated.
+    private volatile Map<String, List<Method>> methodsByName; // Lazily populated if interrogated.
     private final boolean isInnerClass;
     private final Map<JavaTypeInstance, Pair<InnerClassAttributeInfo, ClassFile>> innerClassesByTypeInfo; // populated if analysed.
 
@@ -108,6 +107,10 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
     private DecompilerComments decompilerComments;
 
     private boolean begunAnalysis;
+    private boolean loadedInnerClasses;
+    private long lastUsedGeneration;
+    private final ByteData rawData; // Held by the constant pool and lazily decoded attributes anyway.
+    private final long rawByteLength;
 
     /*
      * If this class represents a generated structure (like a switch lookup table)
@@ -117,7 +120,7 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
      */
     private boolean hiddenInnerClass;
 
-    private BindingSuperContainer boundSuperClasses;
+    private volatile BindingSuperContainer boundSuperClasses;
 
     private ClassFileDumper dumpHelper;
 
@@ -211,13 +214,9 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         final long OFFSET_OF_ATTRIBUTES_COUNT = OFFSET_OF_METHODS + methodsLength;
         final long OFFSET_OF_ATTRIBUTES = OFFSET_OF_ATTRIBUTES_COUNT + 2;
         final int numAttributes = data.getU2At(OFFSET_OF_ATTRIBUTES_COUNT);
-        ArrayList<Attribute> tmpAttributes = new ArrayList<Attribute>();
-        tmpAttributes.ensureCapacity(numAttributes);
-        ContiguousEntityFactory.build(data.getOffsetData(OFFSET_OF_ATTRIBUTES), numAttributes, tmpAttributes,
-                AttributeFactory.getBuilder(constantPool, classFileVersion)
-        );
-
-        this.attributes = new AttributeMap(tmpAttributes);
+        this.attributes = AttributeFactory.buildMap(data.getOffsetData(OFFSET_OF_ATTRIBUTES), numAttributes, constantPool, classFileVersion);
+        this.rawByteLength = OFFSET_OF_ATTRIBUTES + attributes.getRawByteLength();
+        this.rawData = data;
         AccessFlag.applyAttributes(attributes, accessFlags);
         this.isInnerClass = testIsInnerClass(dcCommonState);
 
@@ -357,11 +356,8 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
      * and that's not caught by the whole class options.
      */
     private void elideScala() {
-        try {
-            ClassFileField f = getFieldByName(MiscConstants.SCALA_SERIAL_VERSION, RawJavaType.LONG);
-            f.markHidden();
-        } catch (Exception ignore) {
-        }
+        ClassFileField f = getFieldByNameOrNull(MiscConstants.SCALA_SERIAL_VERSION, RawJavaType.LONG);
+        if (f != null) f.markHidden();
         // If it's there.  Don't have a flag to hide attributes (should do, really).
         AttributeRuntimeVisibleAnnotations annotations = attributes.getByName(AttributeRuntimeVisibleAnnotations.ATTRIBUTE_NAME);
         if (annotations != null) {
@@ -492,12 +488,18 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
     }
 
     public ClassFileField getFieldByName(String name, JavaTypeInstance type) throws NoSuchFieldException {
+        ClassFileField field = getFieldByNameOrNull(name, type);
+        if (field == null) throw new NoSuchFieldException(name);
+        return field;
+    }
+
+    public ClassFileField getFieldByNameOrNull(String name, JavaTypeInstance type) {
         if (fieldsByName == null) {
             calculateFieldsByName();
         }
         Map<JavaTypeInstance, ClassFileField> fieldsByType = fieldsByName.get(name);
         if (fieldsByType == null || fieldsByType.isEmpty()) { // can't be empty, but....
-            throw new NoSuchFieldException(name);
+            return null;
         }
         ClassFileField field = fieldsByType.get(type);
         if (field == null) {
@@ -507,11 +509,12 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         return field;
     }
 
-    private void calculateFieldsByName() {
+    private synchronized void calculateFieldsByName() {
+        if (fieldsByName != null) return;
         Options options = constantPool.getDCCommonState().getOptions();
         boolean testIllegal = !options.getOption(OptionsImpl.RENAME_ILLEGAL_IDENTS);
         boolean illegal = false;
-        fieldsByName = MapFactory.newMap();
+        Map<String, Map<JavaTypeInstance, ClassFileField>> fieldsByName = MapFactory.newMap();
         if (testIllegal) {
             for (ClassFileField field : fields) {
                 String rawFieldName = field.getRawFieldName();
@@ -549,6 +552,7 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
                 }
             }
         }
+        this.fieldsByName = fieldsByName;
         if (warnAmbig) {
             addComment(DecompilerComment.RENAME_MEMBERS);
         }
@@ -648,7 +652,7 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         return methodMatch;
     }
 
-    private Method getAccessibleMethodByPrototype(final MethodPrototype prototype, GenericTypeBinder binder, JavaRefTypeInstance accessor) throws NoSuchMethodException {
+    private Method getAccessibleMethodByPrototypeOrNull(final MethodPrototype prototype, GenericTypeBinder binder, JavaRefTypeInstance accessor) {
         List<Method> named = getMethodsWithMatchingName(prototype);
         Method methodMatch = null;
         for (Method method : named) {
@@ -661,8 +665,7 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
                 }
             }
         }
-        if (methodMatch != null) return methodMatch;
-        throw new NoSuchMethodException();
+        return methodMatch;
     }
 
 
@@ -673,7 +676,9 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
     }
 
     public List<Method> getMethodsByNameOrNull(String name) {
+        Map<String, List<Method>> methodsByName = this.methodsByName;
         if (methodsByName == null) {
+            // Build fully before publishing, as other analysis threads may be asking too.
             methodsByName = MapFactory.newMap();
             for (Method method : methods) {
                 List<Method> list = methodsByName.get(method.getName());
@@ -683,6 +688,7 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
                 }
                 list.add(method);
             }
+            this.methodsByName = methodsByName;
         }
         return methodsByName.get(name);
     }
@@ -745,14 +751,8 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
 
         MethodPrototype basePrototype = ConstantPoolUtils.parseJavaMethodPrototype(state,null, containing, name, /* interfaceMethod */ false, Method.MethodConstructor.NOT, descriptor, constantPool, false /* we can't tell */, false, fakeNamer);
 
-        try {
-            Method m = containingClassFile.getMethodByPrototype(basePrototype);
-            if (m.getAccessFlags().contains(AccessFlagMethod.ACC_STATIC)) {
-                return true;
-            }
-        } catch (NoSuchMethodException ignore) {
-        }
-        return false;
+        Method m = containingClassFile.getMethodByPrototypeOrNull(basePrototype);
+        return m != null && m.getAccessFlags().contains(AccessFlagMethod.ACC_STATIC);
     }
 
     private boolean testIsInnerClass(DCCommonState dcCommonState) {
@@ -769,6 +769,9 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
 
     // just after construction
     public void loadInnerClasses(DCCommonState dcCommonState) {
+        synchronized (this) {
+            loadedInnerClasses = true;
+        }
         List<InnerClassAttributeInfo> innerClassAttributeInfoList = getInnerClassAttributeInfos(dcCommonState);
         if (innerClassAttributeInfoList == null) return;
 
@@ -801,7 +804,8 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
             /* If we're loading inner classes, then we definitely want to recursively apply that
              */
             try {
-                ClassFile innerClass = dcCommonState.getClassFile(innerType);
+                ClassFile innerClass = dcCommonState.getClassFileOrNull(innerType);
+                if (innerClass == null) continue;
                 innerClass.loadInnerClasses(dcCommonState);
                 // This is a fallback mechanism incase the access flags above aren't working - do we need it?
 //                markInnerClassAsStatic(options, innerClass, thisType);
@@ -813,6 +817,19 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         }
     }
 
+    /*
+     * Inner classes found by loadInnerClasses, recursively - i.e. everything which is dumped along with this class.
+     */
+    public List<ClassFile> getLoadedInnerClasses() {
+        List<ClassFile> res = ListFactory.newList();
+        for (Pair<InnerClassAttributeInfo, ClassFile> pair : innerClassesByTypeInfo.values()) {
+            ClassFile innerClass = pair.getSecond();
+            res.add(innerClass);
+            res.addAll(innerClass.getLoadedInnerClasses());
+        }
+        return res;
+    }
+
     private List<InnerClassAttributeInfo> getInnerClassAttributeInfos(DCCommonState state) {
         AttributeInnerClasses attributeInnerClasses = attributes.getByName(AttributeInnerClasses.ATTRIBUTE_NAME);
         List<InnerClassAttributeInfo> innerClassAttributeInfoList = attributeInnerClasses == null ? null : attributeInnerClasses.getInnerClassAttributeInfoList();
@@ -884,11 +901,7 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
             for (Map.Entry<JavaRefTypeInstance, JavaGenericRefTypeInstance> entry : boundSupers.entrySet()) {
                 JavaRefTypeInstance superC = entry.getKey();
                 if (superC.equals(getClassType())) continue;
-                ClassFile superClsFile = null;
-                try {
-                    superClsFile = superC.getClassFile();
-                } catch (CannotLoadClassException ignore) {
-                }
+                ClassFile superClsFile = superC.getClassFile();
                 if (superClsFile == null) continue;
                 if (superClsFile == this) continue; // shouldn't happen.
 
@@ -910,10 +923,7 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
                 for (Triplet<JavaRefTypeInstance, ClassFile, GenericTypeBinder> bindTester : bindTesters) {
                     ClassFile classFile = bindTester.getSecond();
                     GenericTypeBinder genericTypeBinder = bindTester.getThird();
-                    try {
-                        baseMethod = classFile.getAccessibleMethodByPrototype(prototype, genericTypeBinder, (JavaRefTypeInstance)getClassType().getDeGenerifiedType());
-                    } catch (NoSuchMethodException ignore) {
-                    }
+                    baseMethod = classFile.getAccessibleMethodByPrototypeOrNull(prototype, genericTypeBinder, (JavaRefTypeInstance)getClassType().getDeGenerifiedType());
                     if (baseMethod != null) break;
                 }
                 if (baseMethod != null) method.markOverride();
@@ -924,12 +934,50 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
     }
 
 
+    /*
+     * Whether this could be dropped and loaded again, without anyone being able to tell - nothing has changed it
+     * since it was loaded (apart from types it's marked).
+     */
+    public synchronized boolean isReloadable() {
+        return !(begunAnalysis || loadedInnerClasses);
+    }
+
+    /*
+     * See DCCommonState.trimClassFiles.
+     */
+    public synchronized long getLastUsedGeneration() {
+        return lastUsedGeneration;
+    }
+
+    public synchronized void noteUsed(long generation) {
+        if (generation > lastUsedGeneration) lastUsedGeneration = generation;
+    }
+
+    /*
+     * The length of the class file this was loaded from.
+     */
+    public long getRawByteLength() {
+        return rawByteLength;
+    }
+
+    /*
+     * The class file this was loaded from - a copy, without going back to where it came from.
+     */
+    public byte[] getRawBytes() {
+        return rawData.getBytesAt((int) rawByteLength, 0);
+    }
+
+    private synchronized boolean beginAnalysis() {
+        if (begunAnalysis) return false;
+        begunAnalysis = true;
+        return true;
+    }
+
     private void analyseMid(DCCommonState state) {
         Options options = state.getOptions();
-        if (this.begunAnalysis) {
+        if (!beginAnalysis()) {
             return;
         }
-        this.begunAnalysis = true;
         /*
          * Analyse inner classes first, so we know if they're static when we reference them
          * from the outer class.
@@ -1190,11 +1238,7 @@ public class ClassFile implements Dumpable, TypeUsageCollectable {
         /*
          * And recurse.
          */
-        ClassFile classFile = null;
-        try {
-            classFile = genericBase.getDeGenerifiedType().getClassFile();
-        } catch (CannotLoadClassException ignore) {
-        }
+        ClassFile classFile = genericBase.getDeGenerifiedType().getClassFile();
         if (classFile == null) {
             return;
         }
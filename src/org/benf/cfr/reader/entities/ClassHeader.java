@@ -0,0 +1,209 @@
+package org.benf.cfr.reader.entities;
+
+import org.benf.cfr.reader.entities.attributes.AttributeInnerClasses;
+import org.benf.cfr.reader.entities.constantpool.ConstantPool;
+import org.benf.cfr.reader.util.bytestream.ByteData;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.SetFactory;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * What we can learn about a class file by skimming it, without building a ClassFile - which parses every
+ * member, and registers every type the class mentions.
+ *
+ * Just enough to plan a jar: a class is inner if its own InnerClasses attribute lists it, which is the same
+ * test ClassFile.isInnerClass makes.  (If there's no such attribute, an obfuscation mapping may still make it
+ * inner - so "not inner" here means "not known to be inner".)
+ *
+ * If asked, we also note which classes this one could refer to - every class in the constant pool, and every
+ * class named by a descriptor or signature.  (Over generous - any string which looks like a descriptor counts).
+ */
+public class ClassHeader {
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final byte TAG_CLASS = 7;
+    private static final byte TAG_UTF8 = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final byte[] INNER_CLASSES = getAsciiBytes(AttributeInnerClasses.ATTRIBUTE_NAME);
+
+    private final boolean innerClass;
+    private final List<String> superClassNames;
+    private final Set<String> referencedClassNames;
+
+    private ClassHeader(boolean innerClass, List<String> superClassNames, Set<String> referencedClassNames) {
+        this.innerClass = innerClass;
+        this.superClassNames = superClassNames;
+        this.referencedClassNames = referencedClassNames;
+    }
+
+    public boolean isInnerClass() {
+        return innerClass;
+    }
+
+    /*
+     * Raw names (eg java/lang/Object) of the superclass and interfaces.
+     */
+    public List<String> getSuperClassNames() {
+        return superClassNames;
+    }
+
+    /*
+     * Raw names - empty unless references were asked for.
+     */
+    public Set<String> getReferencedClassNames() {
+        return referencedClassNames;
+    }
+
+    /*
+     * Null if this doesn't look like a class file we could read.
+     */
+    public static ClassHeader scanOrNull(ByteData data, boolean withReferences) {
+        try {
+            return scan(data, withReferences);
+        } catch (RuntimeException e) {
+            // Truncated, or the pool's nonsense - loading it properly will say why.
+            return null;
+        }
+    }
+
+    private static ClassHeader scan(ByteData data, boolean withReferences) {
+        if (data.getS4At(0) != MAGIC) return null;
+        int[] entryOffsets = new int[data.getU2At(8) - 1];
+        ByteData pool = data.getOffsetData(10);
+        long offset = 10 + ConstantPool.scanRaw(pool, entryOffsets);
+        int thisClass = data.getU2At(offset + 2);
+        List<String> superClassNames = ListFactory.newList();
+        addClassName(pool, entryOffsets, data.getU2At(offset + 4), superClassNames);
+        offset += 6;
+        int numInterfaces = data.getU2At(offset);
+        for (int x = 0; x < numInterfaces; ++x) {
+            addClassName(pool, entryOffsets, data.getU2At(offset + 2 + 2 * x), superClassNames);
+        }
+        offset += 2 + 2 * numInterfaces;
+        offset = skipMembers(data, offset); // fields
+        offset = skipMembers(data, offset); // methods
+
+        byte[] thisName = getClassNameOrNull(pool, entryOffsets, thisClass);
+        if (thisName == null) return null;
+        int numAttributes = data.getU2At(offset);
+        offset += 2;
+        boolean seenInnerClasses = false;
+        boolean innerClass = false;
+        for (int x = 0; x < numAttributes; ++x) {
+            int length = data.getS4At(offset + 2);
+            if (Arrays.equals(getUTF8OrNull(pool, entryOffsets, data.getU2At(offset)), INNER_CLASSES)) {
+                // If there's more than one, we can't be sure which is believed.
+                if (seenInnerClasses) return null;
+                seenInnerClasses = true;
+                innerClass = listsInner(data.getOffsetData(offset + 6), pool, entryOffsets, thisName);
+            }
+            offset += 6 + length;
+        }
+        Set<String> referencedClassNames = withReferences ? getReferencedClassNames(pool, entryOffsets) : Collections.<String>emptySet();
+        return new ClassHeader(innerClass, superClassNames, referencedClassNames);
+    }
+
+    private static void addClassName(ByteData pool, int[] entryOffsets, int index, Collection<String> names) {
+        byte[] name = getClassNameOrNull(pool, entryOffsets, index);
+        if (name != null) names.add(decode(name, 0, name.length));
+    }
+
+    private static Set<String> getReferencedClassNames(ByteData pool, int[] entryOffsets) {
+        Set<String> res = SetFactory.newSet();
+        for (int x = 0; x < entryOffsets.length; ++x) {
+            int offset = entryOffsets[x];
+            if (offset < 0) continue;
+            switch (pool.getS1At(offset)) {
+                case TAG_CLASS:
+                    addClassName(pool, entryOffsets, x + 1, res);
+                    break;
+                case TAG_UTF8:
+                    addDescriptorClassNames(pool.getBytesAt(pool.getU2At(offset + 1), offset + 3), res);
+                    break;
+            }
+        }
+        return res;
+    }
+
+    /*
+     * Ljava/util/List<Ljava/lang/String;>; names java/util/List and java/lang/String.  (A class entry for an
+     * array is a descriptor too - [Ljava/lang/String;).
+     */
+    private static void addDescriptorClassNames(byte[] utf8, Set<String> res) {
+        int start = -1;
+        for (int x = 0; x < utf8.length; ++x) {
+            byte b = utf8[x];
+            if (start == -1) {
+                if (b == 'L') start = x + 1;
+            } else if (b == ';' || b == '<') {
+                if (x > start) res.add(decode(utf8, start, x - start));
+                start = -1;
+            } else if (b == '(' || b == ')' || b == '>' || b == '.') {
+                start = -1;
+            }
+        }
+    }
+
+    private static String decode(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, UTF8);
+    }
+
+    private static byte[] getAsciiBytes(String s) {
+        byte[] res = new byte[s.length()];
+        for (int x = 0; x < res.length; ++x) {
+            res[x] = (byte) s.charAt(x);
+        }
+        return res;
+    }
+
+    private static boolean listsInner(ByteData raw, ByteData pool, int[] entryOffsets, byte[] thisName) {
+        int numberInnerClasses = raw.getU2At(0);
+        for (int x = 0; x < numberInnerClasses; ++x) {
+            int innerClassInfoIdx = raw.getU2At(2 + 8 * x);
+            if (innerClassInfoIdx == 0) continue;
+            if (Arrays.equals(getClassNameOrNull(pool, entryOffsets, innerClassInfoIdx), thisName)) return true;
+        }
+        return false;
+    }
+
+    /*
+     * Fields and methods have the same layout - flags, name, descriptor, then attributes.
+     */
+    private static long skipMembers(ByteData data, long offset) {
+        int count = data.getU2At(offset);
+        offset += 2;
+        for (int x = 0; x < count; ++x) {
+            int numAttributes = data.getU2At(offset + 6);
+            offset += 8;
+            for (int y = 0; y < numAttributes; ++y) {
+                offset += 6 + data.getS4At(offset + 2);
+            }
+        }
+        return offset;
+    }
+
+    private static byte[] getClassNameOrNull(ByteData pool, int[] entryOffsets, int index) {
+        int offset = getEntryOffset(entryOffsets, index);
+        if (offset < 0 || pool.getS1At(offset) != TAG_CLASS) return null;
+        return getUTF8OrNull(pool, entryOffsets, pool.getU2At(offset + 1));
+    }
+
+    /*
+     * The raw (modified UTF8) bytes - we only need to compare names, not decode them.
+     */
+    private static byte[] getUTF8OrNull(ByteData pool, int[] entryOffsets, int index) {
+        int offset = getEntryOffset(entryOffsets, index);
+        if (offset < 0 || pool.getS1At(offset) != TAG_UTF8) return null;
+        return pool.getBytesAt(pool.getU2At(offset + 1), offset + 3);
+    }
+
+    private static int getEntryOffset(int[] entryOffsets, int index) {
+        if (index < 1 || index > entryOffsets.length) return -1;
+        return entryOffsets[index - 1];
+    }
+}
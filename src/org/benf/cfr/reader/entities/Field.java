@@ -9,7 +9,6 @@ import org.benf.cfr.reader.entities.constantpool.ConstantPool;
 import org.benf.cfr.reader.entities.constantpool.ConstantPoolEntryUTF8;
 import org.benf.cfr.reader.entities.constantpool.ConstantPoolUtils;
 import org.benf.cfr.reader.entityfactories.AttributeFactory;
-import org.benf.cfr.reader.entityfactories.ContiguousEntityFactory;
 import org.benf.cfr.reader.state.TypeUsageCollector;
 import org.benf.cfr.reader.util.ClassFileVersion;
 import org.benf.cfr.reader.util.collections.CollectionUtils;
@@ -18,7 +17,6 @@ import org.benf.cfr.reader.util.TypeUsageCollectable;
 import org.benf.cfr.reader.util.bytestream.ByteData;
 import org.benf.cfr.reader.util.output.Dumper;
 
-import java.util.ArrayList;
 import java.util.Set;
 
 
@@ -47,12 +45,8 @@ public class Field implements KnowsRawSize, TypeUsageCollectable {
         this.cp = cp;
         this.accessFlags = AccessFlag.build(raw.getU2At(OFFSET_OF_ACCESS_FLAGS));
         int attributes_count = raw.getU2At(OFFSET_OF_ATTRIBUTES_COUNT);
-        ArrayList<Attribute> tmpAttributes = new ArrayList<Attribute>();
-        tmpAttributes.ensureCapacity(attributes_count);
-        long attributesLength = ContiguousEntityFactory.build(raw.getOffsetData(OFFSET_OF_ATTRIBUTES), attributes_count, tmpAttributes,
-                AttributeFactory.getBuilder(cp, classFileVersion));
-
-        this.attributes = new AttributeMap(tmpAttributes);
+        this.attributes = AttributeFactory.buildMap(raw.getOffsetData(OFFSET_OF_ATTRIBUTES), attributes_count, cp, classFileVersion);
+        long attributesLength = attributes.getRawByteLength();
         AccessFlag.applyAttributes(attributes, accessFlags);
         this.descriptorIndex = raw.getU2At(OFFSET_OF_DESCRIPTOR_INDEX);
         int nameIndex = raw.getU2At(OFFSET_OF_NAME_INDEX);
@@ -11,7 +11,6 @@ import org.benf.cfr.reader.entities.constantpool.ConstantPoolEntryClass;
 import org.benf.cfr.reader.entities.constantpool.ConstantPoolEntryUTF8;
 import org.benf.cfr.reader.entities.constantpool.ConstantPoolUtils;
 import org.benf.cfr.reader.entityfactories.AttributeFactory;
-import org.benf.cfr.reader.entityfactories.ContiguousEntityFactory;
 import org.benf.cfr.reader.state.DCCommonState;
 import org.benf.cfr.reader.state.LocalClassAwareTypeUsageInformation;
 import org.benf.cfr.reader.state.TypeUsageCollector;
@@ -102,12 +101,8 @@ public class Method implements KnowsRawSize, TypeUsageCollectable {
         String initialName = cp.getUTF8Entry(nameIndex).getValue();
 
         int numAttributes = raw.getU2At(OFFSET_OF_ATTRIBUTES_COUNT);
-        ArrayList<Attribute> tmpAttributes = new ArrayList<Attribute>();
-        tmpAttributes.ensureCapacity(numAttributes);
-        long attributesLength = ContiguousEntityFactory.build(raw.getOffsetData(OFFSET_OF_ATTRIBUTES), numAttributes, tmpAttributes,
-                AttributeFactory.getBuilder(cp, classFileVersion));
-
-        this.attributes = new AttributeMap(tmpAttributes);
+        this.attributes = AttributeFactory.buildMap(raw.getOffsetData(OFFSET_OF_ATTRIBUTES), numAttributes, cp, classFileVersion);
+        long attributesLength = attributes.getRawByteLength();
         AccessFlagMethod.applyAttributes(attributes, accessFlags);
         this.length = OFFSET_OF_ATTRIBUTES + attributesLength;
 
@@ -131,8 +126,9 @@ public class Method implements KnowsRawSize, TypeUsageCollectable {
             this.codeAttribute = null;
         } else {
             this.codeAttribute = codeAttribute;
-            AttributeLocalVariableTable variableTable = options.getOption(OptionsImpl.USE_NAME_TABLE) ? this.codeAttribute.getLocalVariableTable() : null;
-            this.variableNamer = VariableNamerFactory.getNamer(variableTable, cp);
+            this.variableNamer = options.getOption(OptionsImpl.USE_NAME_TABLE) ?
+                    VariableNamerFactory.getDeferredNamer(this.codeAttribute, cp) :
+                    VariableNamerFactory.getNamer(null, cp);
             // This rigamarole is neccessary because we don't provide the factory for the code attribute enough information
             // to get the Method (this).
             this.codeAttribute.setMethod(this);
@@ -222,6 +218,10 @@ public class Method implements KnowsRawSize, TypeUsageCollectable {
         return methodPrototype.getName();
     }
 
+    public String getDescriptor() {
+        return cp.getUTF8Entry(descriptorIndex).getValue();
+    }
+
     /* This is a bit ugly - otherwise though we need to tie a variable namer to this earlier.
      * We can't always use the signature... in an enum, for example, it lies!
      *
@@ -26,10 +26,17 @@ public class AttributeCode extends Attribute {
     private final int maxStack;
     private final int maxLocals;
     private final int codeLength;
-    private final List<ExceptionTableEntry> exceptionTableEntries;
-    private final AttributeMap attributes;
     private final ConstantPool cp;
+    private final ClassFileVersion classFileVersion;
     private final ByteData rawData;
+    private final ByteData rawTrailer;
+    /*
+     * The exception table and sub-attributes (line numbers, local variables, stack maps...) are only
+     * needed if we analyse this method, which we won't for most methods of classes which have been loaded
+     * to resolve types against.  So they're decoded on first use.
+     */
+    private List<ExceptionTableEntry> exceptionTableEntries;
+    private AttributeMap attributes;
 
     private final CodeAnalyser codeAnalyser;
 
@@ -62,28 +69,30 @@ public class AttributeCode extends Attribute {
         this.maxLocals = maxLocals;
         this.codeLength = codeLength;
 
-        final long OFFSET_OF_EXCEPTION_TABLE_LENGTH = OFFSET_OF_CODE + codeLength;
+        this.classFileVersion = classFileVersion;
+        this.rawTrailer = raw.getOffsetData(OFFSET_OF_CODE + codeLength);
+        this.rawData = raw.getOffsetData(OFFSET_OF_CODE);
+        this.codeAnalyser = new CodeAnalyser(this);
+    }
+
+    private synchronized AttributeMap getAttributes() {
+        if (attributes != null) return attributes;
+        final long OFFSET_OF_EXCEPTION_TABLE_LENGTH = 0;
         final long OFFSET_OF_EXCEPTION_TABLE = OFFSET_OF_EXCEPTION_TABLE_LENGTH + 2;
 
         ArrayList<ExceptionTableEntry> etis = new ArrayList<ExceptionTableEntry>();
-        final int numExceptions = raw.getU2At(OFFSET_OF_EXCEPTION_TABLE_LENGTH);
+        final int numExceptions = rawTrailer.getU2At(OFFSET_OF_EXCEPTION_TABLE_LENGTH);
         etis.ensureCapacity(numExceptions);
         final long numBytesExceptionInfo =
-                ContiguousEntityFactory.buildSized(raw.getOffsetData(OFFSET_OF_EXCEPTION_TABLE), numExceptions, 8, etis,
+                ContiguousEntityFactory.buildSized(rawTrailer.getOffsetData(OFFSET_OF_EXCEPTION_TABLE), numExceptions, 8, etis,
                         ExceptionTableEntry.getBuilder());
-        this.exceptionTableEntries = etis;
 
         final long OFFSET_OF_ATTRIBUTES_COUNT = OFFSET_OF_EXCEPTION_TABLE + numBytesExceptionInfo;
         final long OFFSET_OF_ATTRIBUTES = OFFSET_OF_ATTRIBUTES_COUNT + 2;
-        final int numAttributes = raw.getU2At(OFFSET_OF_ATTRIBUTES_COUNT);
-        ArrayList<Attribute> tmpAttributes = new ArrayList<Attribute>();
-        tmpAttributes.ensureCapacity(numAttributes);
-        ContiguousEntityFactory.build(raw.getOffsetData(OFFSET_OF_ATTRIBUTES), numAttributes, tmpAttributes,
-                AttributeFactory.getBuilder(cp, classFileVersion));
-        this.attributes = new AttributeMap(tmpAttributes);
-
-        this.rawData = raw.getOffsetData(OFFSET_OF_CODE);
-        this.codeAnalyser = new CodeAnalyser(this);
+        final int numAttributes = rawTrailer.getU2At(OFFSET_OF_ATTRIBUTES_COUNT);
+        this.exceptionTableEntries = etis;
+        this.attributes = AttributeFactory.buildMap(rawTrailer.getOffsetData(OFFSET_OF_ATTRIBUTES), numAttributes, cp, classFileVersion);
+        return attributes;
     }
 
     public void setMethod(Method method) {
@@ -99,19 +108,19 @@ public class AttributeCode extends Attribute {
     }
 
     public AttributeLocalVariableTable getLocalVariableTable() {
-        return attributes.getByName(AttributeLocalVariableTable.ATTRIBUTE_NAME);
+        return getAttributes().getByName(AttributeLocalVariableTable.ATTRIBUTE_NAME);
     }
 
     public AttributeLineNumberTable getLineNumberTable() {
-        return attributes.getByName(AttributeLineNumberTable.ATTRIBUTE_NAME);
+        return getAttributes().getByName(AttributeLineNumberTable.ATTRIBUTE_NAME);
     }
 
     public AttributeRuntimeVisibleTypeAnnotations getRuntimeVisibleTypeAnnotations() {
-        return attributes.getByName(AttributeRuntimeVisibleTypeAnnotations.ATTRIBUTE_NAME);
+        return getAttributes().getByName(AttributeRuntimeVisibleTypeAnnotations.ATTRIBUTE_NAME);
     }
 
     public AttributeRuntimeInvisibleTypeAnnotations getRuntimeInvisibleTypeAnnotations() {
-        return attributes.getByName(AttributeRuntimeInvisibleTypeAnnotations.ATTRIBUTE_NAME);
+        return getAttributes().getByName(AttributeRuntimeInvisibleTypeAnnotations.ATTRIBUTE_NAME);
     }
 
     public ByteData getRawData() {
@@ -119,6 +128,7 @@ public class AttributeCode extends Attribute {
     }
 
     public List<ExceptionTableEntry> getExceptionTableEntries() {
+        getAttributes();
         return exceptionTableEntries;
     }
 
@@ -147,7 +157,7 @@ public class AttributeCode extends Attribute {
 
     @Override
     public void collectTypeUsages(TypeUsageCollector collector) {
-        attributes.collectTypeUsages(collector);
+        getAttributes().collectTypeUsages(collector);
     }
 
     public void releaseCode() {
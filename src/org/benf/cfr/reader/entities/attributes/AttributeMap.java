@@ -2,23 +2,60 @@ package org.benf.cfr.reader.entities.attributes;
 
 import org.benf.cfr.reader.state.TypeUsageCollector;
 import org.benf.cfr.reader.util.TypeUsageCollectable;
+import org.benf.cfr.reader.util.bytestream.ByteData;
 import org.benf.cfr.reader.util.collections.MapFactory;
 
-import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
+/*
+ * Attributes are held undecoded until they're first asked for (see AttributeFactory.buildMap) - a class
+ * which is only loaded to resolve a member never has most of them looked at.
+ *
+ * As classes are shared between analysis threads, lookups are synchronized.
+ */
 public class AttributeMap implements TypeUsageCollectable {
-    private final Map<String, Attribute> attributes;
+    private final Map<String, Object> attributes; // Attribute, or undecoded ByteData.
+    private final long rawByteLength;
+    private final Decoder decoder;
 
-    public AttributeMap(Collection<Attribute> tmpAttributes) {
+    public interface Decoder {
+        Attribute decode(String name, ByteData raw);
+    }
+
+    public static class Entry {
+        private final String name;
+        private final Object value;
+
+        public Entry(String name, Attribute attribute) {
+            this.name = name;
+            this.value = attribute;
+        }
+
+        public Entry(String name, ByteData raw) {
+            this.name = name;
+            this.value = raw;
+        }
+    }
+
+    public AttributeMap(List<Entry> entries, long rawByteLength, Decoder decoder) {
         attributes = MapFactory.newMap();
-        for (Attribute a : tmpAttributes) {
-            attributes.put(a.getRawName(), a);
+        for (Entry entry : entries) {
+            attributes.put(entry.name, entry.value);
         }
+        this.rawByteLength = rawByteLength;
+        this.decoder = decoder;
+    }
+
+    /*
+     * How many bytes the attributes took up in the class file, if this was built from it.
+     */
+    public long getRawByteLength() {
+        return rawByteLength;
     }
 
-    public <T extends Attribute> T getByName(String name) {
-        Attribute attribute = attributes.get(name);
+    public synchronized <T extends Attribute> T getByName(String name) {
+        Attribute attribute = getDecoded(name);
         if (attribute == null) return null;
         // There's no reason to be getting an unknown attribute here.  This means we
         // tried to fetch a well known name.
@@ -30,18 +67,26 @@ public class AttributeMap implements TypeUsageCollectable {
         return tmp;
     }
 
-    public boolean containsKey(String attributeName) {
+    private Attribute getDecoded(String name) {
+        Object value = attributes.get(name);
+        if (value == null || value instanceof Attribute) return (Attribute) value;
+        Attribute attribute = decoder.decode(name, (ByteData) value);
+        attributes.put(name, attribute);
+        return attribute;
+    }
+
+    public synchronized boolean containsKey(String attributeName) {
         return attributes.containsKey(attributeName);
     }
 
-    public void clear() {
+    public synchronized void clear() {
         attributes.clear();
     }
 
     @Override
-    public void collectTypeUsages(TypeUsageCollector collector) {
-        for (Attribute attribute : attributes.values()) {
-            attribute.collectTypeUsages(collector);
+    public synchronized void collectTypeUsages(TypeUsageCollector collector) {
+        for (String name : attributes.keySet()) {
+            getDecoded(name).collectTypeUsages(collector);
         }
     }
 }
@@ -91,7 +91,7 @@ public class AttributeStackMapTable extends Attribute {
         if (frameType < 64) {
             return new StackMapFrameSameFrame(frameType);
         }
-        if (frameType < 127) {
+        if (frameType < 128) {
             return same_locals_1_stack_item_frame(frameType, raw);
         }
         if (frameType < 247) {
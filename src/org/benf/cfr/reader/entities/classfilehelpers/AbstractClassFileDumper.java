@@ -13,7 +13,6 @@ import org.benf.cfr.reader.entities.attributes.AttributeRuntimeInvisibleAnnotati
 import org.benf.cfr.reader.entities.attributes.AttributeRuntimeVisibleAnnotations;
 import org.benf.cfr.reader.state.DCCommonState;
 import org.benf.cfr.reader.state.TypeUsageInformation;
-import org.benf.cfr.reader.util.CannotLoadClassException;
 import org.benf.cfr.reader.util.DecompilerComments;
 import org.benf.cfr.reader.util.MiscConstants;
 import org.benf.cfr.reader.util.StringUtils;
@@ -59,11 +58,7 @@ abstract class AbstractClassFileDumper implements ClassFileDumper {
             List<JavaTypeInstance> couldNotLoad = ListFactory.newList();
             for (JavaTypeInstance type : typeUsageInformation.getUsedClassTypes()) {
                 if (type instanceof JavaRefTypeInstance) {
-                    ClassFile loadedClass = null;
-                    try {
-                        loadedClass = dcCommonState.getClassFile(type);
-                    } catch (CannotLoadClassException ignore) {
-                    }
+                    ClassFile loadedClass = dcCommonState.getClassFileOrNull(type);
                     if (loadedClass == null) {
                         couldNotLoad.add(type);
                     }
@@ -3,24 +3,33 @@ package org.benf.cfr.reader.entities.constantpool;
 import org.benf.cfr.reader.entities.ClassFile;
 import org.benf.cfr.reader.state.ClassCache;
 import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.state.DescriptorCache;
 import org.benf.cfr.reader.util.ConfusedCFRException;
 import org.benf.cfr.reader.util.bytestream.ByteData;
-import org.benf.cfr.reader.util.bytestream.OffsettingByteData;
-import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.getopt.Options;
 import org.benf.cfr.reader.util.output.LoggerFactory;
 
-import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Logger;
 
 public class ConstantPool {
     private static final Logger logger = LoggerFactory.create(ConstantPool.class);
 
+    private static final int NO_ENTRY = -1;
+
     private final long length;
-    private final List<ConstantPoolEntry> entries;
+    private final ByteData raw;
+    /*
+     * Offset into raw of each entry (NO_ENTRY for the unusable slot after a long or double).
+     * Entries are only built when they're first asked for - most of the pool of a class we've loaded
+     * just to find its supers (or a method prototype) is never looked at.
+     */
+    private final int[] entryOffsets;
+    private final AtomicReferenceArray<ConstantPoolEntry> entries;
     private final Options options;
     private final DCCommonState dcCommonState;
     private final ClassCache classCache;
+    private final DescriptorCache descriptorCache;
     private final ClassFile classFile;
     private String comparisonKey;
     private boolean isLoaded;
@@ -33,12 +42,15 @@ public class ConstantPool {
         this.options = dcCommonState.getOptions();
         count--;
 
-        RawTmp tmp = processRaw(raw, count);
-        this.entries = tmp.entries;
+        this.raw = raw;
+        this.entryOffsets = new int[count];
+        this.entries = new AtomicReferenceArray<ConstantPoolEntry>(count);
+        RawTmp tmp = processRaw(raw, entryOffsets);
         this.length = tmp.rawLength;
         this.dynamicConstants = tmp.dynamicConstants;
         this.dcCommonState = dcCommonState;
         this.classCache = dcCommonState.getClassCache();
+        this.descriptorCache = dcCommonState.getDescriptorCache();
         this.isLoaded = true;
     }
 
@@ -55,108 +67,146 @@ public class ConstantPool {
     }
 
     private static class RawTmp {
-        final List<ConstantPoolEntry> entries;
         final long rawLength;
         final boolean dynamicConstants;
 
-        RawTmp(List<ConstantPoolEntry> entries, long rawLength, boolean dynamicConstants) {
-            this.entries = entries;
+        RawTmp(long rawLength, boolean dynamicConstants) {
             this.rawLength = rawLength;
             this.dynamicConstants = dynamicConstants;
         }
     }
 
-    private RawTmp processRaw(ByteData raw, int count) {
-        List<ConstantPoolEntry> tgt = ListFactory.newList(count);
-        OffsettingByteData data = raw.getOffsettingOffsetData(0);
+    /*
+     * Just find where each entry is - we need to walk the pool to know its length anyway.
+     */
+    private static RawTmp processRaw(ByteData raw, int[] entryOffsets) {
+        int count = entryOffsets.length;
+        int offset = 0;
         boolean dynamicConstant = false;
         logger.info("Processing " + count + " constpool entries.");
         for (int x = 0; x < count; ++x) {
-            ConstantPoolEntry.Type type = ConstantPoolEntry.Type.get(data.getS1At(0));
-            ConstantPoolEntry cpe;
+            ConstantPoolEntry.Type type = ConstantPoolEntry.Type.get(raw.getS1At(offset));
+            entryOffsets[x] = offset;
+            offset += getRawByteLength(type, raw, offset);
             switch (type) {
-                case CPT_NameAndType:
-                    cpe = new ConstantPoolEntryNameAndType(this, data);
-                    break;
-                case CPT_String:
-                    cpe = new ConstantPoolEntryString(this, data);
-                    break;
-                case CPT_FieldRef:
-                    cpe = new ConstantPoolEntryFieldRef(this, data);
-                    break;
-                case CPT_MethodRef:
-                    cpe = new ConstantPoolEntryMethodRef(this, data, false);
-                    break;
-                case CPT_InterfaceMethodRef:
-                    cpe = new ConstantPoolEntryMethodRef(this, data, true);
-                    break;
-                case CPT_Class:
-                    cpe = new ConstantPoolEntryClass(this, data);
-                    break;
-                case CPT_Double:
-                    cpe = new ConstantPoolEntryDouble(this, data);
-                    break;
-                case CPT_Float:
-                    cpe = new ConstantPoolEntryFloat(this, data);
-                    break;
-                case CPT_Long:
-                    cpe = new ConstantPoolEntryLong(this, data);
-                    break;
-                case CPT_Integer:
-                    cpe = new ConstantPoolEntryInteger(this, data);
-                    break;
-                case CPT_UTF8:
-                    cpe = new ConstantPoolEntryUTF8(this, data, options);
-                    break;
-                case CPT_MethodHandle:
-                    cpe = new ConstantPoolEntryMethodHandle(this, data);
-                    break;
-                case CPT_MethodType:
-                    cpe = new ConstantPoolEntryMethodType(this, data);
-                    break;
                 case CPT_DynamicInfo:
-                    cpe = new ConstantPoolEntryDynamicInfo(this, data);
                     dynamicConstant = true;
                     break;
-                case CPT_InvokeDynamic:
-                    cpe = new ConstantPoolEntryInvokeDynamic(this, data);
-                    break;
-                case CPT_ModuleInfo:
-                    cpe = new ConstantPoolEntryModuleInfo(this, data);
-                    break;
-                case CPT_PackageInfo:
-                    cpe = new ConstantPoolEntryPackageInfo(this, data);
-                    break;
-                default:
-                    throw new ConfusedCFRException("Invalid constant pool entry : " + type);
-            }
-            logger.info("" + (x + 1) + " : " + cpe);
-            tgt.add(cpe);
-            switch (type) {
                 case CPT_Double:
                 case CPT_Long:
-                    tgt.add(null);
-                    x++;
+                    // These take two slots - the second is unusable.
+                    if (++x < count) entryOffsets[x] = NO_ENTRY;
                     break;
             }
+        }
+        return new RawTmp(offset, dynamicConstant);
+    }
 
-            long size = cpe.getRawByteLength();
-            data.advance(size);
+    /*
+     * As the constructor finds where each entry is, but without building a pool - for skimming a class file we don't
+     * want to load (see ClassHeader).  entryOffsets is indexed as getEntry, less one; returns the length of the pool.
+     */
+    public static long scanRaw(ByteData raw, int[] entryOffsets) {
+        return processRaw(raw, entryOffsets).rawLength;
+    }
+
+    /*
+     * Must agree with getRawByteLength of the corresponding entry.
+     */
+    private static long getRawByteLength(ConstantPoolEntry.Type type, ByteData raw, int offset) {
+        switch (type) {
+            case CPT_UTF8:
+                return 3 + raw.getU2At(offset + 1);
+            case CPT_Class:
+            case CPT_String:
+            case CPT_MethodType:
+            case CPT_ModuleInfo:
+            case CPT_PackageInfo:
+                return 3;
+            case CPT_MethodHandle:
+                return 4;
+            case CPT_NameAndType:
+            case CPT_FieldRef:
+            case CPT_MethodRef:
+            case CPT_InterfaceMethodRef:
+            case CPT_Integer:
+            case CPT_Float:
+            case CPT_DynamicInfo:
+            case CPT_InvokeDynamic:
+                return 5;
+            case CPT_Double:
+            case CPT_Long:
+                return 9;
+            default:
+                throw new ConfusedCFRException("Invalid constant pool entry : " + type);
+        }
+    }
+
+    private ConstantPoolEntry buildEntry(int index, int offset) {
+        ByteData data = raw.getOffsetData(offset);
+        ConstantPoolEntry.Type type = ConstantPoolEntry.Type.get(data.getS1At(0));
+        switch (type) {
+            case CPT_NameAndType:
+                return new ConstantPoolEntryNameAndType(this, data);
+            case CPT_String:
+                return new ConstantPoolEntryString(this, data);
+            case CPT_FieldRef:
+                return new ConstantPoolEntryFieldRef(this, data);
+            case CPT_MethodRef:
+                return new ConstantPoolEntryMethodRef(this, data, false);
+            case CPT_InterfaceMethodRef:
+                return new ConstantPoolEntryMethodRef(this, data, true);
+            case CPT_Class:
+                return new ConstantPoolEntryClass(this, data);
+            case CPT_Double:
+                return new ConstantPoolEntryDouble(this, data);
+            case CPT_Float:
+                return new ConstantPoolEntryFloat(this, data);
+            case CPT_Long:
+                return new ConstantPoolEntryLong(this, data);
+            case CPT_Integer:
+                return new ConstantPoolEntryInteger(this, data);
+            case CPT_UTF8:
+                return new ConstantPoolEntryUTF8(this, index, data, options);
+            case CPT_MethodHandle:
+                return new ConstantPoolEntryMethodHandle(this, data);
+            case CPT_MethodType:
+                return new ConstantPoolEntryMethodType(this, data);
+            case CPT_DynamicInfo:
+                return new ConstantPoolEntryDynamicInfo(this, data);
+            case CPT_InvokeDynamic:
+                return new ConstantPoolEntryInvokeDynamic(this, data);
+            case CPT_ModuleInfo:
+                return new ConstantPoolEntryModuleInfo(this, data);
+            case CPT_PackageInfo:
+                return new ConstantPoolEntryPackageInfo(this, data);
+            default:
+                throw new ConfusedCFRException("Invalid constant pool entry : " + type);
         }
-        return new RawTmp(tgt, data.getOffset(), dynamicConstant);
     }
 
     public long getRawByteLength() {
         return length;
     }
 
+    /*
+     * If two threads build the same entry at once, the first to be published wins, so that
+     * everyone sees the same instance.
+     */
     public ConstantPoolEntry getEntry(int index) {
         if (index == 0) throw new ConfusedCFRException("Attempt to fetch element 0 from constant pool");
         // NB: Constant pool entries are 1 based.
-        if (index > entries.size()) {
-            throw new IndexOutOfBoundsException("Constant pool has " + entries.size() + " entries - attempted to access entry #" + (index-1));
+        if (index > entryOffsets.length) {
+            throw new IndexOutOfBoundsException("Constant pool has " + entryOffsets.length + " entries - attempted to access entry #" + (index-1));
         }
-        return entries.get(index - 1);
+        int x = index - 1;
+        ConstantPoolEntry entry = entries.get(x);
+        if (entry != null) return entry;
+        int offset = entryOffsets[x];
+        if (offset == NO_ENTRY) return null;
+        entry = buildEntry(index, offset);
+        if (entries.compareAndSet(x, null, entry)) return entry;
+        return entries.get(x);
     }
 
     public ConstantPoolEntryUTF8 getUTF8Entry(int index) {
@@ -191,6 +241,10 @@ public class ConstantPool {
         return classCache;
     }
 
+    public DescriptorCache getDescriptorCache() {
+        return descriptorCache;
+    }
+
     @Override
     public boolean equals(Object o) {
         getComparisonKey();
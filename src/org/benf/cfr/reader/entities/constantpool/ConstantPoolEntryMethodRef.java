@@ -81,11 +81,13 @@ public class ConstantPoolEntryMethodRef extends AbstractConstantPoolEntry {
 
             findBetterMethod : try {
                 JavaTypeInstance loadType = classType.getArrayStrippedType().getDeGenerifiedType();
-                ClassFile classFile = cp.getDCCommonState().getClassFile(loadType);
+                ClassFile classFile = cp.getDCCommonState().getClassFileOrNull(loadType);
+                if (classFile == null) break findBetterMethod;
                 MethodPrototype replacement;
-                foundBetterMethod : try {
-                    replacement = classFile.getMethodByPrototype(basePrototype).getMethodPrototype();
-                } catch (NoSuchMethodException e) {
+                Method method = classFile.getMethodByPrototypeOrNull(basePrototype);
+                foundBetterMethod : if (method != null) {
+                    replacement = method.getMethodPrototype();
+                } else {
                     if (basePrototype.getName().equals(MiscConstants.INIT_METHOD)) break findBetterMethod;
                     // The method is not present here.
                     // This means we might have inherited an implementation from a base class
@@ -95,9 +97,11 @@ public class ConstantPoolEntryMethodRef extends AbstractConstantPoolEntry {
                     Collection<JavaRefTypeInstance> supers = bindingSuperContainer.getBoundSuperClasses().keySet();
                     for (JavaTypeInstance supertype : supers) {
                         loadType = supertype.getDeGenerifiedType();
-                        ClassFile superClassFile = cp.getDCCommonState().getClassFile(loadType);
-                        try {
-                            MethodPrototype baseReplacement = superClassFile.getMethodByPrototype(basePrototype).getMethodPrototype();
+                        ClassFile superClassFile = cp.getDCCommonState().getClassFileOrNull(loadType);
+                        if (superClassFile == null) break findBetterMethod;
+                        Method baseMethod = superClassFile.getMethodByPrototypeOrNull(basePrototype);
+                        if (baseMethod != null) {
+                            MethodPrototype baseReplacement = baseMethod.getMethodPrototype();
                             /*
                              * Ok, one of our bases actually implements this.  Now we /PRETEND/ the class we're
                              * interrogating implemented it.  This means we need to rewrite any generics so that they
@@ -108,7 +112,6 @@ public class ConstantPoolEntryMethodRef extends AbstractConstantPoolEntry {
                             classFile = superClassFile;
                             replacement = baseReplacement;
                             break foundBetterMethod;
-                        } catch (NoSuchMethodException ignore) {
                         }
                     }
                     break findBetterMethod;
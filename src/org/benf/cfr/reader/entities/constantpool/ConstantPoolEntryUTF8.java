@@ -17,9 +17,11 @@ public class ConstantPoolEntryUTF8 extends AbstractConstantPoolEntry {
     private final int length;
     private final String value;
 
-    private static int idx;
-
-    public ConstantPoolEntryUTF8(ConstantPool cp, ByteData data, Options options) {
+    /*
+     * index is this entry's slot in the pool - hidden long strings are named after it, so that the name doesn't
+     * depend on the order entries happen to be decoded in.
+     */
+    public ConstantPoolEntryUTF8(ConstantPool cp, int index, ByteData data, Options options) {
         super(cp);
         this.length = data.getU2At(OFFSET_OF_LENGTH);
         byte[] bytes = data.getBytesAt(length, OFFSET_OF_DATA);
@@ -61,7 +63,7 @@ public class ConstantPoolEntryUTF8 extends AbstractConstantPoolEntry {
             tmpValue = new String(bytes, UTF8_CHARSET);
         }
         if (tmpValue.length() > 512 && options.getOption(OptionsImpl.HIDE_LONGSTRINGS)) {
-            tmpValue = "longStr" + idx++ + "[" + tmpValue.substring(0, 10).replace('\r', '_').replace('\n', '_') + "]";
+            tmpValue = "longStr" + index + "[" + tmpValue.substring(0, 10).replace('\r', '_').replace('\n', '_') + "]";
         }
         this.value = tmpValue;
     }
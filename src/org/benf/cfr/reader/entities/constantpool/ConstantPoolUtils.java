@@ -8,6 +8,7 @@ import org.benf.cfr.reader.bytecode.analysis.variables.VariableNamer;
 import org.benf.cfr.reader.entities.ClassFile;
 import org.benf.cfr.reader.entities.Method;
 import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.state.DescriptorCache;
 import org.benf.cfr.reader.util.ConfusedCFRException;
 import org.benf.cfr.reader.util.MiscConstants;
 import org.benf.cfr.reader.util.collections.ListFactory;
@@ -63,7 +64,42 @@ public class ConstantPoolUtils {
         }
     }
 
+    /*
+     * Erased descriptors are shared between classes (see DescriptorCache).
+     */
     public static JavaTypeInstance decodeTypeTok(String tok, ConstantPool cp) {
+        if (tok.length() == 1 || !isErased(tok)) return parseTypeTok(tok, cp);
+        DescriptorCache cache = cp.getDescriptorCache();
+        JavaTypeInstance res = cache.getTypeOrNull(tok);
+        if (res == null) {
+            res = parseTypeTok(tok, cp);
+            cache.putType(tok, res);
+        }
+        return res;
+    }
+
+    /*
+     * Does tok describe a single type, with no generic information?
+     */
+    private static boolean isErased(String tok) {
+        int idx = 0;
+        while (tok.charAt(idx) == '[') {
+            idx++;
+        }
+        switch (tok.charAt(idx)) {
+            case 'L':
+                return tok.indexOf('<', idx) == -1;
+            case 'T':
+            case '*':
+            case '+':
+            case '-':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private static JavaTypeInstance parseTypeTok(String tok, ConstantPool cp) {
         int idx = 0;
         int numArrayDims = 0;
         char c = tok.charAt(idx);
@@ -293,6 +329,10 @@ public class ConstantPoolUtils {
 
     public static MethodPrototype parseJavaMethodPrototype(DCCommonState state, ClassFile classFile, JavaTypeInstance classType, String name, boolean instanceMethod, Method.MethodConstructor constructorFlag, ConstantPoolEntryUTF8 prototype, ConstantPool cp, boolean varargs, boolean synthetic, VariableNamer variableNamer) {
         String proto = prototype.getValue();
+        Pair<List<JavaTypeInstance>, JavaTypeInstance> erased = getErasedPrototypeOrNull(proto, cp);
+        if (erased != null) {
+            return new MethodPrototype(state, classFile, classType, name, instanceMethod, constructorFlag, null, ListFactory.newList(erased.getFirst()), erased.getSecond(), varargs, variableNamer, synthetic);
+        }
         int curridx = 0;
         /*
          * Method is itself generic...
@@ -337,6 +377,37 @@ public class ConstantPoolUtils {
         return res;
     }
 
+    /*
+     * Argument and result types of a method descriptor with no generic information, shared between classes.
+     * Null if the descriptor has generic information (or isn't valid - that's left for the full parse to complain
+     * about).
+     */
+    private static Pair<List<JavaTypeInstance>, JavaTypeInstance> getErasedPrototypeOrNull(String proto, ConstantPool cp) {
+        if (proto.indexOf('<') != -1) return null;
+        DescriptorCache cache = cp.getDescriptorCache();
+        Pair<List<JavaTypeInstance>, JavaTypeInstance> res = cache.getPrototypeOrNull(proto);
+        if (res != null) return res;
+        if (!proto.startsWith("(")) return null;
+        int curridx = 1;
+        List<JavaTypeInstance> args = ListFactory.newList();
+        while (proto.charAt(curridx) != ')') {
+            String typeTok = getNextTypeTok(proto, curridx);
+            if (!isErased(typeTok)) return null;
+            args.add(decodeTypeTok(typeTok, cp));
+            curridx += typeTok.length();
+        }
+        curridx++;
+        JavaTypeInstance resultType = RawJavaType.VOID;
+        if (proto.charAt(curridx) != 'V') {
+            String typeTok = getNextTypeTok(proto, curridx);
+            if (!isErased(typeTok)) return null;
+            resultType = decodeTypeTok(typeTok, cp);
+        }
+        res = Pair.make(Collections.unmodifiableList(args), resultType);
+        cache.putPrototype(proto, res);
+        return res;
+    }
+
     private static Pair<List<JavaTypeInstance>, Integer> parseTypeList(String proto, ConstantPool cp) {
         int curridx = 0;
         int len = proto.length();
@@ -354,12 +425,20 @@ public class ConstantPoolUtils {
      */
     static StackDelta parseMethodPrototype(boolean member, ConstantPoolEntryUTF8 prototype, ConstantPool cp) {
         String proto = prototype.getValue();
-        int curridx = 1;
-        if (!proto.startsWith("(")) throw new ConfusedCFRException("Prototype " + proto + " is invalid");
         StackTypes argumentTypes = new StackTypes();
         if (member) {
             argumentTypes.add(StackType.REF); // thisPtr
         }
+        Pair<List<JavaTypeInstance>, JavaTypeInstance> erased = getErasedPrototypeOrNull(proto, cp);
+        if (erased != null) {
+            for (JavaTypeInstance arg : erased.getFirst()) {
+                argumentTypes.add(arg.getStackType());
+            }
+            JavaTypeInstance result = erased.getSecond();
+            return new StackDeltaImpl(argumentTypes, result == RawJavaType.VOID ? StackTypes.EMPTY : result.getStackType().asList());
+        }
+        int curridx = 1;
+        if (!proto.startsWith("(")) throw new ConfusedCFRException("Prototype " + proto + " is invalid");
         while (proto.charAt(curridx) != ')') {
             String typeTok = getNextTypeTok(proto, curridx);
             argumentTypes.add(decodeTypeTok(typeTok, cp).getStackType());
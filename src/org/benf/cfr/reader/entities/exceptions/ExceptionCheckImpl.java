@@ -62,7 +62,7 @@ public class ExceptionCheckImpl implements ExceptionCheck {
 
         for (JavaTypeInstance thrownType : thrown) {
             try {
-                ClassFile thrownClassFile = dcCommonState.getClassFile(thrownType);
+                ClassFile thrownClassFile = dcCommonState.getClassFileOrNull(thrownType);
                 if (thrownClassFile == null) {
                     return true;
                 }
@@ -99,11 +99,11 @@ public class ExceptionCheckImpl implements ExceptionCheck {
         if (mightUseUnchecked) return true;
         JavaTypeInstance type = functionInvokation.getClassTypeInstance();
         try {
-            ClassFile classFile = dcCommonState.getClassFile(type);
-            Method method = classFile.getMethodByPrototype(functionInvokation.getMethodPrototype());
+            ClassFile classFile = dcCommonState.getClassFileOrNull(type);
+            if (classFile == null) return true;
+            Method method = classFile.getMethodByPrototypeOrNull(functionInvokation.getMethodPrototype());
+            if (method == null) return true;
             return checkAgainstInternal(method.getThrownTypes());
-        } catch (NoSuchMethodException e) {
-            return true;
         } catch (CannotLoadClassException e) {
             return true;
         }
@@ -121,7 +121,7 @@ public class ExceptionCheckImpl implements ExceptionCheck {
         JavaTypeInstance type = constructorInvokation.getTypeInstance();
         Map<JavaRefTypeInstance, ?> boundSuperClasses;
         try {
-            ClassFile classFile = dcCommonState.getClassFile(type);
+            ClassFile classFile = dcCommonState.getClassFileOrNull(type);
             if (classFile == null) return true;
             BindingSuperContainer bindingSuperContainer = classFile.getBindingSupers();
             if (bindingSuperContainer == null) return true;
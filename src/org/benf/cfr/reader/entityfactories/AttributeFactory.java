@@ -5,16 +5,35 @@ import org.benf.cfr.reader.entities.constantpool.ConstantPoolEntryUTF8;
 import org.benf.cfr.reader.entities.attributes.*;
 import org.benf.cfr.reader.util.ClassFileVersion;
 import org.benf.cfr.reader.util.bytestream.ByteData;
-import org.benf.cfr.reader.util.functors.UnaryFunction;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.SetFactory;
 
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Attributes are decoded on demand, by AttributeMap - most are never looked at (eg for a class we've only loaded
+ * to find out about its members), so at load time we only find where each one is.
+ */
 public class AttributeFactory {
     private static final long OFFSET_OF_ATTRIBUTE_NAME_INDEX = 0;
+    private static final long OFFSET_OF_ATTRIBUTE_LENGTH = 2;
+    private static final long OFFSET_OF_ATTRIBUTE_INFO = 6;
+
+    /*
+     * Decoded as soon as they're found.  Decoding InnerClasses has side effects (it marks the types it refers to),
+     * which we rely on having happened.  Code is decoded straight away so that a malformed one fails as the method
+     * is loaded, as it always has, rather than whenever it's first looked at.
+     */
+    private static final Set<String> eager = SetFactory.newSet(AttributeInnerClasses.ATTRIBUTE_NAME, AttributeCode.ATTRIBUTE_NAME);
 
     public static Attribute build(ByteData raw, ConstantPool cp, ClassFileVersion classFileVersion) {
         final int nameIndex = raw.getU2At(OFFSET_OF_ATTRIBUTE_NAME_INDEX);
         ConstantPoolEntryUTF8 name = (ConstantPoolEntryUTF8) cp.getEntry(nameIndex);
-        String attributeName = name.getValue();
+        return build(raw, name.getValue(), cp, classFileVersion);
+    }
 
+    static Attribute build(ByteData raw, String attributeName, ConstantPool cp, ClassFileVersion classFileVersion) {
         /*
          * This absolutely could be replaced with a string switch, but I'm sticking to j6,
          * as I want to mandate the minimum sane requirements.
@@ -83,22 +102,27 @@ public class AttributeFactory {
         return new AttributeUnknown(raw, attributeName);
     }
 
-    public static UnaryFunction<ByteData, Attribute> getBuilder(ConstantPool cp, ClassFileVersion classFileVersion) {
-        return new AttributeBuilder(cp, classFileVersion);
-    }
-
-    private static class AttributeBuilder implements UnaryFunction<ByteData, Attribute> {
-        private final ConstantPool cp;
-        private final ClassFileVersion classFileVersion;
-
-        AttributeBuilder(ConstantPool cp, ClassFileVersion classFileVersion) {
-            this.cp = cp;
-            this.classFileVersion = classFileVersion;
-        }
-
-        @Override
-        public Attribute invoke(ByteData arg) {
-            return AttributeFactory.build(arg, cp, classFileVersion);
+    /*
+     * Find count attributes, starting at raw - decoding only those which have to be.
+     */
+    public static AttributeMap buildMap(ByteData raw, int count, final ConstantPool cp, final ClassFileVersion classFileVersion) {
+        List<AttributeMap.Entry> entries = ListFactory.newList(count);
+        long offset = 0;
+        for (int x = 0; x < count; ++x) {
+            String name = ((ConstantPoolEntryUTF8) cp.getEntry(raw.getU2At(offset + OFFSET_OF_ATTRIBUTE_NAME_INDEX))).getValue();
+            ByteData attributeData = raw.getOffsetData(offset);
+            if (eager.contains(name)) {
+                entries.add(new AttributeMap.Entry(name, build(attributeData, name, cp, classFileVersion)));
+            } else {
+                entries.add(new AttributeMap.Entry(name, attributeData));
+            }
+            offset += OFFSET_OF_ATTRIBUTE_INFO + raw.getS4At(offset + OFFSET_OF_ATTRIBUTE_LENGTH);
         }
+        return new AttributeMap(entries, offset, new AttributeMap.Decoder() {
+            @Override
+            public Attribute decode(String name, ByteData raw) {
+                return build(raw, name, cp, classFileVersion);
+            }
+        });
     }
 }
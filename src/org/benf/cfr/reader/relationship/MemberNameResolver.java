@@ -51,20 +51,14 @@ public class MemberNameResolver {
     }
 
     private ClassFile classFileOrNull(JavaTypeInstance type) {
-        try {
-            return dcCommonState.getClassFile(type);
-        } catch (CannotLoadClassException e) {
-            return null;
-        }
+        return dcCommonState.getClassFileOrNull(type);
     }
 
     private void initialise(Collection<? extends JavaTypeInstance> types) {
         List<ClassFile> classFiles = ListFactory.newList();
         for (JavaTypeInstance type : types) {
-            try {
-                classFiles.add(dcCommonState.getClassFile(type));
-            } catch (CannotLoadClassException ignore) {
-            }
+            ClassFile classFile = dcCommonState.getClassFileOrNull(type);
+            if (classFile != null) classFiles.add(classFile);
         }
         /*
          * Walk each one, checking for local name conflicts, and pushing definitions into superclasses/interfaces,
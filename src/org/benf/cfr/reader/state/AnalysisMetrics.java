@@ -0,0 +1,519 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.api.OutputSinkFactory;
+import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
+import org.benf.cfr.reader.entities.Method;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+import org.benf.cfr.reader.util.output.SummaryDumper;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Opt in timing of the analysis pipeline - per class, per method, and per phase of method analysis - along with
+ * bytes allocated, where the VM can tell us.  See --metrics.
+ *
+ * Times are wall clock, and exclusive: if analysing one method needs another analysed (eg to inline a lambda
+ * body), that's counted against the other method only, and neither counts against the class phase it happened
+ * in.  So the phase totals add up to the time spent.
+ *
+ * NONE hands out recorders which do nothing, so the cost when we're not asked for this is a few virtual calls
+ * per method.
+ */
+public class AnalysisMetrics {
+    public enum Phase {
+        LOAD("load"),
+        // Method analysis, in CodeAnalyser.
+        OP02("op02"),
+        STACK("stack"),
+        LIVENESS("liveness"),
+        OP03("op03"),
+        SSA("ssa"),
+        OP03_REWRITE("op03rewrite"),
+        TOPSORT("topsort"),
+        OP04("op04"),
+        // Whole class rewriting, other than analysing methods.
+        CLASS("class"),
+        DUMP("dump");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static final AnalysisMetrics NONE = new AnalysisMetrics(null, null);
+
+    private static final int SLOWEST = 10;
+
+    private final String path;
+    private final OutputSinkFactory.Sink<String> sink;
+    private final List<ClassMetrics> classes = ListFactory.newList();
+    private final List<MethodMetrics> otherMethods = ListFactory.newList();
+    private final ThreadLocal<ClassMetrics> currentClass = new ThreadLocal<ClassMetrics>();
+    private final ThreadLocal<LinkedList<MethodMetrics>> currentMethods = new ThreadLocal<LinkedList<MethodMetrics>>() {
+        @Override
+        protected LinkedList<MethodMetrics> initialValue() {
+            return ListFactory.newLinkedList();
+        }
+    };
+
+    private AnalysisMetrics(String path, OutputSinkFactory.Sink<String> sink) {
+        this.path = path;
+        this.sink = sink;
+    }
+
+    /*
+     * NONE unless we've been asked for metrics, either as a file, or by the API.
+     */
+    public static AnalysisMetrics create(Options options, OutputSinkFactory.Sink<String> sink) {
+        String path = options.getOption(OptionsImpl.METRICS);
+        if (path == null && sink == null) return NONE;
+        return new AnalysisMetrics(path, sink);
+    }
+
+    private boolean isEnabled() {
+        return this != NONE;
+    }
+
+    /*
+     * Starts timing type's load, on this thread.
+     */
+    public ClassMetrics beginClass(JavaTypeInstance type) {
+        if (!isEnabled()) return ClassMetrics.NONE;
+        ClassMetrics res = new ClassMetrics(this, type.getRawName());
+        res.begin(Phase.LOAD);
+        return res;
+    }
+
+    private synchronized void endClass(ClassMetrics classMetrics) {
+        if (classMetrics.recorded) return;
+        classMetrics.recorded = true;
+        classes.add(classMetrics);
+    }
+
+    public MethodMetrics beginMethod(Method method) {
+        if (!isEnabled()) return MethodMetrics.NONE;
+        MethodMetrics res = new MethodMetrics(this, method.getClassFile().getClassType().getRawName(),
+                method.getName() + method.getDescriptor());
+        LinkedList<MethodMetrics> stack = currentMethods.get();
+        if (!stack.isEmpty()) {
+            stack.getFirst().pause();
+        } else {
+            ClassMetrics classMetrics = currentClass.get();
+            if (classMetrics != null) classMetrics.pause();
+        }
+        stack.addFirst(res);
+        res.resume();
+        return res;
+    }
+
+    private void endMethod(MethodMetrics method) {
+        LinkedList<MethodMetrics> stack = currentMethods.get();
+        stack.remove(method);
+        ClassMetrics classMetrics = currentClass.get();
+        synchronized (this) {
+            if (classMetrics == null) {
+                otherMethods.add(method);
+            } else {
+                classMetrics.methods.add(method);
+            }
+        }
+        if (!stack.isEmpty()) {
+            stack.getFirst().resume();
+        } else if (classMetrics != null) {
+            classMetrics.resume();
+        }
+    }
+
+    /*
+     * Use with summarise, to describe the classes begun since.
+     */
+    public synchronized int mark() {
+        return classes.size();
+    }
+
+    public void summarise(int mark, SummaryDumper summaryDumper) {
+        if (!isEnabled()) return;
+        List<ClassMetrics> summarised;
+        synchronized (this) {
+            summarised = ListFactory.newList(classes.subList(mark, classes.size()));
+        }
+        long[] phaseTotals = new long[Phase.values().length];
+        Map<Long, Integer> histogram = new TreeMap<Long, Integer>();
+        Map<Integer, Integer> passes = new TreeMap<Integer, Integer>();
+        int failed = 0;
+        List<MethodMetrics> methods = ListFactory.newList();
+        synchronized (this) {
+            for (ClassMetrics classMetrics : summarised) {
+                addTo(phaseTotals, classMetrics.phaseNanos);
+                methods.addAll(classMetrics.methods);
+            }
+        }
+        for (MethodMetrics method : methods) {
+            addTo(phaseTotals, method.phaseNanos);
+            increment(histogram, getBucket(method.getTotalNanos()));
+            increment(passes, method.pass);
+            if (method.failed) failed++;
+        }
+
+        summaryDumper.notify("");
+        summaryDumper.notify("Metrics (" + summarised.size() + " classes, " + methods.size() + " methods)");
+        StringBuilder sb = new StringBuilder("  Time by phase (ms) :");
+        for (Phase phase : Phase.values()) {
+            sb.append(' ').append(phase.getName()).append('=').append(phaseTotals[phase.ordinal()] / 1000000);
+        }
+        summaryDumper.notify(sb.toString());
+        sb = new StringBuilder("  Methods by analysis time (ms) :");
+        for (Map.Entry<Long, Integer> entry : histogram.entrySet()) {
+            sb.append(" <").append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        summaryDumper.notify(sb.toString());
+        sb = new StringBuilder("  Methods by recovery pass :");
+        for (Map.Entry<Integer, Integer> entry : passes.entrySet()) {
+            sb.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        sb.append(" (failed=").append(failed).append(')');
+        summaryDumper.notify(sb.toString());
+        Collections.sort(methods, new Comparator<MethodMetrics>() {
+            @Override
+            public int compare(MethodMetrics a, MethodMetrics b) {
+                long ta = a.getTotalNanos();
+                long tb = b.getTotalNanos();
+                return ta < tb ? 1 : (ta == tb ? 0 : -1);
+            }
+        });
+        summaryDumper.notify("  Slowest methods :");
+        for (MethodMetrics method : methods.subList(0, Math.min(SLOWEST, methods.size()))) {
+            summaryDumper.notify("    " + method.getTotalNanos() / 1000000 + "ms " + method.className + "." + method.methodName);
+        }
+    }
+
+    private static void addTo(long[] totals, long[] nanos) {
+        for (int x = 0; x < totals.length; ++x) {
+            totals[x] += nanos[x];
+        }
+    }
+
+    private static <T> void increment(Map<T, Integer> counts, T key) {
+        Integer count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+
+    /*
+     * Upper bound (in ms) of a power of two histogram bucket.
+     */
+    private static long getBucket(long nanos) {
+        long ms = nanos / 1000000;
+        long bucket = 1;
+        while (bucket <= ms) bucket <<= 1;
+        return bucket;
+    }
+
+    /*
+     * Writes everything we've recorded, if we've been asked for it.
+     */
+    public void close() {
+        if (!isEnabled()) return;
+        String json;
+        synchronized (this) {
+            json = toJson();
+        }
+        if (sink != null) {
+            sink.write(json);
+        }
+        if (path != null) {
+            try {
+                Writer writer = new BufferedWriter(new FileWriter(new File(path)));
+                try {
+                    writer.write(json);
+                } finally {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Couldn't write metrics to " + path, e);
+            }
+        }
+    }
+
+    private String toJson() {
+        long[] phaseTotals = new long[Phase.values().length];
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"classes\": [");
+        boolean first = true;
+        for (ClassMetrics classMetrics : classes) {
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append("    {\"name\": ").append(quote(classMetrics.name));
+            appendPhases(sb, classMetrics.phaseNanos);
+            sb.append(", \"allocatedBytes\": ").append(classMetrics.allocated);
+            sb.append(", \"methods\": [");
+            appendMethods(sb, classMetrics.methods, phaseTotals, "      ");
+            sb.append("]}");
+            addTo(phaseTotals, classMetrics.phaseNanos);
+        }
+        sb.append("\n  ],\n  \"otherMethods\": [");
+        appendMethods(sb, otherMethods, phaseTotals, "    ");
+        sb.append("],\n  \"totals\": {");
+        sb.append("\"classes\": ").append(classes.size());
+        appendPhases(sb, phaseTotals);
+        sb.append("}\n}\n");
+        return sb.toString();
+    }
+
+    private static void appendMethods(StringBuilder sb, List<MethodMetrics> methods, long[] phaseTotals, String indent) {
+        boolean first = true;
+        for (MethodMetrics method : methods) {
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append(indent).append("{\"class\": ").append(quote(method.className));
+            sb.append(", \"method\": ").append(quote(method.methodName));
+            sb.append(", \"timeUs\": ").append(method.getTotalNanos() / 1000);
+            sb.append(", \"pass\": ").append(method.pass);
+            sb.append(", \"failed\": ").append(method.failed);
+            appendPhases(sb, method.phaseNanos);
+            sb.append(", \"allocatedBytes\": ").append(method.allocated);
+            sb.append("}");
+            addTo(phaseTotals, method.phaseNanos);
+        }
+    }
+
+    /*
+     * Only those phases which took any time.
+     */
+    private static void appendPhases(StringBuilder sb, long[] nanos) {
+        sb.append(", \"phasesUs\": {");
+        boolean first = true;
+        for (Phase phase : Phase.values()) {
+            long value = nanos[phase.ordinal()];
+            if (value == 0) continue;
+            if (!first) sb.append(", ");
+            first = false;
+            sb.append(quote(phase.getName())).append(": ").append(value / 1000);
+        }
+        sb.append("}");
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int x = 0, len = s.length(); x < len; ++x) {
+            char c = s.charAt(x);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /*
+     * A stopwatch which accumulates time (and allocation) against the current phase, and can be paused while
+     * something else is being measured on the same thread.
+     */
+    private abstract static class Recorder {
+        final long[] phaseNanos = new long[Phase.values().length];
+        long allocated;
+        Phase phase;
+        private long mark;
+        private long allocatedMark;
+
+        Recorder(Phase phase) {
+            this.phase = phase;
+        }
+
+        void pause() {
+            long now = System.nanoTime();
+            phaseNanos[phase.ordinal()] += now - mark;
+            mark = now;
+            long allocatedNow = ThreadAllocation.get();
+            allocated += allocatedNow - allocatedMark;
+            allocatedMark = allocatedNow;
+        }
+
+        void resume() {
+            mark = System.nanoTime();
+            allocatedMark = ThreadAllocation.get();
+        }
+
+        long getTotalNanos() {
+            long res = 0;
+            for (long nanos : phaseNanos) {
+                res += nanos;
+            }
+            return res;
+        }
+    }
+
+    /*
+     * A top level class, through load, analysis and dumping (which may happen on different threads, but not at
+     * the same time).
+     */
+    public static class ClassMetrics extends Recorder {
+        public static final ClassMetrics NONE = new ClassMetrics(null, null) {
+            @Override
+            public void begin(Phase phase) {
+            }
+
+            @Override
+            public void discard() {
+            }
+
+            @Override
+            public void end() {
+            }
+        };
+
+        private final AnalysisMetrics owner;
+        private final String name;
+        private final List<MethodMetrics> methods = ListFactory.newList();
+        private boolean discarded = false;
+        // Guarded by owner.
+        private boolean recorded = false;
+
+        private ClassMetrics(AnalysisMetrics owner, String name) {
+            super(Phase.LOAD);
+            this.owner = owner;
+            this.name = name;
+        }
+
+        /*
+         * Start timing phase, on this thread.  Any methods analysed until end are attributed to this class.
+         */
+        public void begin(Phase phase) {
+            if (owner.currentClass.get() == this) {
+                pause();
+            } else {
+                owner.currentClass.set(this);
+                resume();
+            }
+            this.phase = phase;
+        }
+
+        /*
+         * Not a class we want to report on (an inner class, which will be handled with its outer).
+         */
+        public void discard() {
+            discarded = true;
+        }
+
+        /*
+         * Stop timing on this thread - we may begin again (eg to dump) later.
+         */
+        public void end() {
+            pause();
+            owner.currentClass.remove();
+            if (!discarded) owner.endClass(this);
+        }
+    }
+
+    public static class MethodMetrics extends Recorder {
+        public static final MethodMetrics NONE = new MethodMetrics(null, null, null) {
+            @Override
+            public void begin(Phase phase) {
+            }
+
+            @Override
+            public void setResult(int pass, boolean failed) {
+            }
+
+            @Override
+            public void end() {
+            }
+        };
+
+        private final AnalysisMetrics owner;
+        private final String className;
+        private final String methodName;
+        private int pass;
+        private boolean failed;
+
+        private MethodMetrics(AnalysisMetrics owner, String className, String methodName) {
+            super(Phase.OP02);
+            this.owner = owner;
+            this.className = className;
+            this.methodName = methodName;
+        }
+
+        public void begin(Phase phase) {
+            pause();
+            this.phase = phase;
+        }
+
+        /*
+         * Which recovery pass gave the result we used.
+         */
+        public void setResult(int pass, boolean failed) {
+            this.pass = pass;
+            this.failed = failed;
+        }
+
+        public void end() {
+            pause();
+            owner.endMethod(this);
+        }
+    }
+
+    /*
+     * Bytes allocated by the current thread so far, if the VM will tell us (by way of
+     * com.sun.management.ThreadMXBean, which we can't rely on being there).  Otherwise, 0.
+     */
+    private static class ThreadAllocation {
+        private static final Object threadBean;
+        private static final java.lang.reflect.Method getAllocatedBytes;
+
+        static {
+            Object bean = null;
+            java.lang.reflect.Method method = null;
+            try {
+                bean = ManagementFactory.getThreadMXBean();
+                Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+                if (beanClass.isInstance(bean)) {
+                    java.lang.reflect.Method supported = beanClass.getMethod("isThreadAllocatedMemoryEnabled");
+                    if ((Boolean) supported.invoke(bean)) {
+                        method = beanClass.getMethod("getThreadAllocatedBytes", long.class);
+                    }
+                }
+            } catch (Throwable e) {
+                method = null;
+            }
+            threadBean = bean;
+            getAllocatedBytes = method;
+        }
+
+        static long get() {
+            if (getAllocatedBytes == null) return 0;
+            try {
+                return (Long) getAllocatedBytes.invoke(threadBean, Thread.currentThread().getId());
+            } catch (Exception e) {
+                return 0;
+            }
+        }
+    }
+}
@@ -4,6 +4,8 @@ import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
 import org.benf.cfr.reader.bytecode.analysis.types.ClassNameUtils;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaRefTypeInstance;
 import org.benf.cfr.reader.bytecode.analysis.types.TypeConstants;
+import org.benf.cfr.reader.util.MiscConstants;
+import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.collections.MapFactory;
 import org.benf.cfr.reader.util.collections.SetFactory;
 
@@ -11,6 +13,10 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
+/*
+ * Lookups are synchronized, as the cache is shared between analysis threads when
+ * decompiling a jar with more than one thread.
+ */
 public class ClassCache {
 
     private final Map<String, JavaRefTypeInstance> refClassTypeCache = MapFactory.newMap();
@@ -18,11 +24,19 @@ public class ClassCache {
     // This is a nice simple check.
     private final Set<String> simpleClassNamesSeen = SetFactory.newSet();
     private final Map<String, String> renamedClasses = MapFactory.newMap();
+    // Once names have been forgotten (see beginInput), types we already know must be noted as they're looked up.
+    private boolean noteKnownNames = false;
+    // See fixClassNames.
+    private boolean classNamesFixed = false;
 
     private final DCCommonState dcCommonState;
 
     ClassCache(DCCommonState dcCommonState) {
         this.dcCommonState = dcCommonState;
+        addStandardTypes();
+    }
+
+    private void addStandardTypes() {
         // TODO:  Not sure I need to do this any more.
         add(TypeConstants.ASSERTION_ERROR.getRawName(), TypeConstants.ASSERTION_ERROR);
         add(TypeConstants.OBJECT.getRawName(), TypeConstants.OBJECT);
@@ -30,7 +44,24 @@ public class ClassCache {
         add(TypeConstants.ENUM.getRawName(), TypeConstants.ENUM);
     }
 
-    public JavaRefTypeInstance getRefClassFor(String rawClassName) {
+    /*
+     * If we're shared between inputs, the names seen must only be those the current input has used,
+     * otherwise the names we generate would depend on what was decompiled before.
+     * (Types we already know are noted again as they're looked up).
+     *
+     * Analysis marks synthetics on types - those marks belong to analysed classes, which are being discarded.
+     */
+    synchronized void beginInput() {
+        simpleClassNamesSeen.clear();
+        noteKnownNames = true;
+        classNamesFixed = false;
+        addStandardTypes();
+        for (JavaRefTypeInstance type : refClassTypeCache.values()) {
+            type.getInnerClassHereInfo().clearSyntheticMarks();
+        }
+    }
+
+    public synchronized JavaRefTypeInstance getRefClassFor(String rawClassName) {
         /*
          * If the path (or pseudopath) has been renamed because it's a collision,
          * we need to replace with the deduplicated version - otherwise the file
@@ -47,6 +78,8 @@ public class ClassCache {
         if (typeInstance == null) {
             typeInstance = JavaRefTypeInstance.create(name, dcCommonState);
             add(name, originalName, typeInstance);
+        } else if (noteKnownNames) {
+            noteClassName(typeInstance.getRawShortName());
         }
         return typeInstance;
     }
@@ -57,22 +90,49 @@ public class ClassCache {
 
     private void add(String name, String originalName, JavaRefTypeInstance typeInstance) {
         refClassTypeCache.put(name, typeInstance);
-        simpleClassNamesSeen.add(typeInstance.getRawShortName());
+        noteClassName(typeInstance.getRawShortName());
         if (originalName != null) {
             renamedClasses.put(name, originalName);
         }
     }
 
-    public boolean isClassName(String name) {
+    private void noteClassName(String name) {
+        if (!classNamesFixed) simpleClassNamesSeen.add(name);
+    }
+
+    /*
+     * Note the simple names of classes which may be referred to (by raw name, eg java/util/Map$Entry), and stop
+     * noting names as types are found.  Otherwise whether a variable is renamed, to avoid a class name, depends
+     * on which classes happen to have been analysed already - and with more than one thread, that changes from
+     * run to run.
+     */
+    public synchronized void fixClassNames(Collection<String> rawClassNames) {
+        for (String rawClassName : rawClassNames) {
+            String name = rawClassName.substring(rawClassName.lastIndexOf('/') + 1);
+            simpleClassNamesSeen.add(name);
+            // We don't know yet if it's really an inner class - if not, this is just a name we avoid needlessly.
+            int inner = name.lastIndexOf(MiscConstants.INNER_CLASS_SEP_CHAR);
+            if (inner != -1 && inner != name.length() - 1) simpleClassNamesSeen.add(name.substring(inner + 1));
+        }
+        classNamesFixed = true;
+    }
+
+    public synchronized boolean isClassName(String name) {
         return simpleClassNamesSeen.contains(name);
     }
 
-    public Pair<JavaRefTypeInstance, JavaRefTypeInstance> getRefClassForInnerOuterPair(String rawInnerName, String rawOuterName) {
+    public synchronized Pair<JavaRefTypeInstance, JavaRefTypeInstance> getRefClassForInnerOuterPair(String rawInnerName, String rawOuterName) {
         String innerName = ClassNameUtils.convertFromPath(rawInnerName);
         String outerName = ClassNameUtils.convertFromPath(rawOuterName);
         JavaRefTypeInstance inner = refClassTypeCache.get(innerName);
         JavaRefTypeInstance outer = refClassTypeCache.get(outerName);
-        if (inner != null && outer != null) return Pair.make(inner, outer);
+        if (inner != null && outer != null) {
+            if (noteKnownNames) {
+                noteClassName(inner.getRawShortName());
+                noteClassName(outer.getRawShortName());
+            }
+            return Pair.make(inner, outer);
+        }
         Pair<JavaRefTypeInstance, JavaRefTypeInstance> pair = JavaRefTypeInstance.createKnownInnerOuter(innerName, outerName, outer, dcCommonState);
         if (inner == null) {
             add(innerName, pair.getFirst());
@@ -86,11 +146,11 @@ public class ClassCache {
 
     }
 
-    public Collection<JavaRefTypeInstance> getLoadedTypes() {
-        return refClassTypeCache.values();
+    public synchronized Collection<JavaRefTypeInstance> getLoadedTypes() {
+        return ListFactory.newList(refClassTypeCache.values());
     }
 
-    String getOriginalName(String typeName) {
+    synchronized String getOriginalName(String typeName) {
         return renamedClasses.get(typeName);
     }
 }
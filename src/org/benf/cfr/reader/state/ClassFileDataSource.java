@@ -0,0 +1,14 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
+import org.benf.cfr.reader.util.bytestream.ByteData;
+
+import java.io.IOException;
+
+/*
+ * Internal alternative to ClassFileSource.getClassFileContent, for sources which can provide
+ * class data without copying it into a byte array first.
+ */
+interface ClassFileDataSource {
+    Pair<ByteData, String> getClassFileData(String path) throws IOException;
+}
@@ -7,6 +7,9 @@ import org.benf.cfr.reader.util.AnalysisType;
 import org.benf.cfr.reader.util.ConfusedCFRException;
 import org.benf.cfr.reader.util.MiscConstants;
 import org.benf.cfr.reader.util.StringUtils;
+import org.benf.cfr.reader.util.bytestream.BaseByteData;
+import org.benf.cfr.reader.util.bytestream.BufferBackedByteData;
+import org.benf.cfr.reader.util.bytestream.ByteData;
 import org.benf.cfr.reader.util.collections.Functional;
 import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.collections.MapFactory;
@@ -17,22 +20,22 @@ import org.benf.cfr.reader.util.getopt.Options;
 import org.benf.cfr.reader.util.getopt.OptionsImpl;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Method;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
-import static org.benf.cfr.reader.bytecode.analysis.types.ClassNameUtils.getPackageAndClassNames;
-
-public class ClassFileSourceImpl implements ClassFileSource2 {
+public class ClassFileSourceImpl implements ClassFileSource2, ClassFileDataSource, Closeable {
     private final Set<String> explicitJars = SetFactory.newSet();
+    private final ZipFileCache zipFileCache = new ZipFileCache();
     private Map<String, JarSourceEntry> classToPathMap;
     private final Options options;
     private ClassRenamer classRenamer;
@@ -42,41 +45,36 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
     private boolean unexpectedDirectory = false;
     private String pathPrefix = "";
     private String classRemovePrefix = "";
-    private static final boolean JrtPresent = CheckJrt();
-    private static Map<String, String> packMap = JrtPresent ? getPackageToModuleMap() : new HashMap<String, String>();
-
-    private static boolean CheckJrt() {
-        try {
-            return Object.class.getResource("Object.class").getProtocol().equals("jrt");
-        } catch (Exception e) {
-            return false;
-        }
-    }
+    private PlatformClassSource platformClasses;
 
     public ClassFileSourceImpl(Options options) {
         this.options = options;
     }
 
-    private byte[] getBytesFromFile(InputStream is, long length) throws IOException {
-        // Create the byte array to hold the data
-        byte[] bytes = new byte[(int) length];
-
-        // Read in the bytes
-        int offset = 0;
-        int numRead;
-        while (offset < bytes.length
-                && (numRead = is.read(bytes, offset, bytes.length - offset)) >= 0) {
-            offset += numRead;
-        }
+    /*
+     * Reads (exactly) length bytes from is, and closes it.
+     */
+    static byte[] getBytesFromFile(InputStream is, long length) throws IOException {
+        try {
+            // Create the byte array to hold the data
+            byte[] bytes = new byte[(int) length];
+
+            // Read in the bytes
+            int offset = 0;
+            int numRead;
+            while (offset < bytes.length
+                    && (numRead = is.read(bytes, offset, bytes.length - offset)) >= 0) {
+                offset += numRead;
+            }
 
-        // Ensure all the bytes have been read in
-        if (offset < bytes.length) {
-            throw new IOException("Could not completely read file");
+            // Ensure all the bytes have been read in
+            if (offset < bytes.length) {
+                throw new IOException("Could not completely read file");
+            }
+            return bytes;
+        } finally {
+            is.close();
         }
-
-        // Close the input stream and return bytes
-        is.close();
-        return bytes;
     }
 
     @Override
@@ -95,162 +93,115 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
 
         // If path is an alias due to case insensitivity, restore to the correct name here, before
         // accessing zipfile.
-        String path = inputPath;
-        if (classRenamer != null) {
-            path = classRenamer.getOriginalClass(path);
-        }
-
-        ZipFile zipFile = null;
-
-        try {
-            InputStream is;
-            long length;
-
-            /*
-             * NB : pathPrefix will be empty the when we load the 'main' class,
-             * and only set if it's not in its 'natural' location.
-             */
-            String usePath = path;
-            if (unexpectedDirectory) {
-                if (usePath.startsWith(classRemovePrefix)) {
-                    usePath = usePath.substring(classRemovePrefix.length());
-                }
-                usePath = pathPrefix + usePath;
+        String path = getOriginalPath(inputPath);
+
+        File file = getLooseFile(path, jarEntry);
+        byte[] content;
+        if (file != null && file.exists()) {
+            InputStream is = new FileInputStream(file);
+            long length = file.length();
+            content = getBytesFromFile(is, length);
+        } else if (jarEntry != null) {
+            if (jarEntry.analysisType == AnalysisType.WAR) {
+                path = MiscConstants.WAR_PREFIX + path;
             }
-            boolean forceJar = jarEntry != null && explicitJars.contains(jarEntry.getPath());
-            File file = forceJar ? null : new File(usePath);
-            byte[] content;
-            if (file != null && file.exists()) {
-                is = new FileInputStream(file);
-                length = file.length();
-                content = getBytesFromFile(is, length);
-            } else if (jarEntry != null) {
-                zipFile = new ZipFile(new File(jarEntry.getPath()), ZipFile.OPEN_READ);
-                if (jarEntry.analysisType == AnalysisType.WAR) {
-                    path = MiscConstants.WAR_PREFIX + path;
-                }
-                ZipEntry zipEntry = zipFile.getEntry(path);
-                length = zipEntry.getSize();
-                is = zipFile.getInputStream(zipEntry);
-                content = getBytesFromFile(is, length);
-            } else {
-                // Fallback - can we get the bytes using a java9 extractor?
-                content = getInternalContent(inputPath);
+            content = zipFileCache.getEntryContent(jarEntry.getPath(), path);
+            if (content == null) {
+                throw new NoSuchClassFileException("No such entry " + path + " in " + jarEntry.getPath());
             }
-
-            return Pair.make(content, inputPath);
-        } finally {
-            if (zipFile != null) zipFile.close();
+        } else {
+            // Fallback - can we get the bytes using a java9 extractor?
+            content = getInternalContent(inputPath);
         }
+
+        return Pair.make(content, inputPath);
     }
 
     /*
-     * There are costs associated in the Class.forName method of finding the URL for a class -
-     * notably the running of the static initialiser.
+     * As getClassFileContent, but if we've been asked to, loose class files are mapped rather than read.
      *
-     * We can avoid that by knowing what packages are in what modules, and skipping for those.
+     * Jar entries are always read - they're usually compressed, and even if we inflated into a shared
+     * buffer, the ClassFile keeps hold of its data for lazy parsing, so it couldn't be reused.
      */
-    @SuppressWarnings("unchecked")
-    private static Map<String, String> getPackageToModuleMap() {
-        Map<String, String> mapRes = MapFactory.newMap();
-        try {
-            Class moduleLayerClass = Class.forName("java.lang.ModuleLayer");
-            Method bootMethod = moduleLayerClass.getMethod("boot");
-            Object boot = bootMethod.invoke(null);
-            Method modulesMeth = boot.getClass().getMethod("modules");
-            Object modules = modulesMeth.invoke(boot);
-            Class moduleClass = Class.forName("java.lang.Module");
-            Method getPackagesMethod = moduleClass.getMethod("getPackages");
-            Method getNameMethod = moduleClass.getMethod("getName");
-            for (Object module : (Set)modules) {
-                Set<String> packageNames = (Set<String>)getPackagesMethod.invoke(module);
-                String moduleName = (String)getNameMethod.invoke(module);
-                for (String packageName : packageNames) {
-                    if (mapRes.containsKey(packageName)) {
-                        mapRes.put(packageName, null);
-                    } else {
-                        mapRes.put(packageName, moduleName);
-                    }
-                }
+    @Override
+    public Pair<ByteData, String> getClassFileData(String inputPath) throws IOException {
+        if (options.getOption(OptionsImpl.MAP_CLASS_FILES)) {
+            JarSourceEntry jarEntry = getClassPathClasses().get(inputPath);
+            File file = getLooseFile(getOriginalPath(inputPath), jarEntry);
+            if (file != null && file.exists()) {
+                return Pair.<ByteData, String>make(new BufferBackedByteData(mapFile(file)), inputPath);
             }
-        } catch (Exception e) {
-            // Ignore and return anything we have.
         }
-        return mapRes;
+        Pair<byte[], String> content = getClassFileContent(inputPath);
+        return Pair.<ByteData, String>make(new BaseByteData(content.getFirst()), content.getSecond());
     }
 
-    private byte[] getContentByFromReflectedClass(final String inputPath) {
+    /*
+     * The mapping remains valid after the channel is closed, and is released when the buffer is collected.
+     */
+    private static ByteBuffer mapFile(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
         try {
-            String classPath = inputPath.replace("/", ".").substring(0, inputPath.length() - 6);
-
-            Pair<String, String> packageAndClassNames = getPackageAndClassNames(classPath);
-
-            String packageName = packageAndClassNames.getFirst();
-            String moduleName = packMap.get(packageName);
-
-            if (moduleName != null) {
-                byte[] res = getUrlContent(new URL("jrt:/" + moduleName + "/" + inputPath));
-                if (res != null) return res;
-            }
-
-            // Going down this branch will trigger a class load, which will cause
-            // static initialisers to be run.
-            // This is expensive, but normally tolerable, except that there is a javafx
-            // static initialiser which crashes the VM if called unexpectedly!
-            Class cls;
-            try {
-                cls = Class.forName(classPath);
-            } catch (IllegalStateException e) {
-                return null;
-            }
-            int idx = inputPath.lastIndexOf("/");
-            String name = idx < 0 ? inputPath : inputPath.substring(idx + 1);
-
-            return getUrlContent(cls.getResource(name));
-        } catch (Exception e) {
-            // This exception handler doesn't add anything.
-            return null;
+            FileChannel channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();
         }
     }
 
-    private byte[] getUrlContent(URL url) {
-        String protocol = url.getProtocol();
-        // Strictly speaking, we could use this mechanism for pre-9 classes, but it's.... so wrong!
-        if (!protocol.equals("jrt")) return null;
+    private String getOriginalPath(String inputPath) {
+        if (classRenamer == null) return inputPath;
+        return classRenamer.getOriginalClass(inputPath);
+    }
 
-        InputStream is;
-        int len;
-        try {
-            URLConnection uc;
-            uc = url.openConnection();
-            uc.connect();
-            is = uc.getInputStream();
-            len = uc.getContentLength();
-        } catch (IOException ioe) {
-            return null;
+    /*
+     * Null if we must load this from its jar.
+     */
+    private File getLooseFile(String path, JarSourceEntry jarEntry) {
+        /*
+         * NB : pathPrefix will be empty the when we load the 'main' class,
+         * and only set if it's not in its 'natural' location.
+         */
+        String usePath = path;
+        if (unexpectedDirectory) {
+            if (usePath.startsWith(classRemovePrefix)) {
+                usePath = usePath.substring(classRemovePrefix.length());
+            }
+            usePath = pathPrefix + usePath;
         }
+        boolean forceJar = jarEntry != null && explicitJars.contains(jarEntry.getPath());
+        return forceJar ? null : new File(usePath);
+    }
 
-        try {
-            if (len >= 0) {
-                byte[] b = new byte[len];
-                int i = len;
-                while (i > 0) {
-                    if (i < (i -= is.read(b, len - i, i))) i = -1;
-                }
-                if (i == 0) return b;
+    /*
+     * Release any archives we're holding open.  They'll be reopened if we're used again.
+     */
+    @Override
+    public void close() {
+        zipFileCache.close();
+        synchronized (this) {
+            if (platformClasses != null) {
+                platformClasses.close();
+                platformClasses = null;
             }
-        } catch (IOException e) {
-            //
         }
-        return null;
     }
 
     private byte[] getInternalContent(final String inputPath) throws IOException {
-        if (JrtPresent) {
-            byte[] res = getContentByFromReflectedClass(inputPath);
-            if (res != null) return res;
+        byte[] res = getPlatformClasses().getContentOrNull(inputPath);
+        if (res != null) return res;
+        throw new NoSuchClassFileException("No such file " + inputPath);
+    }
+
+    /*
+     * If we've been given a JDK, its platform classes rather than our own.
+     */
+    private synchronized PlatformClassSource getPlatformClasses() {
+        if (platformClasses == null) {
+            String jdkHome = options.getOption(OptionsImpl.JDK_HOME);
+            platformClasses = jdkHome == null ? PlatformClassSource.getRunning() : PlatformClassSource.open(new File(jdkHome));
         }
-        throw new IOException("No such file " + inputPath);
+        return platformClasses;
     }
 
     @Deprecated
@@ -318,9 +269,14 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
 
             classToPathMap = MapFactory.newMap();
             String classPath = System.getProperty("java.class.path");
-            String sunBootClassPath = System.getProperty("sun.boot.class.path");
-            if (sunBootClassPath != null) {
-                classPath += File.pathSeparatorChar + sunBootClassPath;
+            String jdkHome = options.getOption(OptionsImpl.JDK_HOME);
+            if (jdkHome != null) {
+                classPath += File.pathSeparatorChar + getJdkClassPath(jdkHome);
+            } else {
+                String sunBootClassPath = System.getProperty("sun.boot.class.path");
+                if (sunBootClassPath != null) {
+                    classPath += File.pathSeparatorChar + sunBootClassPath;
+                }
             }
 
             if (dump) {
@@ -367,6 +323,22 @@ public class ClassFileSourceImpl implements ClassFileSource2 {
         return classToPathMap;
     }
 
+    /*
+     * A pre java 9 JDK (or JRE) keeps its platform classes in jars - the directories holding them are
+     * searched like any other.  A 9+ image has none of these, see PlatformClassSource.
+     */
+    private static String getJdkClassPath(String jdkHome) {
+        File home = new File(jdkHome);
+        if (!home.isDirectory()) {
+            throw new ConfusedCFRException("No such JDK " + jdkHome);
+        }
+        if (new File(home, "lib/modules").exists()) return "";
+        File jre = new File(home, "jre");
+        if (!jre.isDirectory()) jre = home;
+        File lib = new File(jre, "lib");
+        return lib.getPath() + File.pathSeparatorChar + new File(lib, "ext").getPath();
+    }
+
     private void processClassPathFile(File file, String absolutePath, Map<String, JarSourceEntry> classToPathMap, AnalysisType analysisType, boolean dump) {
         JarContent content = processClassPathFile(file, dump, analysisType);
         if (content == null) {
@@ -7,65 +7,101 @@ import org.benf.cfr.reader.bytecode.analysis.types.ClassNameUtils;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaRefTypeInstance;
 import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
 import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.entities.ClassHeader;
 import org.benf.cfr.reader.mapping.NullMapping;
 import org.benf.cfr.reader.mapping.ObfuscationMapping;
 import org.benf.cfr.reader.util.AnalysisType;
 import org.benf.cfr.reader.util.CannotLoadClassException;
 import org.benf.cfr.reader.util.DecompilerComment;
 import org.benf.cfr.reader.util.MiscConstants;
+import org.benf.cfr.reader.util.PendingResults;
 import org.benf.cfr.reader.util.bytestream.BaseByteData;
 import org.benf.cfr.reader.util.bytestream.ByteData;
+import org.benf.cfr.reader.util.collections.LazyExceptionRetainingMap;
 import org.benf.cfr.reader.util.collections.ListFactory;
 import org.benf.cfr.reader.util.collections.MapFactory;
 import org.benf.cfr.reader.util.collections.SetFactory;
 import org.benf.cfr.reader.util.functors.BinaryFunction;
 import org.benf.cfr.reader.util.functors.UnaryFunction;
 import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 
 public class DCCommonState {
 
     private final ClassCache classCache;
+    private final DescriptorCache descriptorCache = new DescriptorCache();
     private final ClassFileSource2 classFileSource;
     private final Options options;
-    private final Map<String, ClassFile> classFileCache;
+    private final LazyExceptionRetainingMap<String, ClassFile> classFileCache;
+    /*
+     * With a budget, dependencies (classes which aren't part of an input) are tracked least recently used first,
+     * so they can be dropped.  Guarded by classFileCache.
+     */
+    private final long classFileBudget;
+    private final Map<String, ClassFile> dependencyClassFiles = MapFactory.newAccessOrderedMap();
+    private long dependencyBytes;
+    private final AtomicLong generation = new AtomicLong();
+    private final Set<String> inputPaths;
     private Set<JavaTypeInstance> versionCollisions;
-    private transient LinkedHashSet<String> couldNotLoadClasses = new LinkedHashSet<String>();
+    private final Set<String> couldNotLoadClasses = Collections.synchronizedSet(new LinkedHashSet<String>());
     private final ObfuscationMapping obfuscationMapping;
+    private final AnalysisMetrics metrics;
+    /*
+     * Loads and analyses other threads are waiting for.  States derived from this one share it, as a thread
+     * may be waiting on work in either.
+     */
+    private final PendingResults pendingResults;
 
     public DCCommonState(Options options, ClassFileSource2 classFileSource) {
+        this(options, classFileSource, AnalysisMetrics.NONE);
+    }
+
+    public DCCommonState(Options options, ClassFileSource2 classFileSource, AnalysisMetrics metrics) {
         this.options = options;
         this.classFileSource = classFileSource;
         this.classCache = new ClassCache(this);
-        this.classFileCache = MapFactory.newExceptionRetainingLazyMap(new UnaryFunction<String, ClassFile>() {
+        this.classFileBudget = getClassFileBudget(options);
+        this.pendingResults = new PendingResults();
+        this.classFileCache = newClassFileCache(new UnaryFunction<String, ClassFile>() {
             @Override
             public ClassFile invoke(String arg) {
                 return loadClassFileAtPath(arg);
             }
         });
+        this.inputPaths = SetFactory.newSet();
         this.versionCollisions = SetFactory.newSet();
         this.obfuscationMapping = NullMapping.INSTANCE;
+        this.metrics = metrics;
     }
 
     public DCCommonState(DCCommonState dcCommonState, final BinaryFunction<String, DCCommonState, ClassFile> cacheAccess) {
         this.options = dcCommonState.options;
         this.classFileSource = dcCommonState.classFileSource;
         this.classCache = new ClassCache(this);
-        this.classFileCache = MapFactory.newExceptionRetainingLazyMap(new UnaryFunction<String, ClassFile>() {
+        this.classFileBudget = getClassFileBudget(options);
+        this.pendingResults = dcCommonState.pendingResults;
+        this.classFileCache = newClassFileCache(new UnaryFunction<String, ClassFile>() {
             @Override
             public ClassFile invoke(String arg) {
                 return cacheAccess.invoke(arg, DCCommonState.this);
             }
         });
+        this.inputPaths = dcCommonState.inputPaths;
         this.versionCollisions = dcCommonState.versionCollisions;
         this.obfuscationMapping = dcCommonState.obfuscationMapping;
+        this.metrics = dcCommonState.metrics;
     }
 
     // TODO : If we have any more of these, refactor to a builder!
@@ -73,14 +109,126 @@ public class DCCommonState {
         this.options = dcCommonState.options;
         this.classFileSource = dcCommonState.classFileSource;
         this.classCache = new ClassCache(this);
-        this.classFileCache = MapFactory.newExceptionRetainingLazyMap(new UnaryFunction<String, ClassFile>() {
+        this.classFileBudget = getClassFileBudget(options);
+        this.pendingResults = dcCommonState.pendingResults;
+        this.classFileCache = newClassFileCache(new UnaryFunction<String, ClassFile>() {
             @Override
             public ClassFile invoke(String arg) {
                 return loadClassFileAtPath(arg);
             }
         });
+        this.inputPaths = dcCommonState.inputPaths;
         this.versionCollisions = dcCommonState.versionCollisions;
         this.obfuscationMapping = mapping;
+        this.metrics = dcCommonState.metrics;
+    }
+
+    /*
+     * 0 if there's no limit.  Renaming members changes classes before any of them are analysed, so they can't be
+     * reloaded.
+     */
+    private static long getClassFileBudget(Options options) {
+        if (options.getOption(OptionsImpl.RENAME_DUP_MEMBERS) ||
+            options.getOption(OptionsImpl.RENAME_ENUM_MEMBERS)) {
+            return 0;
+        }
+        return options.getOption(OptionsImpl.CLASS_CACHE_SIZE) * 1024L * 1024L;
+    }
+
+    private LazyExceptionRetainingMap<String, ClassFile> newClassFileCache(final UnaryFunction<String, ClassFile> loader) {
+        if (classFileBudget == 0) return MapFactory.newExceptionRetainingLazyMap(loader, pendingResults);
+        return MapFactory.newExceptionRetainingLazyMap(new UnaryFunction<String, ClassFile>() {
+            @Override
+            public ClassFile invoke(String arg) {
+                ClassFile classFile = loader.invoke(arg);
+                if (!inputPaths.contains(arg)) {
+                    synchronized (classFileCache) {
+                        dependencyClassFiles.put(arg, classFile);
+                        dependencyBytes += classFile.getRawByteLength();
+                    }
+                }
+                return classFile;
+            }
+        }, pendingResults);
+    }
+
+    /*
+     * With a budget, every lookup stamps the class with the current generation - so that we know which classes
+     * analysis still in progress may be holding on to.
+     */
+    public long beginGeneration() {
+        return generation.incrementAndGet();
+    }
+
+    private ClassFile noteUsed(String path, ClassFile classFile) {
+        if (classFileBudget == 0 || classFile == null) return classFile;
+        classFile.noteUsed(generation.get());
+        synchronized (classFileCache) {
+            dependencyClassFiles.get(path); // Most recently used, now.
+        }
+        return classFile;
+    }
+
+    /*
+     * If dependencies take more than the budget, drop the least recently used ones which haven't been used
+     * since before the given generation.  They'll be loaded again if they're needed - types are held by the
+     * ClassCache, so don't change.
+     *
+     * Classes which are part of an input are kept, even once dumped.  Analysing one class changes others (it
+     * marks overrides, hides synthetic members and arguments, ...), and later classes see those changes - a
+     * fresh copy wouldn't have them.
+     *
+     * The budget is in class file bytes - a class takes rather more than its class file once loaded, but it's
+     * proportionate, and cheap to know.
+     */
+    public void trimClassFiles(long beforeGeneration) {
+        if (classFileBudget == 0) return;
+        synchronized (classFileCache) {
+            Iterator<Map.Entry<String, ClassFile>> iterator = dependencyClassFiles.entrySet().iterator();
+            while (dependencyBytes > classFileBudget && iterator.hasNext()) {
+                Map.Entry<String, ClassFile> entry = iterator.next();
+                ClassFile classFile = entry.getValue();
+                if (classFile.getLastUsedGeneration() >= beforeGeneration || !classFile.isReloadable()) continue;
+                iterator.remove();
+                classFileCache.remove(entry.getKey());
+                dependencyBytes -= classFile.getRawByteLength();
+            }
+        }
+    }
+
+    /*
+     * When we're shared between inputs, forget anything specific to the previous one.
+     *
+     * Analysis changes a class (and marks types it uses), so analysed classes can't be kept.  Nor can classes
+     * which have simply been loaded - loading notes the names of the types a class uses (ClassCache.isClassName),
+     * and the class then holds on to those types, so a kept class would never note them for the next input.
+     * So every class is reloaded if it's needed - what's shared is the types themselves.
+     */
+    public void beginInput() {
+        List<String> loaded;
+        synchronized (classFileCache) {
+            loaded = ListFactory.newList(classFileCache.keySet());
+        }
+        for (String path : loaded) {
+            forgetClassFile(path);
+        }
+        classCache.beginInput();
+        descriptorCache.clear();
+        versionCollisions = SetFactory.newSet();
+    }
+
+    /*
+     * Make sure path is loaded again next time it's needed (or that we try again, if it failed).
+     */
+    public void forgetClassFile(String path) {
+        ClassFile classFile;
+        synchronized (classFileCache) {
+            classFile = classFileCache.remove(path);
+            if (dependencyClassFiles.remove(path) != null) dependencyBytes -= classFile.getRawByteLength();
+        }
+        if (classFile != null) {
+            classFile.getRefClassType().clearBindingSupers();
+        }
     }
 
     public void setCollisions(Set<JavaTypeInstance> versionCollisions) {
@@ -106,15 +254,36 @@ public class DCCommonState {
 
     public ClassFile loadClassFileAtPath(final String path) {
         try {
-            Pair<byte[], String> content = classFileSource.getClassFileContent(path);
-            ByteData data = new BaseByteData(content.getFirst());
-            return new ClassFile(data, content.getSecond(), this);
+            Pair<ByteData, String> content = getClassFileData(path);
+            return new ClassFile(content.getFirst(), content.getSecond(), this);
+        } catch (NoSuchClassFileException e) {
+            couldNotLoadClasses.add(path);
+            throw CannotLoadClassException.missing(path, e);
         } catch (Exception e) {
             couldNotLoadClasses.add(path);
             throw new CannotLoadClassException(path, e);
         }
     }
 
+    private Pair<ByteData, String> getClassFileData(String path) throws IOException {
+        if (classFileSource instanceof ClassFileDataSource) {
+            return ((ClassFileDataSource) classFileSource).getClassFileData(path);
+        }
+        Pair<byte[], String> content = classFileSource.getClassFileContent(path);
+        return Pair.<ByteData, String>make(new BaseByteData(content.getFirst()), content.getSecond());
+    }
+
+    /*
+     * Null if it can't be read (or skimmed) - see ClassHeader.
+     */
+    public ClassHeader getClassHeaderOrNull(String path, boolean withReferences) {
+        try {
+            return ClassHeader.scanOrNull(getClassFileData(path).getFirst(), withReferences);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     public DecompilerComment renamedTypeComment(String typeName) {
         String originalName = classCache.getOriginalName(typeName);
         if (originalName != null) {
@@ -142,6 +311,9 @@ public class DCCommonState {
         boolean isMultiReleaseJar = isMultiReleaseJar(jarContent);
 
         for (String classPath : jarContent.getClassFiles()) {
+            // If we're shared with a previous input, we may have loaded (or failed to load) this
+            // from elsewhere - it should come from this jar now.
+            forgetClassFile(classPath);
             // If the classPath is from a multi release jar, then we're going
             // to have to process it in a more unpleasant way.
             int version = 0;
@@ -165,6 +337,7 @@ public class DCCommonState {
 
             // Redundant test as we're defending against a bad implementation.
             if (classPath.toLowerCase().endsWith(".class")) {
+                inputPaths.add(classPath);
                 res.get(version).add(classCache.getRefClassFor(classPath.substring(0, classPath.length() - 6)));
             }
         }
@@ -172,22 +345,33 @@ public class DCCommonState {
     }
 
     public ClassFile getClassFile(String path) throws CannotLoadClassException {
-        return classFileCache.get(path);
+        return noteUsed(path, classFileCache.get(path));
+    }
+
+    /*
+     * As getClassFile, but null if it can't be loaded.  Missing classes are the normal case, and are remembered,
+     * so asking about them again is cheap.
+     */
+    public ClassFile getClassFileOrNull(String path) {
+        return noteUsed(path, classFileCache.getOrNull(path));
     }
 
     public JavaRefTypeInstance getClassTypeOrNull(String path) {
-        try {
-            ClassFile classFile = getClassFile(path);
-            return (JavaRefTypeInstance) classFile.getClassType();
-        } catch (CannotLoadClassException e) {
-            return null;
-        }
+        ClassFile classFile = getClassFileOrNull(path);
+        if (classFile == null) return null;
+        return (JavaRefTypeInstance) classFile.getClassType();
     }
 
     public ClassFile getClassFile(JavaTypeInstance classInfo) throws CannotLoadClassException {
-        String path = classInfo.getRawName();
-        path = ClassNameUtils.convertToPath(path) + ".class";
-        return getClassFile(path);
+        return getClassFile(getPath(classInfo));
+    }
+
+    public ClassFile getClassFileOrNull(JavaTypeInstance classInfo) {
+        return getClassFileOrNull(getPath(classInfo));
+    }
+
+    private static String getPath(JavaTypeInstance classInfo) {
+        return ClassNameUtils.convertToPath(classInfo.getRawName()) + ".class";
     }
 
     public ClassFile getClassFileMaybePath(String pathOrName) throws CannotLoadClassException {
@@ -208,10 +392,22 @@ public class DCCommonState {
         return classCache;
     }
 
+    public DescriptorCache getDescriptorCache() {
+        return descriptorCache;
+    }
+
     public Options getOptions() {
         return options;
     }
 
+    public AnalysisMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PendingResults getPendingResults() {
+        return pendingResults;
+    }
+
     // No fancy file identification right now, just very very simple.
     public AnalysisType detectClsJar(String path) {
         String lcPath = path.toLowerCase();
@@ -0,0 +1,66 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
+import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The same descriptors ("Ljava/lang/String;", "(Ljava/lang/Object;)Z") turn up in nearly every class - rather
+ * than parse them again for every constant pool, we keep what they parsed to, so that every class shares the
+ * same type objects.
+ *
+ * Only erased descriptors are held - anything mentioning a type variable belongs to the class (or method) which
+ * declares it, and generic types are built differently depending on their context.  Erased types are all made
+ * from ClassCache's types, so are only valid for the DCCommonState which owns that.
+ *
+ * Argument lists are shared, so must not be changed - callers copy them.
+ *
+ * Bounded, least recently used first out; shared between analysis threads.
+ */
+public class DescriptorCache {
+    private static final int MAX_TYPES = 16384;
+    private static final int MAX_PROTOTYPES = 8192;
+
+    private final Map<String, JavaTypeInstance> types = newBoundedMap(MAX_TYPES);
+    private final Map<String, Pair<List<JavaTypeInstance>, JavaTypeInstance>> prototypes = newBoundedMap(MAX_PROTOTYPES);
+
+    private static <X, Y> Map<X, Y> newBoundedMap(final int max) {
+        return new LinkedHashMap<X, Y>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<X, Y> eldest) {
+                return size() > max;
+            }
+        };
+    }
+
+    public synchronized JavaTypeInstance getTypeOrNull(String descriptor) {
+        return types.get(descriptor);
+    }
+
+    public synchronized void putType(String descriptor, JavaTypeInstance type) {
+        types.put(descriptor, type);
+    }
+
+    /*
+     * Argument types, and result type.
+     */
+    public synchronized Pair<List<JavaTypeInstance>, JavaTypeInstance> getPrototypeOrNull(String descriptor) {
+        return prototypes.get(descriptor);
+    }
+
+    public synchronized void putPrototype(String descriptor, Pair<List<JavaTypeInstance>, JavaTypeInstance> prototype) {
+        prototypes.put(descriptor, prototype);
+    }
+
+    /*
+     * Looking up a type notes its name as seen (see ClassCache.beginInput) - a new input must look everything up
+     * again.
+     */
+    synchronized void clear() {
+        types.clear();
+        prototypes.clear();
+    }
+}
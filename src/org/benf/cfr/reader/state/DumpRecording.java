@@ -0,0 +1,240 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.bytecode.analysis.types.JavaRefTypeInstance;
+import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
+import org.benf.cfr.reader.bytecode.analysis.types.MethodPrototype;
+import org.benf.cfr.reader.entities.Method;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.output.Dumper;
+
+import java.util.List;
+
+/*
+ * The calls made on a dumper while dumping something, so they can be made again on another dumper.
+ *
+ * Types are kept as types, not names - how a type is named depends on the type usage information (imports)
+ * of the dumper it's eventually replayed into.
+ *
+ * If what was dumped asked anything of the dumper which a real dumper would answer differently
+ * (eg its type usage information), then the recording can't be trusted, and isn't replayable.
+ */
+class DumpRecording {
+    private enum Op {
+        LABEL,
+        ENQUEUE_CR,
+        REMOVE_CR,
+        KEYWORD,
+        OPERATOR,
+        SEPARATOR,
+        LITERAL,
+        PRINT,
+        PRINT_CHAR,
+        METHOD_NAME,
+        PACKAGE_NAME,
+        IDENTIFIER,
+        NEWLN,
+        END_CODELN,
+        INDENT,
+        SUMMARY_ERROR,
+        EMIT_CLASS,
+        FIELD_NAME,
+        COMMENT,
+        BEGIN_BLOCK_COMMENT,
+        END_BLOCK_COMMENT,
+        TYPE,
+        NESTED
+    }
+
+    /*
+     * Each op is followed by its arguments.
+     */
+    private final List<Object> ops = ListFactory.newList();
+    private boolean replayable = true;
+
+    void markUnreplayable() {
+        replayable = false;
+    }
+
+    boolean isReplayable() {
+        return replayable;
+    }
+
+    void label(String s, boolean inline) {
+        add(Op.LABEL, s, inline);
+    }
+
+    void enqueuePendingCarriageReturn() {
+        ops.add(Op.ENQUEUE_CR);
+    }
+
+    void removePendingCarriageReturn() {
+        ops.add(Op.REMOVE_CR);
+    }
+
+    void keyword(String s) {
+        add(Op.KEYWORD, s);
+    }
+
+    void operator(String s) {
+        add(Op.OPERATOR, s);
+    }
+
+    void separator(String s) {
+        add(Op.SEPARATOR, s);
+    }
+
+    void literal(String s, Object o) {
+        add(Op.LITERAL, s, o);
+    }
+
+    void print(String s) {
+        add(Op.PRINT, s);
+    }
+
+    void print(char c) {
+        add(Op.PRINT_CHAR, c);
+    }
+
+    void methodName(String s, MethodPrototype p, boolean special, boolean defines) {
+        add(Op.METHOD_NAME, s, p, special, defines);
+    }
+
+    void packageName(JavaRefTypeInstance t) {
+        add(Op.PACKAGE_NAME, t);
+    }
+
+    void identifier(String s, Object ref, boolean defines) {
+        add(Op.IDENTIFIER, s, ref, defines);
+    }
+
+    void newln() {
+        ops.add(Op.NEWLN);
+    }
+
+    void endCodeln() {
+        ops.add(Op.END_CODELN);
+    }
+
+    void indent(int diff) {
+        add(Op.INDENT, diff);
+    }
+
+    void addSummaryError(Method method, String s) {
+        add(Op.SUMMARY_ERROR, method, s);
+    }
+
+    void canEmitClass(JavaTypeInstance type) {
+        add(Op.EMIT_CLASS, type);
+    }
+
+    void fieldName(String name, JavaTypeInstance owner, boolean hiddenDeclaration, boolean isStatic, boolean defines) {
+        add(Op.FIELD_NAME, name, owner, hiddenDeclaration, isStatic, defines);
+    }
+
+    void comment(String s) {
+        add(Op.COMMENT, s);
+    }
+
+    void beginBlockComment(boolean inline) {
+        add(Op.BEGIN_BLOCK_COMMENT, inline);
+    }
+
+    void endBlockComment() {
+        ops.add(Op.END_BLOCK_COMMENT);
+    }
+
+    void type(JavaTypeInstance type) {
+        add(Op.TYPE, type);
+    }
+
+    void nested(DumpRecording recording) {
+        add(Op.NESTED, recording);
+    }
+
+    private void add(Op op, Object... args) {
+        ops.add(op);
+        for (Object arg : args) {
+            ops.add(arg);
+        }
+    }
+
+    void replay(Dumper d) {
+        int idx = 0;
+        int len = ops.size();
+        while (idx < len) {
+            Op op = (Op) ops.get(idx++);
+            switch (op) {
+                case LABEL:
+                    d.label((String) ops.get(idx++), (Boolean) ops.get(idx++));
+                    break;
+                case ENQUEUE_CR:
+                    d.enqueuePendingCarriageReturn();
+                    break;
+                case REMOVE_CR:
+                    d.removePendingCarriageReturn();
+                    break;
+                case KEYWORD:
+                    d.keyword((String) ops.get(idx++));
+                    break;
+                case OPERATOR:
+                    d.operator((String) ops.get(idx++));
+                    break;
+                case SEPARATOR:
+                    d.separator((String) ops.get(idx++));
+                    break;
+                case LITERAL:
+                    d.literal((String) ops.get(idx++), ops.get(idx++));
+                    break;
+                case PRINT:
+                    d.print((String) ops.get(idx++));
+                    break;
+                case PRINT_CHAR:
+                    d.print((Character) ops.get(idx++));
+                    break;
+                case METHOD_NAME:
+                    d.methodName((String) ops.get(idx++), (MethodPrototype) ops.get(idx++), (Boolean) ops.get(idx++), (Boolean) ops.get(idx++));
+                    break;
+                case PACKAGE_NAME:
+                    d.packageName((JavaRefTypeInstance) ops.get(idx++));
+                    break;
+                case IDENTIFIER:
+                    d.identifier((String) ops.get(idx++), ops.get(idx++), (Boolean) ops.get(idx++));
+                    break;
+                case NEWLN:
+                    d.newln();
+                    break;
+                case END_CODELN:
+                    d.endCodeln();
+                    break;
+                case INDENT:
+                    d.indent((Integer) ops.get(idx++));
+                    break;
+                case SUMMARY_ERROR:
+                    d.addSummaryError((Method) ops.get(idx++), (String) ops.get(idx++));
+                    break;
+                case EMIT_CLASS:
+                    // The answer was the same when recorded - but the dumper has to know it's been emitted.
+                    d.canEmitClass((JavaTypeInstance) ops.get(idx++));
+                    break;
+                case FIELD_NAME:
+                    d.fieldName((String) ops.get(idx++), (JavaTypeInstance) ops.get(idx++), (Boolean) ops.get(idx++), (Boolean) ops.get(idx++), (Boolean) ops.get(idx++));
+                    break;
+                case COMMENT:
+                    d.comment((String) ops.get(idx++));
+                    break;
+                case BEGIN_BLOCK_COMMENT:
+                    d.beginBlockComment((Boolean) ops.get(idx++));
+                    break;
+                case END_BLOCK_COMMENT:
+                    d.endBlockComment();
+                    break;
+                case TYPE:
+                    d.dump((JavaTypeInstance) ops.get(idx++));
+                    break;
+                case NESTED:
+                    ((DumpRecording) ops.get(idx++)).replay(d);
+                    break;
+            }
+        }
+    }
+}
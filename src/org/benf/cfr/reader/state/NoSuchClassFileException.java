@@ -0,0 +1,17 @@
+package org.benf.cfr.reader.state;
+
+import java.io.IOException;
+
+/*
+ * Nothing to load at a path.  Like CannotLoadClassException.missing, this is expected, so has no stack trace.
+ */
+class NoSuchClassFileException extends IOException {
+    NoSuchClassFileException(String s) {
+        super(s);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,177 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.util.ConfusedCFRException;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.MapFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Classes belonging to a java 9+ platform, which live in a jimage (lib/modules) rather than a jar.
+ *
+ * These are read through the jrt filesystem - either the running VM's, or that of another JDK, via the
+ * jrt-fs.jar it ships.  Nothing is loaded into the VM (Class.forName would run static initialisers, which
+ * is slow at best).
+ *
+ * The image's /packages directory tells us which module(s) hold each package, so a class in a package the
+ * platform doesn't have is rejected without any further I/O.
+ *
+ * This is all done by reflection, as we have to run (without platform classes) on a java 6 VM.
+ */
+class PlatformClassSource {
+    private static final PlatformClassSource NONE = new PlatformClassSource(null, false);
+    private static PlatformClassSource running;
+
+    private final Object fileSystem; // java.nio.file.FileSystem
+    private final boolean owned;
+    private Map<String, List<String>> packageToModules;
+
+    private PlatformClassSource(Object fileSystem, boolean owned) {
+        this.fileSystem = fileSystem;
+        this.owned = owned;
+    }
+
+    /*
+     * The running VM's platform classes, if it has a jrt filesystem.
+     */
+    static synchronized PlatformClassSource getRunning() {
+        if (running == null) {
+            try {
+                Class<?> fileSystems = Class.forName("java.nio.file.FileSystems");
+                Object fileSystem = fileSystems.getMethod("getFileSystem", URI.class).invoke(null, URI.create("jrt:/"));
+                running = new PlatformClassSource(fileSystem, false);
+            } catch (Exception e) {
+                running = NONE;
+            }
+        }
+        return running;
+    }
+
+    /*
+     * The platform classes of the JDK at jdkHome.
+     *
+     * If it's from before java 9, its classes are in jars, which are handled with the rest of the class path;
+     * there's nothing for us to do.
+     */
+    static PlatformClassSource open(File jdkHome) {
+        if (!new File(jdkHome, "lib/modules").exists()) return NONE;
+        File jrtFs = new File(jdkHome, "lib/jrt-fs.jar");
+        try {
+            Map<String, String> env = Collections.singletonMap("java.home", jdkHome.getAbsolutePath());
+            // A 9+ VM has a jrt provider, which will use jdkHome's jrt-fs.jar itself.  An 8 VM will find
+            // it through the loader.
+            ClassLoader loader = new URLClassLoader(new URL[]{jrtFs.toURI().toURL()});
+            Class<?> fileSystems = Class.forName("java.nio.file.FileSystems");
+            Object fileSystem = fileSystems.getMethod("newFileSystem", URI.class, Map.class, ClassLoader.class)
+                    .invoke(null, URI.create("jrt:/"), env, loader);
+            return new PlatformClassSource(fileSystem, true);
+        } catch (Exception e) {
+            throw new ConfusedCFRException("Can't read JDK image at " + jdkHome + " : " + getCause(e));
+        }
+    }
+
+    private static Throwable getCause(Exception e) {
+        if (e instanceof InvocationTargetException) return ((InvocationTargetException) e).getCause();
+        return e;
+    }
+
+    /*
+     * Null if there's no such class.
+     */
+    byte[] getContentOrNull(String path) {
+        if (fileSystem == null) return null;
+        int idx = path.lastIndexOf('/');
+        if (idx < 0) return null;
+        List<String> modules = getPackageToModules().get(path.substring(0, idx).replace('/', '.'));
+        if (modules == null) return null;
+        try {
+            for (String module : modules) {
+                Object file = getPath("/modules", module, path);
+                try {
+                    return (byte[]) Reflected.readAllBytes.invoke(null, file);
+                } catch (InvocationTargetException e) {
+                    if (!(e.getCause() instanceof IOException)) throw e;
+                    // Not in this module.
+                }
+            }
+        } catch (Exception e) {
+            // Treat as missing.
+        }
+        return null;
+    }
+
+    private synchronized Map<String, List<String>> getPackageToModules() {
+        if (packageToModules == null) {
+            Map<String, List<String>> res = MapFactory.newMap();
+            try {
+                for (String packageName : list(getPath("/packages"))) {
+                    res.put(packageName, list(getPath("/packages", packageName)));
+                }
+            } catch (Exception e) {
+                // Use anything we have.
+            }
+            packageToModules = res;
+        }
+        return packageToModules;
+    }
+
+    private Object getPath(String first, String... more) throws Exception {
+        return Reflected.getPath.invoke(fileSystem, first, more);
+    }
+
+    private static List<String> list(Object dir) throws Exception {
+        List<String> res = ListFactory.newList();
+        Closeable stream = (Closeable) Reflected.newDirectoryStream.invoke(null, dir);
+        try {
+            for (Object child : (Iterable<?>) stream) {
+                res.add(Reflected.getFileName.invoke(child).toString());
+            }
+        } finally {
+            stream.close();
+        }
+        return res;
+    }
+
+    void close() {
+        if (!owned) return;
+        try {
+            ((Closeable) fileSystem).close();
+        } catch (IOException e) {
+            // Nothing useful to do.
+        }
+    }
+
+    /*
+     * Only initialised if we actually have a filesystem, so only if these exist.
+     */
+    private static class Reflected {
+        private static final Method getPath;
+        private static final Method getFileName;
+        private static final Method newDirectoryStream;
+        private static final Method readAllBytes;
+
+        static {
+            try {
+                Class<?> fileSystemClass = Class.forName("java.nio.file.FileSystem");
+                Class<?> pathClass = Class.forName("java.nio.file.Path");
+                Class<?> filesClass = Class.forName("java.nio.file.Files");
+                getPath = fileSystemClass.getMethod("getPath", String.class, String[].class);
+                getFileName = pathClass.getMethod("getFileName");
+                newDirectoryStream = filesClass.getMethod("newDirectoryStream", pathClass);
+                readAllBytes = filesClass.getMethod("readAllBytes", pathClass);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.util.output.DelegatingDumper;
+import org.benf.cfr.reader.util.output.Dumpable;
+import org.benf.cfr.reader.util.output.Dumper;
+
+import java.util.LinkedList;
+import java.util.Map;
+
+/*
+ * Where we have a usable recording of something being dumped, replay it rather than dumping it again.
+ */
+class ReplayingDumper extends DelegatingDumper {
+    private final Map<Dumpable, LinkedList<DumpRecording>> recordings;
+
+    ReplayingDumper(Dumper delegate, Map<Dumpable, LinkedList<DumpRecording>> recordings) {
+        super(delegate);
+        this.recordings = recordings;
+    }
+
+    @Override
+    public Dumper dump(Dumpable d) {
+        LinkedList<DumpRecording> pending = d == null ? null : recordings.get(d);
+        DumpRecording recording = pending == null ? null : pending.poll();
+        if (recording == null || !recording.isReplayable()) {
+            return super.dump(d);
+        }
+        recording.replay(this);
+        return this;
+    }
+
+    @Override
+    public Dumper withTypeUsageInformation(TypeUsageInformation innerclassTypeUsageInformation) {
+        return new ReplayingDumper(delegate.withTypeUsageInformation(innerclassTypeUsageInformation), recordings);
+    }
+}
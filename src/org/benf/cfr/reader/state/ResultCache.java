@@ -0,0 +1,241 @@
+package org.benf.cfr.reader.state;
+
+import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.util.MiscConstants;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.SetFactory;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Persistent store of decompiled output, so that unchanged classes don't have to be decompiled again.
+ *
+ * An entry is keyed by a hash of everything that goes into the class's output which we can cheaply see -
+ * the bytes of the class and its inner classes, the CFR version, and the options that affect output.
+ * When a class is decompiled as part of a jar, the rest of the jar matters too (analysing one class marks
+ * overrides and synthetic members on others, and their names are avoided when naming variables), so the
+ * whole jar is hashed into the key - see forJarOrNull.
+ * What it can't see is the rest of the classpath; if a dependency changes in a way which affects how a
+ * class is decompiled, a stale result will be used.
+ *
+ * Entries are written to a temporary file and renamed into place, so concurrent runs can share a cache
+ * directory; at worst they duplicate work.  When we've added to the cache, least recently used entries
+ * are evicted to keep it within its size limit.
+ */
+public class ResultCache {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    /*
+     * These change where (or whether) output goes, not what it is.
+     */
+    private static final Set<String> OUTPUT_ONLY_OPTIONS = SetFactory.newSet(
+            OptionsImpl.OUTPUT_DIR.getName(), OptionsImpl.OUTPUT_PATH.getName(), OptionsImpl.OUTPUT_ZIP.getName(),
+            OptionsImpl.ASYNC_OUTPUT.getName(), OptionsImpl.CLOBBER_FILES.getName(),
+            OptionsImpl.SILENT.getName(), OptionsImpl.DUMP_CLASS_PATH.getName(),
+            OptionsImpl.THREADS.getName(), OptionsImpl.MAP_CLASS_FILES.getName(),
+            OptionsImpl.CACHE_DIR.getName(), OptionsImpl.CACHE_SIZE.getName(), OptionsImpl.METRICS.getName());
+
+    private final File dir;
+    private final long maxBytes;
+    private final String optionsKey;
+    // Shared with caches made by forJarOrNull.
+    private final AtomicLong bytesWritten;
+
+    private ResultCache(File dir, long maxBytes, String optionsKey, AtomicLong bytesWritten) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.optionsKey = optionsKey;
+        this.bytesWritten = bytesWritten;
+    }
+
+    /*
+     * Returns null if we've not been asked to cache, or if the options in use make output depend on more than
+     * the class itself (renaming is decided across the whole jar).
+     */
+    public static ResultCache create(Options options) {
+        String cacheDir = options.getOption(OptionsImpl.CACHE_DIR);
+        if (cacheDir == null) return null;
+        if (!(options instanceof OptionsImpl)) return null;
+        if (options.getOption(OptionsImpl.RENAME_DUP_MEMBERS) ||
+            options.getOption(OptionsImpl.RENAME_ENUM_MEMBERS) ||
+            options.getOption(OptionsImpl.RENAME_ILLEGAL_IDENTS) ||
+            options.optionIsSet(OptionsImpl.OBFUSCATION_PATH)) {
+            return null;
+        }
+        File dir = new File(cacheDir);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("Couldn't create dir: " + dir);
+        }
+        long maxBytes = options.getOption(OptionsImpl.CACHE_SIZE) * MEGABYTE;
+        return new ResultCache(dir, maxBytes, getOptionsKey(((OptionsImpl) options).getOptionStrings()), new AtomicLong());
+    }
+
+    /*
+     * A cache for the classes of the jar at path, whose keys include the whole jar.
+     * Null if we can't read the jar, in which case nothing from it should be cached.
+     */
+    public ResultCache forJarOrNull(String path) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            InputStream is = new FileInputStream(path);
+            try {
+                byte[] buffer = new byte[65536];
+                int numRead;
+                while ((numRead = is.read(buffer)) >= 0) {
+                    digest.update(buffer, 0, numRead);
+                }
+            } finally {
+                is.close();
+            }
+            return new ResultCache(dir, maxBytes, optionsKey + "jar=" + toHex(digest.digest()) + "\n", bytesWritten);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String getOptionsKey(Map<String, String> opts) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<String, String>(opts).entrySet()) {
+            if (OUTPUT_ONLY_OPTIONS.contains(entry.getKey())) continue;
+            sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Must be called after inner classes have been loaded.
+     * Returns null if we can't hash, in which case the class shouldn't be cached.
+     */
+    public String getKey(ClassFile classFile) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update((MiscConstants.CFR_VERSION + "\n" + optionsKey).getBytes(UTF8));
+            List<ClassFile> classFiles = ListFactory.newList();
+            classFiles.add(classFile);
+            classFiles.addAll(classFile.getLoadedInnerClasses());
+            for (ClassFile contributor : classFiles) {
+                digest.update(contributor.getUsePath().getBytes(UTF8));
+                digest.update(contributor.getRawBytes());
+            }
+            return toHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private File getEntryFile(String key) {
+        return new File(new File(dir, key.substring(0, 2)), key);
+    }
+
+    /*
+     * Null if we don't have it.  May be called from analysis threads.
+     */
+    public String get(String key) {
+        File file = getEntryFile(key);
+        if (!file.isFile()) return null;
+        try {
+            byte[] content = readFully(file);
+            // Touch, so that eviction is least recently used, rather than least recently written.
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+            return new String(content, UTF8);
+        } catch (IOException e) {
+            // Probably evicted by someone else as we read it.
+            return null;
+        }
+    }
+
+    public synchronized void put(String key, String content) {
+        File file = getEntryFile(key);
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) return;
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(key, ".tmp", parent);
+            byte[] bytes = content.getBytes(UTF8);
+            OutputStream os = new FileOutputStream(tmp);
+            try {
+                os.write(bytes);
+            } finally {
+                os.close();
+            }
+            if (tmp.renameTo(file)) {
+                tmp = null;
+                bytesWritten.addAndGet(bytes.length);
+            }
+        } catch (IOException ignore) {
+            // Failing to cache isn't fatal.
+        } finally {
+            if (tmp != null) {
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+            }
+        }
+    }
+
+    /*
+     * Only worth checking the size of the cache if we've added to it.
+     */
+    public synchronized void close() {
+        if (bytesWritten.getAndSet(0) == 0) return;
+        List<File> entries = ListFactory.newList();
+        long total = 0;
+        File[] subDirs = dir.listFiles();
+        if (subDirs == null) return;
+        for (File subDir : subDirs) {
+            File[] files = subDir.listFiles();
+            if (files == null) continue;
+            for (File file : files) {
+                entries.add(file);
+                total += file.length();
+            }
+        }
+        if (total <= maxBytes) return;
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long l1 = o1.lastModified();
+                long l2 = o2.lastModified();
+                return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+            }
+        });
+        for (File file : entries) {
+            if (total <= maxBytes) break;
+            long length = file.length();
+            if (file.delete()) total -= length;
+        }
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        return ClassFileSourceImpl.getBytesFromFile(new FileInputStream(file), file.length());
+    }
+}
@@ -6,21 +6,41 @@ import org.benf.cfr.reader.bytecode.analysis.types.MethodPrototype;
 import org.benf.cfr.reader.bytecode.analysis.types.TypeConstants;
 import org.benf.cfr.reader.entities.ClassFile;
 import org.benf.cfr.reader.entities.Method;
+import org.benf.cfr.reader.entities.attributes.AttributeCode;
 import org.benf.cfr.reader.mapping.NullMapping;
 import org.benf.cfr.reader.mapping.ObfuscationMapping;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.collections.MapFactory;
 import org.benf.cfr.reader.util.collections.SetFactory;
 import org.benf.cfr.reader.util.getopt.Options;
 import org.benf.cfr.reader.util.output.Dumpable;
 import org.benf.cfr.reader.util.output.Dumper;
 
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/*
+ * We can't know how to name types until we've seen every type a class uses, so classes are dumped
+ * twice - once here to find out, then for real.
+ *
+ * Most of the work is in method bodies, which (unlike the class declarations and imports around them)
+ * don't care about how types will be named.  So we record the bodies as we go, and the real dump
+ * (see getReplayingDumper) replays those rather than walking them again.
+ */
 public class TypeUsageCollectingDumper implements Dumper {
 
     private final Options options;
     private final JavaRefTypeInstance analysisType;
     private final Set<JavaRefTypeInstance> refTypeInstanceSet = SetFactory.newSet();
     private final Set<JavaTypeInstance> emitted = SetFactory.newSet();
+    private final Map<Dumpable, LinkedList<DumpRecording>> recordings = MapFactory.newIdentityMap();
+    private final List<DumpRecording> recording = ListFactory.newList();
+    /*
+     * Types are recorded as a whole, not as whatever they print.
+     */
+    private int typeDepth = 0;
 
     public TypeUsageCollectingDumper(Options options, ClassFile analysisClass) {
         this.options = options;
@@ -33,88 +53,141 @@ public class TypeUsageCollectingDumper implements Dumper {
         return new TypeUsageInformationImpl(options, analysisType, refTypeInstanceSet);
     }
 
+    /*
+     * The class should be dumped into the result exactly as it was dumped here.
+     */
+    public Dumper getReplayingDumper(Dumper d) {
+        return new ReplayingDumper(d, recordings);
+    }
+
+    private DumpRecording current() {
+        if (recording.isEmpty() || typeDepth != 0) return null;
+        return recording.get(recording.size() - 1);
+    }
+
+    /*
+     * Whatever's being recorded has asked for something a real dumper won't answer the same way.
+     */
+    private void unreplayable() {
+        if (typeDepth != 0) return;
+        for (DumpRecording r : recording) {
+            r.markUnreplayable();
+        }
+    }
+
     @Override
     public TypeUsageInformation getTypeUsageInformation() {
+        unreplayable();
         return TypeUsageInformationEmpty.INSTANCE;
     }
 
     @Override
     public ObfuscationMapping getObfuscationMapping() {
+        unreplayable();
         return NullMapping.INSTANCE;
     }
 
     @Override
     public Dumper label(String s, boolean inline) {
+        DumpRecording r = current();
+        if (r != null) r.label(s, inline);
         return this;
     }
 
     @Override
     public void enqueuePendingCarriageReturn() {
+        DumpRecording r = current();
+        if (r != null) r.enqueuePendingCarriageReturn();
     }
 
     @Override
     public Dumper removePendingCarriageReturn() {
+        DumpRecording r = current();
+        if (r != null) r.removePendingCarriageReturn();
         return this;
     }
 
     @Override
     public Dumper keyword(String s) {
+        DumpRecording r = current();
+        if (r != null) r.keyword(s);
         return this;
     }
 
     @Override
     public Dumper operator(String s) {
+        DumpRecording r = current();
+        if (r != null) r.operator(s);
         return this;
     }
 
     @Override
     public Dumper separator(String s) {
+        DumpRecording r = current();
+        if (r != null) r.separator(s);
         return this;
     }
 
     @Override
     public Dumper literal(String s, Object o) {
+        DumpRecording r = current();
+        if (r != null) r.literal(s, o);
         return this;
     }
 
     @Override
     public Dumper print(String s) {
+        DumpRecording r = current();
+        if (r != null) r.print(s);
         return this;
     }
 
     @Override
     public Dumper methodName(String s, MethodPrototype p, boolean special, boolean defines) {
+        DumpRecording r = current();
+        if (r != null) r.methodName(s, p, special, defines);
         return this;
     }
 
     @Override
     public Dumper packageName(JavaRefTypeInstance t) {
+        DumpRecording r = current();
+        if (r != null) r.packageName(t);
         return this;
     }
 
     @Override
     public Dumper identifier(String s, Object ref, boolean defines) {
+        DumpRecording r = current();
+        if (r != null) r.identifier(s, ref, defines);
         return this;
     }
 
     @Override
     public Dumper print(char c) {
+        DumpRecording r = current();
+        if (r != null) r.print(c);
         return this;
     }
 
     @Override
     public Dumper newln() {
+        DumpRecording r = current();
+        if (r != null) r.newln();
         return this;
     }
 
     @Override
     public Dumper endCodeln() {
+        DumpRecording r = current();
+        if (r != null) r.endCodeln();
         return this;
     }
 
     @Override
     public void indent(int diff) {
-
+        DumpRecording r = current();
+        if (r != null) r.indent(diff);
     }
 
     @Override
@@ -124,41 +197,54 @@ public class TypeUsageCollectingDumper implements Dumper {
 
     @Override
     public void addSummaryError(Method method, String s) {
-
+        DumpRecording r = current();
+        if (r != null) r.addSummaryError(method, s);
     }
 
     @Override
     public boolean canEmitClass(JavaTypeInstance type) {
+        DumpRecording r = current();
+        if (r != null) r.canEmitClass(type);
         return emitted.add(type);
     }
 
     @Override
     public Dumper fieldName(String name, JavaTypeInstance owner, boolean hiddenDeclaration, boolean isStatic, boolean defines) {
+        DumpRecording r = current();
+        if (r != null) r.fieldName(name, owner, hiddenDeclaration, isStatic, defines);
         return this;
     }
 
     @Override
     public Dumper withTypeUsageInformation(TypeUsageInformation innerclassTypeUsageInformation) {
+        unreplayable();
         return this;
     }
 
     @Override
     public Dumper comment(String s) {
+        DumpRecording r = current();
+        if (r != null) r.comment(s);
         return this;
     }
 
     @Override
     public Dumper beginBlockComment(boolean inline) {
+        DumpRecording r = current();
+        if (r != null) r.beginBlockComment(inline);
         return this;
     }
 
     @Override
     public Dumper endBlockComment() {
+        DumpRecording r = current();
+        if (r != null) r.endBlockComment();
         return this;
     }
 
     @Override
     public int getOutputCount() {
+        unreplayable();
         return 0;
     }
 
@@ -167,13 +253,38 @@ public class TypeUsageCollectingDumper implements Dumper {
         if (javaTypeInstance instanceof JavaRefTypeInstance) {
             refTypeInstanceSet.add((JavaRefTypeInstance)javaTypeInstance);
         }
-        javaTypeInstance.dumpInto(this, getTypeUsageInformation());
+        DumpRecording r = current();
+        if (r != null) r.type(javaTypeInstance);
+        typeDepth++;
+        try {
+            javaTypeInstance.dumpInto(this, TypeUsageInformationEmpty.INSTANCE);
+        } finally {
+            typeDepth--;
+        }
         return this;
     }
 
     @Override
     public Dumper dump(Dumpable d) {
-        d.dump(this);
+        if (!(d instanceof AttributeCode) || typeDepth != 0) {
+            d.dump(this);
+            return this;
+        }
+        DumpRecording parent = current();
+        DumpRecording body = new DumpRecording();
+        if (parent != null) parent.nested(body);
+        recording.add(body);
+        try {
+            d.dump(this);
+        } finally {
+            recording.remove(recording.size() - 1);
+        }
+        LinkedList<DumpRecording> pending = recordings.get(d);
+        if (pending == null) {
+            pending = ListFactory.newLinkedList();
+            recordings.put(d, pending);
+        }
+        pending.add(body);
         return this;
     }
 }
@@ -0,0 +1,96 @@
+package org.benf.cfr.reader.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+ * Opening a ZipFile reads the whole central directory, which for a large jar is far more
+ * expensive than reading the single entry we want - so keep archives open between reads.
+ *
+ * We're limited in how many we hold open at once (the extra classpath may have hundreds of jars),
+ * least recently used is closed first.
+ *
+ * The lock is only held to find a handle - entries are inflated without it, so analysis threads can read
+ * at the same time (a ZipFile can be read from several threads).  Handles never escape, and count their
+ * readers, so one evicted while it's being read from is closed once the last read finishes.
+ */
+class ZipFileCache {
+    private static final int MAX_OPEN = 16;
+
+    private final Map<String, Handle> openFiles = new LinkedHashMap<String, Handle>(MAX_OPEN, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Handle> eldest) {
+            if (size() <= MAX_OPEN) return false;
+            eldest.getValue().evict();
+            return true;
+        }
+    };
+
+    /*
+     * Returns null if there's no such entry in the archive.
+     */
+    byte[] getEntryContent(String archivePath, String entryPath) throws IOException {
+        Handle handle = acquire(archivePath);
+        try {
+            ZipFile zipFile = handle.zipFile;
+            ZipEntry zipEntry = zipFile.getEntry(entryPath);
+            if (zipEntry == null) return null;
+            return ClassFileSourceImpl.getBytesFromFile(zipFile.getInputStream(zipEntry), zipEntry.getSize());
+        } finally {
+            release(handle);
+        }
+    }
+
+    private synchronized Handle acquire(String archivePath) throws IOException {
+        Handle handle = openFiles.get(archivePath);
+        if (handle == null) {
+            handle = new Handle(new ZipFile(new File(archivePath), ZipFile.OPEN_READ));
+            openFiles.put(archivePath, handle);
+        }
+        handle.readers++;
+        return handle;
+    }
+
+    private synchronized void release(Handle handle) {
+        handle.readers--;
+        if (handle.evicted && handle.readers == 0) closeQuietly(handle.zipFile);
+    }
+
+    synchronized void close() {
+        Iterator<Handle> iterator = openFiles.values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().evict();
+            iterator.remove();
+        }
+    }
+
+    private static void closeQuietly(ZipFile zipFile) {
+        try {
+            zipFile.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    /*
+     * Guarded by the cache.
+     */
+    private static class Handle {
+        private final ZipFile zipFile;
+        private int readers;
+        private boolean evicted;
+
+        private Handle(ZipFile zipFile) {
+            this.zipFile = zipFile;
+        }
+
+        private void evict() {
+            evicted = true;
+            if (readers == 0) closeQuietly(zipFile);
+        }
+    }
+}
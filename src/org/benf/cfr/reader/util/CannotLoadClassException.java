@@ -5,8 +5,36 @@ public class CannotLoadClassException extends RuntimeException {
         super(s, throwable);
     }
 
+    /*
+     * The class simply isn't there.  That's normal (eg a dependency we weren't given), and can happen a lot,
+     * so it's not worth capturing a stack trace for.
+     */
+    public static CannotLoadClassException missing(String s, Throwable throwable) {
+        return new Missing(s, throwable);
+    }
+
+    public boolean isMissing() {
+        return false;
+    }
+
     @Override
     public String toString() {
         return super.toString() + ((super.getCause() == null) ? "" : (" - " + super.getCause().toString()));
     }
+
+    private static class Missing extends CannotLoadClassException {
+        private Missing(String s, Throwable throwable) {
+            super(s, throwable);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+
+        @Override
+        public boolean isMissing() {
+            return true;
+        }
+    }
 }
@@ -0,0 +1,80 @@
+package org.benf.cfr.reader.util;
+
+/*
+ * Work (loading a class, analysing a method) being done by one thread, which others wanting the same result
+ * can wait for - rather than holding a lock for as long as the work takes.
+ *
+ * Work is reentrant: loading one class may need another, which may need the first.  So a thread can't wait
+ * for work it's doing itself, or for work whose owner is (perhaps indirectly) waiting for it - await returns
+ * false, and the caller must do what it would have done single threaded.
+ */
+public class PendingResult<T> {
+    private final PendingResults results;
+    private final Object lock;
+    private final Thread owner = Thread.currentThread();
+    private boolean done;
+    private T result;
+    private RuntimeException failure;
+
+    PendingResult(PendingResults results) {
+        this.results = results;
+        this.lock = results.lock;
+    }
+
+    public void complete(T result) {
+        synchronized (lock) {
+            this.result = result;
+            this.done = true;
+            lock.notifyAll();
+        }
+    }
+
+    public void fail(RuntimeException failure) {
+        synchronized (lock) {
+            this.failure = failure;
+            this.done = true;
+            lock.notifyAll();
+        }
+    }
+
+    /*
+     * True once the owner has finished (see get) - or throws what it failed with.
+     * False, without waiting, if waiting would never end.
+     */
+    public boolean await() {
+        Thread current = Thread.currentThread();
+        synchronized (lock) {
+            if (!done) {
+                if (wouldDeadlock(current)) return false;
+                results.waitingFor.put(current, this);
+                try {
+                    while (!done) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                } finally {
+                    results.waitingFor.remove(current);
+                }
+            }
+            if (failure != null) throw failure;
+            return true;
+        }
+    }
+
+    public T get() {
+        synchronized (lock) {
+            return result;
+        }
+    }
+
+    private boolean wouldDeadlock(Thread current) {
+        for (Thread thread = owner; thread != null; ) {
+            if (thread == current) return true;
+            PendingResult<?> waitedFor = results.waitingFor.get(thread);
+            thread = waitedFor == null ? null : waitedFor.owner;
+        }
+        return false;
+    }
+}
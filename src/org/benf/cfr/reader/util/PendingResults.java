@@ -0,0 +1,21 @@
+package org.benf.cfr.reader.util;
+
+import org.benf.cfr.reader.util.collections.MapFactory;
+
+import java.util.Map;
+
+/*
+ * The pending results (see PendingResult) of one decompilation - which threads are waiting for which results.
+ * Waiting can only deadlock with other waits on the same work, so each DCCommonState has its own.
+ */
+public class PendingResults {
+    /*
+     * Guards every pending result, as well as who's waiting for what - cycles can span several.
+     */
+    final Object lock = new Object();
+    final Map<Thread, PendingResult<?>> waitingFor = MapFactory.newIdentityMap();
+
+    public <T> PendingResult<T> newPendingResult() {
+        return new PendingResult<T>(this);
+    }
+}
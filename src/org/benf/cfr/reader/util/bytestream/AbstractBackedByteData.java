@@ -2,83 +2,83 @@ package org.benf.cfr.reader.util.bytestream;
 
 import org.benf.cfr.reader.util.ConfusedCFRException;
 
-import java.io.DataInputStream;
-
+/*
+ * All reads are big endian, and decoded directly from the backing array - these are in the inner
+ * loop of constant pool / attribute / instruction parsing, so must not allocate.
+ */
 public abstract class AbstractBackedByteData implements ByteData {
+    final byte[] data;
+
+    AbstractBackedByteData(byte[] data) {
+        this.data = data;
+    }
 
-    abstract DataInputStream rawDataAsStream(int offset, int length);
+    /*
+     * Index into the backing array of offset o.
+     */
+    abstract int getRawOffset(long o);
 
     @Override
     public int getS4At(long o) throws ConfusedCFRException {
-        // Let's find an EFFICIENT way to do this later!
-        DataInputStream dis = rawDataAsStream((int) o, 4);
+        int idx = getRawOffset(o);
         try {
-            return dis.readInt();
-        } catch (Exception e) {
+            return ((data[idx] & 0xff) << 24) |
+                   ((data[idx + 1] & 0xff) << 16) |
+                   ((data[idx + 2] & 0xff) << 8) |
+                   (data[idx + 3] & 0xff);
+        } catch (ArrayIndexOutOfBoundsException e) {
             throw new ConfusedCFRException(e);
         }
     }
 
     @Override
     public double getDoubleAt(long o) throws ConfusedCFRException {
-        DataInputStream dis = rawDataAsStream((int) o, 8);
-        try {
-            return dis.readDouble();
-        } catch (Exception e) {
-            throw new ConfusedCFRException(e);
-        }
+        return Double.longBitsToDouble(getLongAt(o));
     }
 
     @Override
     public float getFloatAt(long o) throws ConfusedCFRException {
-        DataInputStream dis = rawDataAsStream((int) o, 8);
-        try {
-            return dis.readFloat();
-        } catch (Exception e) {
-            throw new ConfusedCFRException(e);
-        }
+        return Float.intBitsToFloat(getS4At(o));
     }
 
     @Override
     public long getLongAt(long o) throws ConfusedCFRException {
-        DataInputStream dis = rawDataAsStream((int) o, 8);
-        try {
-            return dis.readLong();
-        } catch (Exception e) {
-            throw new ConfusedCFRException(e);
-        }
+        return ((long) getS4At(o) << 32) | (getS4At(o + 4) & 0xffffffffL);
     }
 
     @Override
     public short getS2At(long o) throws ConfusedCFRException {
-        // Let's find an EFFICIENT way to do this later!
-        DataInputStream dis = rawDataAsStream((int) o, 2);
-        try {
-            return dis.readShort();
-        } catch (Exception e) {
-            throw new ConfusedCFRException(e);
-        }
+        return (short) getU2At(o);
     }
 
     @Override
     public int getU2At(long o) throws ConfusedCFRException {
-        // Let's find an EFFICIENT way to do this later!
-        DataInputStream dis = rawDataAsStream((int) o, 2);
+        int idx = getRawOffset(o);
         try {
-            return dis.readUnsignedShort();
-        } catch (Exception e) {
+            return ((data[idx] & 0xff) << 8) | (data[idx + 1] & 0xff);
+        } catch (ArrayIndexOutOfBoundsException e) {
             throw new ConfusedCFRException(e);
         }
     }
 
     @Override
     public short getU1At(long o) throws ConfusedCFRException {
-        // Let's find an EFFICIENT way to do this later!
-        DataInputStream dis = rawDataAsStream((int) o, 1);
         try {
-            return (short) dis.readUnsignedByte();
-        } catch (Exception e) {
+            return (short) (data[getRawOffset(o)] & 0xff);
+        } catch (ArrayIndexOutOfBoundsException e) {
             throw new ConfusedCFRException(e);
         }
     }
+
+    @Override
+    public byte getS1At(long o) {
+        return data[getRawOffset(o)];
+    }
+
+    @Override
+    public byte[] getBytesAt(int count, long offset) {
+        byte[] res = new byte[count];
+        System.arraycopy(data, getRawOffset(offset), res, 0, count);
+        return res;
+    }
 }
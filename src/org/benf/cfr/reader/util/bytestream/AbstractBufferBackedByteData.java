@@ -0,0 +1,91 @@
+package org.benf.cfr.reader.util.bytestream;
+
+import org.benf.cfr.reader.util.ConfusedCFRException;
+
+import java.nio.ByteBuffer;
+
+/*
+ * As AbstractBackedByteData, but reading from a (usually memory mapped) buffer, so the class file
+ * never has to be copied onto the heap.  Only absolute reads are used, so the buffer is never mutated
+ * and may be shared.
+ *
+ * NB: ByteBuffers default to big endian, which is what we want.
+ */
+public abstract class AbstractBufferBackedByteData implements ByteData {
+    final ByteBuffer data;
+
+    AbstractBufferBackedByteData(ByteBuffer data) {
+        this.data = data;
+    }
+
+    /*
+     * Index into the backing buffer of offset o.
+     */
+    abstract int getRawOffset(long o);
+
+    @Override
+    public byte getS1At(long o) {
+        try {
+            return data.get(getRawOffset(o));
+        } catch (IndexOutOfBoundsException e) {
+            throw new ConfusedCFRException(e);
+        }
+    }
+
+    @Override
+    public short getU1At(long o) throws ConfusedCFRException {
+        return (short) (getS1At(o) & 0xff);
+    }
+
+    @Override
+    public short getS2At(long o) throws ConfusedCFRException {
+        try {
+            return data.getShort(getRawOffset(o));
+        } catch (IndexOutOfBoundsException e) {
+            throw new ConfusedCFRException(e);
+        }
+    }
+
+    @Override
+    public int getU2At(long o) throws ConfusedCFRException {
+        return getS2At(o) & 0xffff;
+    }
+
+    @Override
+    public int getS4At(long o) throws ConfusedCFRException {
+        try {
+            return data.getInt(getRawOffset(o));
+        } catch (IndexOutOfBoundsException e) {
+            throw new ConfusedCFRException(e);
+        }
+    }
+
+    @Override
+    public double getDoubleAt(long o) throws ConfusedCFRException {
+        return Double.longBitsToDouble(getLongAt(o));
+    }
+
+    @Override
+    public float getFloatAt(long o) throws ConfusedCFRException {
+        return Float.intBitsToFloat(getS4At(o));
+    }
+
+    @Override
+    public long getLongAt(long o) throws ConfusedCFRException {
+        try {
+            return data.getLong(getRawOffset(o));
+        } catch (IndexOutOfBoundsException e) {
+            throw new ConfusedCFRException(e);
+        }
+    }
+
+    @Override
+    public byte[] getBytesAt(int count, long offset) {
+        byte[] res = new byte[count];
+        int start = getRawOffset(offset);
+        for (int x = 0; x < count; ++x) {
+            res[x] = data.get(start + x);
+        }
+        return res;
+    }
+}
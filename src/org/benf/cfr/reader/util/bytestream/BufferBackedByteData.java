@@ -0,0 +1,31 @@
+package org.benf.cfr.reader.util.bytestream;
+
+import java.nio.ByteBuffer;
+
+public class BufferBackedByteData extends AbstractBufferBackedByteData {
+    private final int offset;
+
+    public BufferBackedByteData(ByteBuffer data) {
+        this(data, 0);
+    }
+
+    BufferBackedByteData(ByteBuffer data, long offset) {
+        super(data);
+        this.offset = (int) offset;
+    }
+
+    @Override
+    int getRawOffset(long o) {
+        return (int) (offset + o);
+    }
+
+    @Override
+    public ByteData getOffsetData(long offset) {
+        return new BufferBackedByteData(data, this.offset + offset);
+    }
+
+    @Override
+    public OffsettingByteData getOffsettingOffsetData(long offset) {
+        return new OffsettingBufferBackedByteData(data, this.offset + offset);
+    }
+}
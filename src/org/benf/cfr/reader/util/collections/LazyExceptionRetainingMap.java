@@ -1,28 +1,97 @@
 package org.benf.cfr.reader.util.collections;
 
+import org.benf.cfr.reader.util.PendingResult;
+import org.benf.cfr.reader.util.PendingResults;
 import org.benf.cfr.reader.util.functors.UnaryFunction;
 
 import java.util.Map;
 
+/*
+ * Note - this backs the class file cache, which may be hit from several analysis threads at once.
+ * The map itself is guarded by its own monitor, but that's not held while a value is created (which may
+ * take a while) - instead, anyone else wanting the same key waits for it (see PendingResult).
+ *
+ * Creation is reentrant (loading one class may cause another to be loaded).  If waiting for a key would
+ * never end, because this thread (or one waiting on it) is creating it, we create it again, as a single
+ * thread always has.  Whichever successful creation finishes last is kept - a failure is only remembered if no
+ * creation succeeded.
+ */
 public class LazyExceptionRetainingMap<X, Y> extends LazyMap<X, Y> {
     private final Map<X, RuntimeException> exceptionMap = MapFactory.newMap();
+    private final Map<X, PendingResult<Y>> pendingMap = MapFactory.newMap();
+    private final PendingResults pendingResults;
 
-    LazyExceptionRetainingMap(Map<X, Y> inner, UnaryFunction<X, Y> factory) {
+    LazyExceptionRetainingMap(Map<X, Y> inner, UnaryFunction<X, Y> factory, PendingResults pendingResults) {
         super(inner, factory);
+        this.pendingResults = pendingResults;
     }
 
     @Override
     public Y get(Object o) {
-        RuntimeException exception = exceptionMap.get(o);
-        if (exception == null) {
-            try {
-                return super.get(o);
-            } catch (RuntimeException e) {
-                exception = e;
-                //noinspection unchecked
-                exceptionMap.put((X) o, e);
+        //noinspection unchecked
+        X x = (X) o;
+        PendingResult<Y> pending;
+        boolean owner = false;
+        synchronized (this) {
+            RuntimeException exception = exceptionMap.get(x);
+            if (exception != null) throw exception;
+            Y res = peek(x);
+            if (res != null) return res;
+            pending = pendingMap.get(x);
+            if (pending == null) {
+                pending = pendingResults.newPendingResult();
+                pendingMap.put(x, pending);
+                owner = true;
             }
         }
-        throw exception;
+        if (!owner && pending.await()) return pending.get();
+        Y res = null;
+        RuntimeException failure = null;
+        try {
+            res = create(x);
+            return res;
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            synchronized (this) {
+                if (res != null) {
+                    put(x, res);
+                    exceptionMap.remove(x);
+                } else if (failure != null && peek(x) == null) {
+                    // Another creation of the same key (see above) may have succeeded - keep its value.
+                    exceptionMap.put(x, failure);
+                }
+                if (owner) pendingMap.remove(x);
+            }
+            if (owner) {
+                if (res != null) {
+                    pending.complete(res);
+                } else {
+                    // (If it's not an exception, it's an error - which we're not going to get past anyway.)
+                    pending.fail(failure != null ? failure : new IllegalStateException("Failed to create " + x));
+                }
+            }
+        }
+    }
+
+    /*
+     * As get, but a failure (now, or remembered from earlier) gives null rather than an exception.
+     */
+    public Y getOrNull(Object o) {
+        try {
+            return get(o);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Forget a failure as well as a value, so we'll try again next time.
+     */
+    @Override
+    public synchronized Y remove(Object o) {
+        exceptionMap.remove(o);
+        return super.remove(o);
     }
 }
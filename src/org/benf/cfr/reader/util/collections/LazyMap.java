@@ -47,6 +47,17 @@ public class LazyMap<X, Y> implements Map<X, Y> {
         return res;
     }
 
+    /*
+     * The value if there is one, without creating it.
+     */
+    Y peek(Object o) {
+        return inner.get(o);
+    }
+
+    Y create(X x) {
+        return factory.invoke(x);
+    }
+
     @Override
     public Y put(X x, Y y) {
         return inner.put(x, y);
@@ -1,5 +1,6 @@
 package org.benf.cfr.reader.util.collections;
 
+import org.benf.cfr.reader.util.PendingResults;
 import org.benf.cfr.reader.util.functors.UnaryFunction;
 
 import java.util.*;
@@ -13,6 +14,13 @@ public class MapFactory {
         return new LinkedHashMap<X, Y>();
     }
 
+    /*
+     * Iterates least recently looked up (or added) first.
+     */
+    public static <X, Y> Map<X, Y> newAccessOrderedMap() {
+        return new LinkedHashMap<X, Y>(16, 0.75f, true);
+    }
+
     public static <X, Y> Map<X, Y> newIdentityMap() {
         return new IdentityHashMap<X, Y>();
     }
@@ -37,8 +45,8 @@ public class MapFactory {
         return new LazyMap<X, Y>(base, factory);
     }
 
-    public static <X, Y> Map<X, Y> newExceptionRetainingLazyMap(UnaryFunction<X, Y> factory) {
-        return new LazyExceptionRetainingMap<X, Y>(MapFactory.<X, Y>newMap(), factory);
+    public static <X, Y> LazyExceptionRetainingMap<X, Y> newExceptionRetainingLazyMap(UnaryFunction<X, Y> factory, PendingResults pendingResults) {
+        return new LazyExceptionRetainingMap<X, Y>(MapFactory.<X, Y>newMap(), factory, pendingResults);
     }
 
 }
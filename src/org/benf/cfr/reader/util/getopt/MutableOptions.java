@@ -3,6 +3,7 @@ package org.benf.cfr.reader.util.getopt;
 import org.benf.cfr.reader.util.collections.MapFactory;
 import org.benf.cfr.reader.util.Troolean;
 
+import java.util.Collections;
 import java.util.Map;
 
 public class MutableOptions implements Options {
@@ -32,6 +33,10 @@ public class MutableOptions implements Options {
         return false;
     }
 
+    public Map<String, String> getOverrides() {
+        return Collections.unmodifiableMap(overrides);
+    }
+
     @Override
     public boolean optionIsSet(PermittedOptionProvider.ArgumentParam<?, ?> option) {
         if (overrides.containsKey(option.getName())) return true;
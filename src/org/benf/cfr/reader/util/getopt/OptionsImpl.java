@@ -8,6 +8,7 @@ import org.benf.cfr.reader.util.Troolean;
 import org.benf.cfr.reader.util.collections.ListFactory;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -379,9 +380,15 @@ public class OptionsImpl implements Options {
     public static final PermittedOptionProvider.Argument<String> OUTPUT_PATH = new PermittedOptionProvider.Argument<String>(
             "outputpath", defaultNullStringDecoder,
             "Decompile to files in [directory]");
+    public static final PermittedOptionProvider.Argument<String> OUTPUT_ZIP = new PermittedOptionProvider.Argument<String>(
+            "outputzip", defaultNullStringDecoder,
+            "Decompile into a single zip archive [file], with the summary as summary.txt.  Takes precedence over outputdir and outputpath.");
+    public static final PermittedOptionProvider.Argument<Boolean> ASYNC_OUTPUT = new PermittedOptionProvider.Argument<Boolean>(
+            "asyncoutput", defaultFalseBooleanDecoder,
+            "Write output on a dedicated thread, so analysis doesn't wait for it.  Completed classes are held in memory until written.  (Output to an archive is always done this way.)");
     public static final PermittedOptionProvider.Argument<Troolean> CLOBBER_FILES = new PermittedOptionProvider.Argument<Troolean>(
             "clobber", defaultNeitherTrooleanDecoder,
-            "Overwrite files when using outputpath");
+            "Overwrite files when using outputpath (or an existing archive when using outputzip)");
     public static final PermittedOptionProvider.Argument<Boolean> SILENT = new PermittedOptionProvider.Argument<Boolean>(
             "silent", defaultFalseBooleanDecoder,
             "Don't display state while decompiling");
@@ -451,6 +458,12 @@ public class OptionsImpl implements Options {
     public static final PermittedOptionProvider.Argument<String> EXTRA_CLASS_PATH = new PermittedOptionProvider.Argument<String>(
             "extraclasspath", defaultNullStringDecoder,
             "additional class path - classes in this classpath will be used if needed.");
+    public static final PermittedOptionProvider.Argument<String> METRICS = new PermittedOptionProvider.Argument<String>(
+            "metrics", defaultNullStringDecoder,
+            "Write timings (per class, method and analysis phase) and allocations to this file, as JSON.  A digest goes in the summary.");
+    public static final PermittedOptionProvider.Argument<String> JDK_HOME = new PermittedOptionProvider.Argument<String>(
+            "jdkhome", defaultNullStringDecoder,
+            "JDK (or JRE) to find platform classes in, rather than the one we're running on.  May be from a different java version.");
     public static final PermittedOptionProvider.Argument<Boolean> PULL_CODE_CASE = new PermittedOptionProvider.Argument<Boolean>(
             "pullcodecase", defaultFalseBooleanDecoder,
             "Pull code into case statements agressively.");
@@ -463,6 +476,27 @@ public class OptionsImpl implements Options {
     public static final PermittedOptionProvider.Argument<Boolean> LOMEM = new PermittedOptionProvider.Argument<Boolean>(
             "lomem", defaultFalseBooleanDecoder,
             "Be more agressive about uncaching in order to reduce memory footprint.");
+    public static final PermittedOptionProvider.Argument<Integer> THREADS = new PermittedOptionProvider.Argument<Integer>(
+            "threads", new DefaultingIntDecoder(1),
+            "Number of threads to use when analysing a jar.  0 will use one thread per available processor.  Output is identical to a single threaded run.");
+    public static final PermittedOptionProvider.Argument<Boolean> MAP_CLASS_FILES = new PermittedOptionProvider.Argument<Boolean>(
+            "mapclassfiles", defaultFalseBooleanDecoder,
+            "Memory map class files loaded from directories, rather than reading them onto the heap.  (Class files in jars are always read).");
+    public static final PermittedOptionProvider.Argument<Boolean> SHARED_STATE = new PermittedOptionProvider.Argument<Boolean>(
+            "sharedstate", defaultFalseBooleanDecoder,
+            "Keep known types between inputs, rather than starting afresh for each jar or class file given.  (Classes are still reloaded for each input).  Faster when decompiling many inputs with common dependencies, but classes with the same name in different inputs are assumed to be compatible.");
+    public static final PermittedOptionProvider.Argument<Integer> CLASS_CACHE_SIZE = new PermittedOptionProvider.Argument<Integer>(
+            "classcachesize", default0intDecoder,
+            "Size (in megabytes of class file) of dependency classes (those not being decompiled) to keep loaded.  Beyond this, the least recently used are dropped, and reloaded if needed.  Also releases the analysis of each class once it has been output.  0 for no limit.");
+    public static final PermittedOptionProvider.Argument<String> CACHE_DIR = new PermittedOptionProvider.Argument<String>(
+            "cachedir", defaultNullStringDecoder,
+            "Directory in which to keep decompiled output between runs, keyed by class content (for a jar, the whole jar), CFR version and options.  Changes to other classes on the classpath are not detected.  Not used when renaming members or identifiers, or with an obfuscation mapping.");
+    public static final PermittedOptionProvider.Argument<Integer> CACHE_SIZE = new PermittedOptionProvider.Argument<Integer>(
+            "cachesize", new DefaultingIntDecoder(256),
+            "Size (in megabytes) to which the cache directory is trimmed, least recently used entries first.");
+    public static final PermittedOptionProvider.Argument<Integer> METHOD_TIMEOUT = new PermittedOptionProvider.Argument<Integer>(
+            "methodtimeout", default0intDecoder,
+            "Give up analysing a method after this many seconds, and output it as a failure.  0 for no limit.");
     public static final PermittedOptionProvider.Argument<String> IMPORT_FILTER = new PermittedOptionProvider.Argument<String>(
             "importfilter", defaultNullStringDecoder,
             "Substring regex - import classes only when fqn matches this pattern. (VNegate with !, eg !lang)");
@@ -490,6 +524,13 @@ public class OptionsImpl implements Options {
         return opts.get(option.getName()) != null;
     }
 
+    /*
+     * The options as given - for use where the set of options affects a result, rather than any one option.
+     */
+    public Map<String, String> getOptionStrings() {
+        return Collections.unmodifiableMap(opts);
+    }
+
     public static GetOptSinkFactory<Options> getFactory() {
         return new CFRFactory();
     }
@@ -510,17 +551,17 @@ public class OptionsImpl implements Options {
                     REMOVE_DEAD_METHODS, REMOVE_BAD_GENERICS, SUGAR_ASSERTS, SUGAR_BOXING, SHOW_CFR_VERSION,
                     DECODE_FINALLY, TIDY_MONITORS, LENIENT, DUMP_CLASS_PATH,
                     DECOMPILER_COMMENTS, FORCE_TOPSORT, FORCE_TOPSORT_EXTRA, FORCE_PRUNE_EXCEPTIONS, OUTPUT_DIR,
-                    OUTPUT_PATH, CLOBBER_FILES, JAR_FILTER, IMPORT_FILTER,
+                    OUTPUT_PATH, OUTPUT_ZIP, ASYNC_OUTPUT, CLOBBER_FILES, JAR_FILTER, IMPORT_FILTER,
                     SUGAR_STRINGBUFFER, SUGAR_STRINGBUILDER, SUGAR_STRINGCONCATFACTORY, SILENT, RECOVER, ECLIPSE, OVERRIDES, SHOW_INFERRABLE,
                     FORCE_AGGRESSIVE_EXCEPTION_AGG, FORCE_COND_PROPAGATE, HIDE_UTF8, HIDE_LONGSTRINGS, COMMENT_MONITORS,
                     ALLOW_CORRECTING, LABELLED_BLOCKS, JAVA_4_CLASS_OBJECTS, HIDE_LANG_IMPORTS, FORCE_PASS,
                     RECOVER_TYPECLASHES, USE_RECOVERED_ITERATOR_TYPE_HINTS,
                     FORCE_RETURNING_IFS, ANALYSE_AS, FOR_LOOP_CAPTURE, RENAME_DUP_MEMBERS, RENAME_ENUM_MEMBERS,
                     RENAME_SMALL_MEMBERS, RENAME_ILLEGAL_IDENTS, RENAME_MEMBERS, USE_NAME_TABLE,
-                    AGGRESSIVE_SIZE_REDUCTION_THRESHOLD, EXTRA_CLASS_PATH, PULL_CODE_CASE, HELP, ELIDE_SCALA,
+                    AGGRESSIVE_SIZE_REDUCTION_THRESHOLD, EXTRA_CLASS_PATH, JDK_HOME, METRICS, PULL_CODE_CASE, HELP, ELIDE_SCALA,
                     CASE_INSENSITIVE_FS_RENAME, RELINK_CONSTANT_STRINGS, REWRITE_TRY_RESOURCES, IGNORE_EXCEPTIONS,
                     IGNORE_EXCEPTIONS_ALWAYS, METHODNAME, SKIP_BATCH_INNER_CLASSES,
-                    OBFUSCATION_PATH);
+                    OBFUSCATION_PATH, THREADS, MAP_CLASS_FILES, SHARED_STATE, CLASS_CACHE_SIZE, CACHE_DIR, CACHE_SIZE, METHOD_TIMEOUT);
         }
 
         @Override
@@ -0,0 +1,115 @@
+package org.benf.cfr.reader.util.output;
+
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A dedicated thread which performs output, so that whoever's producing it (analysis) doesn't wait on I/O.
+ *
+ * Output is rendered into memory by the producer, and a task which writes it is handed over here.  Tasks are
+ * run one at a time, in the order they were given.  The queue is bounded, so if output falls behind, producers
+ * wait rather than holding an unbounded amount of it in memory.
+ *
+ * If a task fails, later tasks are dropped, and the failure is rethrown to the next producer, and on close.
+ * If the thread dies (an Error), a producer waiting for room in the queue gives up rather than waiting forever.
+ */
+public class AsyncOutput {
+    private static final int QUEUE_SIZE = 64;
+    private static final long CHECK_ALIVE_MS = 100;
+    private static final Runnable END = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<Runnable>(QUEUE_SIZE);
+    private final Thread thread;
+    private volatile RuntimeException failure;
+    private boolean closed = false;
+
+    public AsyncOutput(String name) {
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /*
+     * Null if output should be done synchronously.
+     */
+    public static AsyncOutput create(Options options) {
+        if (!options.getOption(OptionsImpl.ASYNC_OUTPUT)) return null;
+        return new AsyncOutput("cfr-output");
+    }
+
+    public void submit(Runnable task) {
+        checkFailure();
+        enqueue(task);
+    }
+
+    private void enqueue(Runnable task) {
+        try {
+            while (!queue.offer(task, CHECK_ALIVE_MS, TimeUnit.MILLISECONDS)) {
+                if (!thread.isAlive()) {
+                    checkFailure();
+                    throw new IllegalStateException("Output thread has stopped");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void checkFailure() {
+        RuntimeException e = failure;
+        if (e != null) throw new IllegalStateException("Failed writing output", e);
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                failure = new IllegalStateException(e);
+                return;
+            }
+            if (task == END) return;
+            // Keep taking, so nobody waits forever.
+            if (failure != null) continue;
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                failure = new IllegalStateException(e);
+                throw e;
+            }
+        }
+    }
+
+    /*
+     * Waits until everything which has been submitted is written.
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            if (thread.isAlive()) enqueue(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        checkFailure();
+    }
+}
@@ -14,13 +14,16 @@ public class FileDumper extends StreamDumper {
     private final JavaTypeInstance type;
     private final SummaryDumper summaryDumper;
     private final String path;
-    private final BufferedWriter writer;
+    private final Writer writer;
 
     private static final int MAX_FILE_LEN_MINUS_EXT = 249;
     private static final int TRUNC_PREFIX_LEN = 150;
     private static int truncCount = 0;
 
-    private String mkFilename(String dir, Pair<String, String> names, SummaryDumper summaryDumper) {
+    /*
+     * Path of the output for names, relative to the output root.
+     */
+    private static String mkRelativeName(Pair<String, String> names, String separator, SummaryDumper summaryDumper) {
         String packageName = names.getFirst();
         String className = names.getSecond();
         if (className.length() > MAX_FILE_LEN_MINUS_EXT) {
@@ -31,33 +34,78 @@ public class FileDumper extends StreamDumper {
             summaryDumper.notify("Class name " + names.getSecond() + " was shortened to " + className + " due to filesystem limitations.");
         }
 
-        return dir + File.separator + packageName.replace(".", File.separator) +
-                ((packageName.length() == 0) ? "" : File.separator) +
+        return packageName.replace(".", separator) +
+                ((packageName.length() == 0) ? "" : separator) +
                 className + ".java";
     }
 
-    FileDumper(String dir, boolean clobber, JavaTypeInstance type, SummaryDumper summaryDumper, TypeUsageInformation typeUsageInformation, Options options, IllegalIdentifierDump illegalIdentifierDump) {
+    private FileDumper(String path, Writer writer, JavaTypeInstance type, SummaryDumper summaryDumper, TypeUsageInformation typeUsageInformation, Options options, IllegalIdentifierDump illegalIdentifierDump) {
         super(typeUsageInformation, options, illegalIdentifierDump, new MovableDumperContext());
         this.type = type;
         this.summaryDumper = summaryDumper;
+        this.path = path;
+        this.writer = writer;
+    }
+
+    /*
+     * If asyncOutput is given, the file is only opened (and written) by that, once this has been closed.
+     */
+    static FileDumper toFile(String dir, boolean clobber, AsyncOutput asyncOutput, JavaTypeInstance type, SummaryDumper summaryDumper, TypeUsageInformation typeUsageInformation, Options options, IllegalIdentifierDump illegalIdentifierDump) {
         Pair<String, String> names = ClassNameUtils.getPackageAndClassNames(type);
+        String fileName = dir + File.separator + mkRelativeName(names, File.separator, summaryDumper);
+        File file = new File(fileName);
+        if (file.exists() && !clobber) {
+            throw new CannotCreate("File already exists, and option '" + OptionsImpl.CLOBBER_FILES.getName() + "' not set");
+        }
+        Writer writer = asyncOutput == null ? openFile(file) : deferredFile(file, asyncOutput);
+        return new FileDumper(fileName, writer, type, summaryDumper, typeUsageInformation, options, illegalIdentifierDump);
+    }
+
+    private static Writer openFile(File file) {
+        File parent = file.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IllegalStateException("Couldn't create dir: " + parent);
+        }
         try {
-            String fileName = mkFilename(dir, names, summaryDumper);
-            File file = new File(fileName);
-            File parent = file.getParentFile();
-            if (!parent.exists() && !parent.mkdirs()) {
-                throw new IllegalStateException("Couldn't create dir: " + parent);
-            }
-            if (file.exists() && !clobber) {
-                throw new CannotCreate("File already exists, and option '" + OptionsImpl.CLOBBER_FILES.getName() + "' not set");
-            }
-            path = fileName;
-            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
+            return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
         } catch (FileNotFoundException e) {
             throw new CannotCreate(e);
         }
     }
 
+    private static Writer deferredFile(final File file, final AsyncOutput asyncOutput) {
+        return new StringWriter() {
+            @Override
+            public void close() {
+                final String content = toString();
+                asyncOutput.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        Writer writer = openFile(file);
+                        try {
+                            try {
+                                writer.write(content);
+                            } finally {
+                                writer.close();
+                            }
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    /*
+     * prefix is relative to the root of the archive, eg for a multi release jar.
+     */
+    static FileDumper toZip(ZipOutput zipOutput, String prefix, JavaTypeInstance type, SummaryDumper summaryDumper, TypeUsageInformation typeUsageInformation, Options options, IllegalIdentifierDump illegalIdentifierDump) {
+        Pair<String, String> names = ClassNameUtils.getPackageAndClassNames(type);
+        String entryName = prefix + mkRelativeName(names, "/", summaryDumper);
+        return new FileDumper(entryName, zipOutput.newEntry(entryName), type, summaryDumper, typeUsageInformation, options, illegalIdentifierDump);
+    }
+
     @Override
     public void close() {
         try {
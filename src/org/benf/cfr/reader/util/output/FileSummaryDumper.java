@@ -11,7 +11,7 @@ import java.io.*;
 import java.util.List;
 
 public class FileSummaryDumper implements SummaryDumper {
-    private final BufferedWriter writer;
+    private final Writer writer;
     private final DecompilerCommentSource additionalComments;
     private final Options options;
 
@@ -19,8 +19,16 @@ public class FileSummaryDumper implements SummaryDumper {
     private transient Method lastMethod = null;
 
     public FileSummaryDumper(String dir, Options options, DecompilerCommentSource additional) {
-        additionalComments = additional;
+        this(openSummaryFile(dir), options, additional);
+    }
+
+    FileSummaryDumper(Writer writer, Options options, DecompilerCommentSource additional) {
+        this.writer = writer;
+        this.additionalComments = additional;
         this.options = options;
+    }
+
+    private static Writer openSummaryFile(String dir) {
         String fileName = dir + File.separator + "summary.txt";
         try {
             File file = new File(fileName);
@@ -28,7 +36,7 @@ public class FileSummaryDumper implements SummaryDumper {
             if (!parent.exists() && !parent.mkdirs()) {
                 throw new IllegalStateException("Couldn't create dir: " + parent);
             }
-            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
+            return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
         } catch (FileNotFoundException e) {
             throw new Dumper.CannotCreate(e);
         }
@@ -20,17 +20,28 @@ public class InternalDumperFactoryImpl implements DumperFactory {
     private final Options options;
     private final ProgressDumper progressDumper;
     private final String prefix;
-
+    private final ZipOutput zipOutput;
+    private final AsyncOutput asyncOutput;
 
     public InternalDumperFactoryImpl(Options options) {
+        this(options, null, null);
+    }
+
+    /*
+     * If zipOutput is given, everything goes into that, rather than to files.
+     * If asyncOutput is given, files are written by that, rather than by whoever's dumping.
+     */
+    public InternalDumperFactoryImpl(Options options, ZipOutput zipOutput, AsyncOutput asyncOutput) {
         this.checkDupes = OsInfo.OS().isCaseInsensitive() && !options.getOption(OptionsImpl.CASE_INSENSITIVE_FS_RENAME);
         this.options = options;
-        if (!options.getOption(OptionsImpl.SILENT) && (options.optionIsSet(OptionsImpl.OUTPUT_DIR) || options.optionIsSet(OptionsImpl.OUTPUT_PATH))) {
+        if (!options.getOption(OptionsImpl.SILENT) && (zipOutput != null || options.optionIsSet(OptionsImpl.OUTPUT_DIR) || options.optionIsSet(OptionsImpl.OUTPUT_PATH))) {
             progressDumper = new ProgressDumperStdErr();
         } else {
             progressDumper = ProgressDumperNop.INSTANCE;
         }
         this.prefix = "";
+        this.zipOutput = zipOutput;
+        this.asyncOutput = asyncOutput;
     }
 
     private InternalDumperFactoryImpl(InternalDumperFactoryImpl other, String prefix) {
@@ -39,6 +50,8 @@ public class InternalDumperFactoryImpl implements DumperFactory {
         this.options = other.options;
         this.progressDumper = other.progressDumper;
         this.prefix = prefix;
+        this.zipOutput = other.zipOutput;
+        this.asyncOutput = other.asyncOutput;
     }
 
     @Override
@@ -58,11 +71,18 @@ public class InternalDumperFactoryImpl implements DumperFactory {
     }
 
     public Dumper getNewTopLevelDumper(JavaTypeInstance classType, SummaryDumper summaryDumper, TypeUsageInformation typeUsageInformation, IllegalIdentifierDump illegalIdentifierDump) {
-        Pair<String, Boolean> targetInfo = getPathAndClobber();
+        FileDumper res;
+        if (zipOutput != null) {
+            // Prefix is a path from the root, eg /META-INF/versions/9/, but entry names are relative.
+            String entryPrefix = prefix.startsWith("/") ? prefix.substring(1) : prefix;
+            res = FileDumper.toZip(zipOutput, entryPrefix, classType, summaryDumper, typeUsageInformation, options, illegalIdentifierDump);
+        } else {
+            Pair<String, Boolean> targetInfo = getPathAndClobber();
 
-        if (targetInfo == null) return new StdIODumper(typeUsageInformation, options, illegalIdentifierDump, new MovableDumperContext());
+            if (targetInfo == null) return new StdIODumper(typeUsageInformation, options, illegalIdentifierDump, new MovableDumperContext());
 
-        FileDumper res = new FileDumper(targetInfo.getFirst() + prefix, targetInfo.getSecond(), classType, summaryDumper, typeUsageInformation, options, illegalIdentifierDump);
+            res = FileDumper.toFile(targetInfo.getFirst() + prefix, targetInfo.getSecond(), asyncOutput, classType, summaryDumper, typeUsageInformation, options, illegalIdentifierDump);
+        }
         if (checkDupes) {
             if (!seen.add(res.getFileName().toLowerCase())) {
                 seenCaseDupe = true;
@@ -92,6 +112,10 @@ public class InternalDumperFactoryImpl implements DumperFactory {
      * A summary dumper will receive errors.  Generally, it's only of value when dumping jars to file.
      */
     public SummaryDumper getSummaryDumper() {
+        if (zipOutput != null) {
+            return new FileSummaryDumper(zipOutput.newTrailingEntry("summary.txt"), options, new AdditionalComments());
+        }
+
         Pair<String, Boolean> targetInfo = getPathAndClobber();
 
         if (targetInfo == null) return new NopSummaryDumper();
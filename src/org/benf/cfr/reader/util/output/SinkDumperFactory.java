@@ -17,17 +17,28 @@ public class SinkDumperFactory implements DumperFactory {
     private final OutputSinkFactory sinkFactory;
     private Options options;
     private final int version;
+    private final AsyncOutput asyncOutput;
 
     public SinkDumperFactory(OutputSinkFactory sinkFactory, Options options) {
+        this(sinkFactory, options, null);
+    }
+
+    /*
+     * If asyncOutput is given, completed classes are given to java sinks on its thread, rather than by
+     * whoever's dumping.  (Token streams are given as they're produced, so can't be.)
+     */
+    public SinkDumperFactory(OutputSinkFactory sinkFactory, Options options, AsyncOutput asyncOutput) {
         this.sinkFactory = sinkFactory;
         this.options = options;
         this.version = 0;
+        this.asyncOutput = asyncOutput;
     }
 
     private SinkDumperFactory(SinkDumperFactory other, int version) {
         this.sinkFactory = other.sinkFactory;
         this.options = other.options;
         this.version = version;
+        this.asyncOutput = other.asyncOutput;
     }
 
     @Override
@@ -59,6 +70,19 @@ public class SinkDumperFactory implements DumperFactory {
         return SinkStringClassDumper(stringSink, typeUsageInformation, illegalIdentifierDump);
     }
 
+    private <T> void sendToSink(final OutputSinkFactory.Sink<T> sink, final T sinkable) {
+        if (asyncOutput == null) {
+            sink.write(sinkable);
+            return;
+        }
+        asyncOutput.submit(new Runnable() {
+            @Override
+            public void run() {
+                sink.write(sinkable);
+            }
+        });
+    }
+
     private Dumper TokenStreamClassDumper(final OutputSinkFactory.Sink<SinkReturns.Token> sink, int version, JavaTypeInstance classType, TypeUsageInformation typeUsageInformation, IllegalIdentifierDump illegalIdentifierDump) {
         return new TokenStreamDumper(sink, version, classType, typeUsageInformation, options, illegalIdentifierDump, new MovableDumperContext());
     }
@@ -68,7 +92,7 @@ public class SinkDumperFactory implements DumperFactory {
         return new StringStreamDumper(sb, typeUsageInformation, options, illegalIdentifierDump, new MovableDumperContext()) {
             @Override
             public void close() {
-                sink.write(sb.toString());
+                sendToSink(sink, sb.toString());
             }
         };
     }
@@ -99,7 +123,7 @@ public class SinkDumperFactory implements DumperFactory {
                     }
                 };
 
-                sink.write(res);
+                sendToSink(sink, res);
             }
         };
     }
@@ -135,7 +159,7 @@ public class SinkDumperFactory implements DumperFactory {
                     }
                 };
 
-                sink.write(res);
+                sendToSink(sink, res);
             }
         };
     }
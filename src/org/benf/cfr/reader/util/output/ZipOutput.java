@@ -0,0 +1,138 @@
+package org.benf.cfr.reader.util.output;
+
+import org.benf.cfr.reader.util.Troolean;
+import org.benf.cfr.reader.util.collections.MapFactory;
+import org.benf.cfr.reader.util.collections.SetFactory;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+
+import java.io.*;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/*
+ * A single zip archive which all decompiled output goes into, rather than a file per class.
+ *
+ * Each entry is buffered in full by whoever's writing it, and when it's closed, handed to a single writer
+ * thread (see AsyncOutput) which owns the archive.  Entries can be written from any thread; if the writer
+ * falls behind, writers of entries wait for it.
+ *
+ * Trailing entries (the summary) are kept until the archive is closed - if the same trailing entry is
+ * written more than once (eg one summary per input), the content is appended.
+ *
+ * Entries are named with '/', regardless of platform.  If an entry name is seen twice, the first wins.
+ */
+public class ZipOutput {
+    private final File file;
+    private final ZipOutputStream zip;
+    private final AsyncOutput writer = new AsyncOutput("cfr-zip-output");
+    private final Map<String, StringBuilder> trailing = MapFactory.newOrderedMap();
+    // Only touched by the writer thread, until it's finished.
+    private final Set<String> written = SetFactory.newSet();
+    private boolean closed = false;
+
+    private ZipOutput(File file) throws IOException {
+        this.file = file;
+        this.zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    /*
+     * Null if we're not outputting to an archive.
+     */
+    public static ZipOutput create(Options options) {
+        if (!options.optionIsSet(OptionsImpl.OUTPUT_ZIP)) return null;
+        File file = new File(options.getOption(OptionsImpl.OUTPUT_ZIP));
+        Troolean clobber = options.getOption(OptionsImpl.CLOBBER_FILES);
+        if (file.exists() && !clobber.boolValue(true)) {
+            throw new Dumper.CannotCreate("File already exists, and option '" + OptionsImpl.CLOBBER_FILES.getName() + "' not set");
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IllegalStateException("Couldn't create dir: " + parent);
+        }
+        try {
+            return new ZipOutput(file);
+        } catch (IOException e) {
+            throw new Dumper.CannotCreate(e);
+        }
+    }
+
+    /*
+     * An entry, which will be added to the archive when the returned writer is closed.
+     */
+    Writer newEntry(final String name) {
+        return new StringWriter() {
+            @Override
+            public void close() {
+                add(name, toString());
+            }
+        };
+    }
+
+    Writer newTrailingEntry(final String name) {
+        return new StringWriter() {
+            @Override
+            public void close() {
+                addTrailing(name, toString());
+            }
+        };
+    }
+
+    private void add(final String name, final String content) {
+        writer.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    write(name, content);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed writing " + file, e);
+                }
+            }
+        });
+    }
+
+    private synchronized void addTrailing(String name, String content) {
+        StringBuilder sb = trailing.get(name);
+        if (sb == null) {
+            sb = new StringBuilder();
+            trailing.put(name, sb);
+        }
+        sb.append(content);
+    }
+
+    private void write(String name, String content) throws IOException {
+        if (!written.add(name)) return;
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes());
+        zip.closeEntry();
+    }
+
+    /*
+     * Waits for everything to be written, then finishes the archive.
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        boolean complete = false;
+        try {
+            writer.close();
+            synchronized (this) {
+                for (Map.Entry<String, StringBuilder> entry : trailing.entrySet()) {
+                    write(entry.getKey(), entry.getValue().toString());
+                }
+            }
+            complete = true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed writing " + file, e);
+        } finally {
+            try {
+                zip.close();
+            } catch (IOException e) {
+                // If we didn't get this far, there's already a more interesting exception.
+                if (complete) throw new IllegalStateException("Failed writing " + file, e);
+            }
+        }
+    }
+}
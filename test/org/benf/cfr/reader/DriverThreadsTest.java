@@ -0,0 +1,73 @@
+package org.benf.cfr.reader;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * However many threads analyse a jar, the output should be what a single thread produces - in the same order.
+ */
+public class DriverThreadsTest extends TestCase {
+    private File dir;
+    private File jar;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = TestInputs.makeTempDir("cfr-threads");
+        // Plenty of classes which refer to each other, and inner classes.
+        jar = TestInputs.makeJar(dir, "input.jar",
+                "org/benf/cfr/reader/util/collections",
+                "org/benf/cfr/reader/util/output",
+                "org/benf/cfr/reader/util/functors");
+    }
+
+    @Override
+    protected void tearDown() {
+        TestInputs.deleteRecursively(dir);
+    }
+
+    private List<String> decompile(int threads) {
+        return decompile(jar, threads);
+    }
+
+    private static List<String> decompile(File jar, int threads) {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("threads", Integer.toString(threads));
+        return TestInputs.decompile(jar.getPath(), options);
+    }
+
+    public void testOutputIndependentOfThreadCount() {
+        List<String> single = decompile(1);
+        assertTrue(single.size() > 20);
+        for (int threads : new int[]{2, 4}) {
+            List<String> multi = decompile(threads);
+            assertEquals("class count with " + threads + " threads", single.size(), multi.size());
+            for (int x = 0; x < single.size(); ++x) {
+                assertEquals("class " + x + " with " + threads + " threads", single.get(x), multi.get(x));
+            }
+        }
+    }
+
+    public void testRepeatable() {
+        assertEquals(decompile(4), decompile(4));
+    }
+
+    /*
+     * Whether a local variable is renamed, so as not to hide a class, mustn't depend on whether a class using
+     * that class has been analysed yet.
+     */
+    public void testLocalNamedAsClass() throws Exception {
+        File clashJar = TestInputs.makeJar(TestInputs.getTestClassesDir(), dir, "clash.jar", "org/benf/cfr/reader/testdata/names");
+        List<String> single = decompile(clashJar, 1);
+        assertEquals(3, single.size());
+        // AClash is analysed before BRandom, which uses java.util.Random, and CClash after.
+        assertEquals(single.get(0).replace("AClash", "CClash"), single.get(2));
+        assertFalse(single.get(0), single.get(0).contains("int Random "));
+        for (int threads : new int[]{2, 3}) {
+            assertEquals("with " + threads + " threads", single, decompile(clashJar, threads));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.benf.cfr.reader;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.bytecode.analysis.types.JavaRefTypeInstance;
+import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
+import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.entities.Method;
+import org.benf.cfr.reader.entities.attributes.AttributeCode;
+import org.benf.cfr.reader.state.AbstractTypeUsageCollector;
+import org.benf.cfr.reader.state.ClassFileSourceImpl;
+import org.benf.cfr.reader.state.DCCommonState;
+import org.benf.cfr.reader.state.TypeUsageCollector;
+import org.benf.cfr.reader.state.TypeUsageInformation;
+import org.benf.cfr.reader.state.TypeUsageInformationEmpty;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.functors.BinaryFunction;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+import org.benf.cfr.reader.util.output.SinkDumperFactory;
+
+import java.util.HashMap;
+import java.util.List;
+
+/*
+ * Decoding parts of a class when they're first needed must give the same result as decoding them when it's loaded.
+ */
+public class LazyDecodeTest extends TestCase {
+    private static final String[] CLASSES = {
+            "org/benf/cfr/reader/entities/ClassFile",
+            "org/benf/cfr/reader/bytecode/CodeAnalyser",
+            "org/benf/cfr/reader/util/collections/LazyExceptionRetainingMap"
+    };
+
+    /*
+     * Loads every class (the one being decompiled, and everything it refers to) fully decoded.
+     */
+    private static final BinaryFunction<String, DCCommonState, ClassFile> EAGER = new BinaryFunction<String, DCCommonState, ClassFile>() {
+        @Override
+        public ClassFile invoke(String path, DCCommonState state) {
+            ClassFile classFile = state.loadClassFileAtPath(path);
+            decodeAll(classFile);
+            return classFile;
+        }
+    };
+
+    /*
+     * Collecting type usages decodes every attribute in a map.
+     */
+    private static final TypeUsageCollector DECODING_COLLECTOR = new AbstractTypeUsageCollector() {
+        @Override
+        public void collectRefType(JavaRefTypeInstance type) {
+        }
+
+        @Override
+        public void collect(JavaTypeInstance type) {
+        }
+
+        @Override
+        public TypeUsageInformation getTypeUsageInformation() {
+            return TypeUsageInformationEmpty.INSTANCE;
+        }
+
+        @Override
+        public boolean isStatementRecursive() {
+            return false;
+        }
+    };
+
+    static void decodeAll(ClassFile classFile) {
+        classFile.getAttributes().collectTypeUsages(DECODING_COLLECTOR);
+        for (Method method : classFile.getMethods()) {
+            if (!method.hasCodeAttribute()) continue;
+            AttributeCode code = method.getCodeAttribute();
+            code.getExceptionTableEntries();
+            code.collectTypeUsages(DECODING_COLLECTOR);
+        }
+    }
+
+    private static String decompile(String path, boolean eager) {
+        Options options = new OptionsImpl(new HashMap<String, String>());
+        DCCommonState state = new DCCommonState(options, new ClassFileSourceImpl(options));
+        if (eager) state = new DCCommonState(state, EAGER);
+        List<String> res = ListFactory.newList();
+        Driver.doClass(state, path, false, new SinkDumperFactory(TestInputs.collectJava(res), options));
+        assertEquals(1, res.size());
+        return res.get(0);
+    }
+
+    public void testSameOutput() {
+        for (String name : CLASSES) {
+            String path = TestInputs.getClassFile(name).getPath();
+            String lazy = decompile(path, false);
+            assertTrue(lazy.contains("public class "));
+            assertEquals(name, decompile(path, true), lazy);
+        }
+    }
+}
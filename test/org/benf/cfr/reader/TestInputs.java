@@ -0,0 +1,202 @@
+package org.benf.cfr.reader;
+
+import org.benf.cfr.reader.api.CfrDriver;
+import org.benf.cfr.reader.api.OutputSinkFactory;
+import org.benf.cfr.reader.entities.ClassFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+/*
+ * Tests decompile CFR's own classes - they're always to hand, and there are plenty of them.
+ */
+public final class TestInputs {
+    private TestInputs() {
+    }
+
+    public static File getClassesDir() {
+        try {
+            return new File(ClassFile.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * Classes compiled from test sources - for inputs CFR itself doesn't have an example of.
+     */
+    public static File getTestClassesDir() {
+        try {
+            return new File(TestInputs.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * The class file for a raw name, eg org/benf/cfr/reader/entities/ClassFile.
+     */
+    public static File getClassFile(String rawName) {
+        return new File(getClassesDir(), rawName + ".class");
+    }
+
+    public static byte[] getClassBytes(String rawName) throws IOException {
+        return readFully(getClassFile(rawName));
+    }
+
+    public static byte[] readFully(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            return readFully(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    /*
+     * A jar of every class in the given packages (eg org/benf/cfr/reader/util/collections), in name order.
+     */
+    public static File makeJar(File dir, String name, String... packages) throws IOException {
+        return makeJar(getClassesDir(), dir, name, packages);
+    }
+
+    /*
+     * As makeJar, but with classes from under root.
+     */
+    public static File makeJar(File root, File dir, String name, String... packages) throws IOException {
+        File jar = new File(dir, name);
+        JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            for (String pkg : packages) {
+                File[] files = new File(root, pkg).listFiles();
+                if (files == null) throw new IllegalStateException("No package " + pkg);
+                Arrays.sort(files);
+                for (File file : files) {
+                    if (!file.getName().endsWith(".class")) continue;
+                    jos.putNextEntry(new ZipEntry(pkg + "/" + file.getName()));
+                    InputStream is = new FileInputStream(file);
+                    try {
+                        jos.write(readFully(is));
+                    } finally {
+                        is.close();
+                    }
+                    jos.closeEntry();
+                }
+            }
+        } finally {
+            jos.close();
+        }
+        return jar;
+    }
+
+    public static File makeTempDir(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        if (!dir.delete() || !dir.mkdir()) throw new IOException("Can't create " + dir);
+        return dir;
+    }
+
+    public static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    public static List<String> decompile(String path, Map<String, String> options) {
+        return decompile(Collections.singletonList(path), options);
+    }
+
+    /*
+     * The java output for each class, in the order it was produced.
+     */
+    public static List<String> decompile(List<String> paths, Map<String, String> options) {
+        List<String> res = Collections.synchronizedList(new ArrayList<String>());
+        CfrDriver driver = new CfrDriver.Builder()
+                .withOptions(options)
+                .withOutputSink(collectJava(res))
+                .build();
+        driver.analyse(paths);
+        return new ArrayList<String>(res);
+    }
+
+    /*
+     * A sink factory which adds the java output for each class to res.
+     */
+    public static OutputSinkFactory collectJava(final List<String> res) {
+        return new OutputSinkFactory() {
+            @Override
+            public List<SinkClass> getSupportedSinks(SinkType sinkType, Collection<SinkClass> available) {
+                return Collections.singletonList(SinkClass.STRING);
+            }
+
+            @Override
+            public <T> Sink<T> getSink(final SinkType sinkType, SinkClass sinkClass) {
+                return new Sink<T>() {
+                    @Override
+                    public void write(T sinkable) {
+                        if (sinkType == SinkType.JAVA) res.add(String.valueOf(sinkable));
+                    }
+                };
+            }
+        };
+    }
+
+    /*
+     * As the command line would - into files under outputDir.  (Output to a sink isn't cached).
+     * Returns the content of each file, by path.
+     */
+    public static Map<String, String> decompileToDir(String path, Map<String, String> options, File outputDir) throws IOException {
+        Map<String, String> withOutput = new HashMap<String, String>(options);
+        withOutput.put("outputdir", outputDir.getPath());
+        withOutput.put("silent", "true");
+        new CfrDriver.Builder().withOptions(withOutput).build().analyse(Collections.singletonList(path));
+        Map<String, String> res = new TreeMap<String, String>();
+        readFiles(outputDir, "", res);
+        return res;
+    }
+
+    private static void readFiles(File dir, String prefix, Map<String, String> res) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                readFiles(file, prefix + file.getName() + "/", res);
+                continue;
+            }
+            InputStream is = new FileInputStream(file);
+            try {
+                res.put(prefix + file.getName(), new String(readFully(is), "UTF-8"));
+            } finally {
+                is.close();
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int read;
+        while ((read = is.read(buf)) >= 0) {
+            bos.write(buf, 0, read);
+        }
+        return bos.toByteArray();
+    }
+}
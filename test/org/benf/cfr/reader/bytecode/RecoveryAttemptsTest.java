@@ -0,0 +1,63 @@
+package org.benf.cfr.reader.bytecode;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.util.DecompilerComment;
+import org.benf.cfr.reader.util.Troolean;
+import org.benf.cfr.reader.util.getopt.MutableOptions;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+public class RecoveryAttemptsTest extends TestCase {
+    private final Options options = OptionsImpl.getFactory().create(new HashMap<String, String>());
+    private final List<Integer> analysed = new ArrayList<Integer>();
+
+    private final RecoveryAttempts attempts = new RecoveryAttempts(new RecoveryAttempts.Analysis() {
+        @Override
+        public AnalysisResult analyse(int passIdx, RecoveryOptions.Applied applied) {
+            analysed.add(passIdx);
+            return new AnalysisResultFromException(new IllegalStateException("pass " + passIdx));
+        }
+    });
+
+    /*
+     * As a recovery pass would apply it - a fresh options and list of comments each time.
+     */
+    private RecoveryOptions.Applied topSort() {
+        MutableOptions mutableOptions = new MutableOptions(options);
+        List<DecompilerComment> comments = new ArrayList<DecompilerComment>();
+        mutableOptions.override(OptionsImpl.FORCE_TOPSORT, Troolean.TRUE);
+        comments.add(DecompilerComment.AGGRESSIVE_TOPOLOGICAL_SORT);
+        return new RecoveryOptions.Applied(mutableOptions, comments, true);
+    }
+
+    private RecoveryOptions.Applied returningIfs() {
+        MutableOptions mutableOptions = new MutableOptions(options);
+        List<DecompilerComment> comments = new ArrayList<DecompilerComment>();
+        mutableOptions.override(OptionsImpl.FORCE_RETURNING_IFS, Troolean.TRUE);
+        comments.add(DecompilerComment.RETURNING_IFS);
+        return new RecoveryOptions.Applied(mutableOptions, comments, true);
+    }
+
+    public void testIdenticalPassSkipped() {
+        AnalysisResult first = attempts.get(1, topSort());
+        AnalysisResult other = attempts.get(2, returningIfs());
+        // The same again - not analysed, and the result (so the output) is that of the first.
+        assertSame(first, attempts.get(3, topSort()));
+        assertNotSame(first, other);
+        assertEquals(2, analysed.size());
+        assertEquals(Integer.valueOf(1), analysed.get(0));
+        assertEquals(Integer.valueOf(2), analysed.get(1));
+    }
+
+    public void testSameOptionsDifferentComments() {
+        RecoveryOptions.Applied commented = topSort();
+        commented.comments.add(DecompilerComment.RETURNING_IFS);
+        attempts.get(1, topSort());
+        attempts.get(2, commented);
+        assertEquals(2, analysed.size());
+    }
+}
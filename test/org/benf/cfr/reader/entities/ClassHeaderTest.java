@@ -0,0 +1,59 @@
+package org.benf.cfr.reader.entities;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.TestInputs;
+import org.benf.cfr.reader.util.bytestream.BaseByteData;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+
+public class ClassHeaderTest extends TestCase {
+    private static final String OUTER = "org/benf/cfr/reader/entities/attributes/AttributeMap";
+    private static final String INNER = OUTER + "$Entry";
+
+    private static ClassHeader scan(String rawName, boolean withReferences) throws IOException {
+        ClassHeader header = ClassHeader.scanOrNull(new BaseByteData(TestInputs.getClassBytes(rawName)), withReferences);
+        assertNotNull(header);
+        return header;
+    }
+
+    public void testInnerClass() throws IOException {
+        assertFalse(scan(OUTER, false).isInnerClass());
+        assertTrue(scan(INNER, false).isInnerClass());
+        // Agrees with loading it properly.
+        assertFalse(scan("org/benf/cfr/reader/entities/ClassHeader", false).isInnerClass());
+    }
+
+    public void testSuperClasses() throws IOException {
+        assertEquals(Arrays.asList("java/lang/Object", "org/benf/cfr/reader/util/TypeUsageCollectable"),
+                scan(OUTER, false).getSuperClassNames());
+    }
+
+    public void testReferences() throws IOException {
+        assertTrue(scan(OUTER, false).getReferencedClassNames().isEmpty());
+        Set<String> references = scan(OUTER, true).getReferencedClassNames();
+        // Class constants.
+        assertTrue(references.contains("org/benf/cfr/reader/util/collections/MapFactory"));
+        assertTrue(references.contains(INNER));
+        // Only mentioned in descriptors.
+        assertTrue(references.contains("org/benf/cfr/reader/state/TypeUsageCollector"));
+        assertTrue(references.contains("org/benf/cfr/reader/util/bytestream/ByteData"));
+        // Generic signatures - Map<String, Object>.
+        assertTrue(references.contains("java/lang/String"));
+        for (String reference : references) {
+            assertFalse(reference, reference.startsWith("[") || reference.endsWith(";"));
+        }
+    }
+
+    public void testNotAClassFile() {
+        assertNull(ClassHeader.scanOrNull(new BaseByteData(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}), true));
+        byte[] truncated = new byte[12];
+        truncated[0] = (byte) 0xCA;
+        truncated[1] = (byte) 0xFE;
+        truncated[2] = (byte) 0xBA;
+        truncated[3] = (byte) 0xBE;
+        truncated[9] = 100;
+        assertNull(ClassHeader.scanOrNull(new BaseByteData(truncated), true));
+    }
+}
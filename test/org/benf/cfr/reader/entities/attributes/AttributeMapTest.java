@@ -0,0 +1,61 @@
+package org.benf.cfr.reader.entities.attributes;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.util.bytestream.BaseByteData;
+import org.benf.cfr.reader.util.bytestream.ByteData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Attributes are decoded when they're first asked for, and only then.
+ */
+public class AttributeMapTest extends TestCase {
+    private final List<String> decoded = new ArrayList<String>();
+
+    private AttributeMap newMap(AttributeMap.Entry... entries) {
+        return new AttributeMap(Arrays.asList(entries), 0, new AttributeMap.Decoder() {
+            @Override
+            public Attribute decode(String name, ByteData raw) {
+                decoded.add(name);
+                if (name.equals(AttributeDeprecated.ATTRIBUTE_NAME)) return new AttributeDeprecated(raw);
+                return new AttributeUnknown(raw, name);
+            }
+        });
+    }
+
+    private static ByteData emptyAttribute() {
+        // Name index, then a length of 0.
+        return new BaseByteData(new byte[6]);
+    }
+
+    public void testDecodedOnFirstLookup() {
+        AttributeMap map = newMap(
+                new AttributeMap.Entry(AttributeDeprecated.ATTRIBUTE_NAME, emptyAttribute()),
+                new AttributeMap.Entry("Other", emptyAttribute()));
+        assertTrue(map.containsKey(AttributeDeprecated.ATTRIBUTE_NAME));
+        assertTrue(decoded.isEmpty());
+
+        AttributeDeprecated deprecated = map.getByName(AttributeDeprecated.ATTRIBUTE_NAME);
+        assertNotNull(deprecated);
+        assertSame(deprecated, map.getByName(AttributeDeprecated.ATTRIBUTE_NAME));
+        assertEquals(Arrays.asList(AttributeDeprecated.ATTRIBUTE_NAME), decoded);
+    }
+
+    public void testMissingAndUnknown() {
+        AttributeMap map = newMap(new AttributeMap.Entry("Other", emptyAttribute()));
+        assertNull(map.getByName(AttributeDeprecated.ATTRIBUTE_NAME));
+        assertTrue(decoded.isEmpty());
+        // Present, but not something we understand.
+        assertNull(map.getByName("Other"));
+        assertEquals(Arrays.asList("Other"), decoded);
+    }
+
+    public void testAlreadyDecoded() {
+        AttributeDeprecated deprecated = new AttributeDeprecated(emptyAttribute());
+        AttributeMap map = newMap(new AttributeMap.Entry(AttributeDeprecated.ATTRIBUTE_NAME, deprecated));
+        assertSame(deprecated, map.getByName(AttributeDeprecated.ATTRIBUTE_NAME));
+        assertTrue(decoded.isEmpty());
+    }
+}
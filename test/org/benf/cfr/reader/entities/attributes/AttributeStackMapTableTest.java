@@ -0,0 +1,36 @@
+package org.benf.cfr.reader.entities.attributes;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.util.ClassFileVersion;
+import org.benf.cfr.reader.util.bytestream.BaseByteData;
+
+public class AttributeStackMapTableTest extends TestCase {
+    private static final byte ITEM_INTEGER = 1;
+
+    /*
+     * Name index (unused), length, number of frames, then the frames.
+     */
+    private static AttributeStackMapTable read(int count, byte... frames) {
+        byte[] raw = new byte[8 + frames.length];
+        raw[5] = (byte) (2 + frames.length);
+        raw[7] = (byte) count;
+        System.arraycopy(frames, 0, raw, 8, frames.length);
+        return new AttributeStackMapTable(new BaseByteData(raw), null, ClassFileVersion.JAVA_7);
+    }
+
+    /*
+     * same_locals_1_stack_item_frame is 64 to 127 inclusive.
+     */
+    public void testSameLocalsOneStackItem() {
+        for (int frameType : new int[]{64, 100, 127}) {
+            AttributeStackMapTable table = read(2, (byte) frameType, ITEM_INTEGER, (byte) 0);
+            assertTrue("frame type " + frameType, table.isValid());
+            assertEquals(2, table.getStackMapFrames().size());
+        }
+    }
+
+    public void testReserved() {
+        assertFalse(read(1, (byte) 128).isValid());
+        assertFalse(read(1, (byte) 246).isValid());
+    }
+}
@@ -0,0 +1,250 @@
+package org.benf.cfr.reader.state;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.TestInputs;
+import org.benf.cfr.reader.api.CfrDriver;
+import org.benf.cfr.reader.api.OutputSinkFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * The metrics document is for other tools to read, so its shape matters.
+ */
+public class AnalysisMetricsTest extends TestCase {
+    private static final Set<String> PHASES = new HashSet<String>(Arrays.asList(
+            "load", "op02", "stack", "liveness", "op03", "ssa", "op03rewrite", "topsort", "op04", "class", "dump"));
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = TestInputs.makeTempDir("cfr-metrics");
+    }
+
+    @Override
+    protected void tearDown() {
+        TestInputs.deleteRecursively(dir);
+    }
+
+    private Map<String, Object> getMetrics(String path, Map<String, String> options) {
+        final List<String> documents = new ArrayList<String>();
+        List<String> java = new ArrayList<String>();
+        new CfrDriver.Builder()
+                .withOptions(options)
+                .withOutputSink(TestInputs.collectJava(java))
+                .withMetricsSink(new OutputSinkFactory.Sink<String>() {
+                    @Override
+                    public void write(String sinkable) {
+                        documents.add(sinkable);
+                    }
+                })
+                .build()
+                .analyse(Collections.singletonList(path));
+        assertEquals(1, documents.size());
+        Map<String, Object> res = asMap(new JsonReader(documents.get(0)).readDocument());
+        assertEquals(java.size(), asList(res.get("classes")).size());
+        return res;
+    }
+
+    public void testShape() throws Exception {
+        File jar = TestInputs.makeJar(dir, "input.jar", "org/benf/cfr/reader/util/collections");
+        Map<String, Object> metrics = getMetrics(jar.getPath(), new HashMap<String, String>());
+        assertEquals(new HashSet<String>(Arrays.asList("classes", "otherMethods", "totals")), metrics.keySet());
+
+        List<Object> classes = asList(metrics.get("classes"));
+        assertTrue(classes.size() > 5);
+        Set<String> classNames = new HashSet<String>();
+        int methodCount = 0;
+        for (Object o : classes) {
+            Map<String, Object> cls = asMap(o);
+            assertEquals(new HashSet<String>(Arrays.asList("name", "phasesUs", "allocatedBytes", "methods")), cls.keySet());
+            String name = (String) cls.get("name");
+            classNames.add(name);
+            checkPhases(cls.get("phasesUs"));
+            assertTrue(cls.get("allocatedBytes") instanceof Long);
+            for (Object m : asList(cls.get("methods"))) {
+                checkMethod(m);
+                methodCount++;
+            }
+        }
+        assertTrue(classNames.contains("org.benf.cfr.reader.util.collections.ListFactory"));
+        assertTrue(methodCount > classes.size());
+        for (Object m : asList(metrics.get("otherMethods"))) {
+            checkMethod(m);
+        }
+
+        Map<String, Object> totals = asMap(metrics.get("totals"));
+        assertEquals((long) classes.size(), totals.get("classes"));
+        checkPhases(totals.get("phasesUs"));
+    }
+
+    public void testWrittenToFile() throws Exception {
+        File file = new File(dir, "metrics.json");
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("metrics", file.getPath());
+        String path = TestInputs.getClassFile("org/benf/cfr/reader/util/collections/ListFactory").getPath();
+        Map<String, Object> metrics = getMetrics(path, options);
+        assertEquals(1, asList(metrics.get("classes")).size());
+        Map<String, Object> written = asMap(new JsonReader(new String(TestInputs.readFully(file), "UTF-8")).readDocument());
+        assertEquals(metrics.keySet(), written.keySet());
+        assertEquals(1, asList(written.get("classes")).size());
+    }
+
+    private static void checkMethod(Object o) {
+        Map<String, Object> method = asMap(o);
+        assertEquals(new HashSet<String>(Arrays.asList("class", "method", "timeUs", "pass", "failed", "phasesUs", "allocatedBytes")),
+                method.keySet());
+        assertTrue(method.get("class") instanceof String);
+        assertTrue(method.get("method") instanceof String);
+        assertTrue(method.get("timeUs") instanceof Long);
+        assertTrue(method.get("pass") instanceof Long);
+        assertTrue(method.get("failed") instanceof Boolean);
+        assertTrue(method.get("allocatedBytes") instanceof Long);
+        checkPhases(method.get("phasesUs"));
+    }
+
+    private static void checkPhases(Object o) {
+        for (Map.Entry<String, Object> entry : asMap(o).entrySet()) {
+            assertTrue(entry.getKey(), PHASES.contains(entry.getKey()));
+            assertTrue(entry.getValue() instanceof Long);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object o) {
+        assertTrue(String.valueOf(o), o instanceof Map);
+        return (Map<String, Object>) o;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> asList(Object o) {
+        assertTrue(String.valueOf(o), o instanceof List);
+        return (List<Object>) o;
+    }
+
+    /*
+     * Just enough JSON to check what we write - objects, arrays, strings, integers and booleans.
+     */
+    private static class JsonReader {
+        private final String text;
+        private int pos;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        Object readDocument() {
+            Object res = readValue();
+            skipSpace();
+            assertEquals("trailing content", text.length(), pos);
+            return res;
+        }
+
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        private void expect(char c) {
+            skipSpace();
+            assertEquals("at " + pos, c, text.charAt(pos));
+            pos++;
+        }
+
+        private boolean peek(char c) {
+            skipSpace();
+            return text.charAt(pos) == c;
+        }
+
+        private Object readValue() {
+            skipSpace();
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{': {
+                    Map<String, Object> res = new LinkedHashMap<String, Object>();
+                    expect('{');
+                    if (!peek('}')) {
+                        do {
+                            skipSpace();
+                            String key = readString();
+                            expect(':');
+                            assertNull("duplicate " + key, res.put(key, readValue()));
+                        } while (tryRead(','));
+                    }
+                    expect('}');
+                    return res;
+                }
+                case '[': {
+                    List<Object> res = new ArrayList<Object>();
+                    expect('[');
+                    if (!peek(']')) {
+                        do {
+                            res.add(readValue());
+                        } while (tryRead(','));
+                    }
+                    expect(']');
+                    return res;
+                }
+                case '"':
+                    return readString();
+                case 't':
+                case 'f': {
+                    boolean value = c == 't';
+                    String literal = value ? "true" : "false";
+                    assertTrue(text.startsWith(literal, pos));
+                    pos += literal.length();
+                    return value;
+                }
+                default: {
+                    int start = pos;
+                    if (c == '-') pos++;
+                    while (pos < text.length() && Character.isDigit(text.charAt(pos))) pos++;
+                    assertTrue("number at " + start, pos > start);
+                    return Long.parseLong(text.substring(start, pos));
+                }
+            }
+        }
+
+        private boolean tryRead(char c) {
+            if (!peek(c)) return false;
+            pos++;
+            return true;
+        }
+
+        private String readString() {
+            assertEquals('"', text.charAt(pos++));
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = text.charAt(pos++);
+                if (c == '"') return sb.toString();
+                assertTrue("control character in string", c >= 0x20);
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                c = text.charAt(pos++);
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append(c);
+                        break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        fail("escape " + c);
+                }
+            }
+        }
+    }
+}
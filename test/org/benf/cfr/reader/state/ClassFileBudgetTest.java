@@ -0,0 +1,99 @@
+package org.benf.cfr.reader.state;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.TestInputs;
+import org.benf.cfr.reader.bytecode.analysis.types.JavaRefTypeInstance;
+import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Dropping a dependency and loading it again must not be visible - in particular, its type stays the same.
+ */
+public class ClassFileBudgetTest extends TestCase {
+    private static final long BUDGET_BYTES = 1024L * 1024L;
+
+    private static void collectClassFiles(File dir, List<File> res) {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectClassFiles(file, res);
+            } else if (file.getName().endsWith(".class")) {
+                res.add(file);
+            }
+        }
+    }
+
+    private static DCCommonState newState(String classCacheSize) {
+        Map<String, String> optionMap = new HashMap<String, String>();
+        optionMap.put("classcachesize", classCacheSize);
+        Options options = OptionsImpl.getFactory().create(optionMap);
+        return new DCCommonState(options, new ClassFileSourceImpl(options));
+    }
+
+    /*
+     * Loads class files until there's more than the budget of them.
+     */
+    private static List<String> loadPastBudget(DCCommonState state) {
+        List<File> files = new ArrayList<File>();
+        collectClassFiles(new File(TestInputs.getClassesDir(), "org/benf/cfr/reader"), files);
+        List<String> res = new ArrayList<String>();
+        long total = 0;
+        for (File file : files) {
+            if (total > 2 * BUDGET_BYTES) break;
+            String path = file.getPath();
+            state.getClassFile(path);
+            res.add(path);
+            total += file.length();
+        }
+        assertTrue(total > 2 * BUDGET_BYTES);
+        return res;
+    }
+
+    public void testReloadKeepsType() {
+        DCCommonState state = newState("1");
+        List<String> paths = loadPastBudget(state);
+        String first = paths.get(0);
+        ClassFile before = state.getClassFile(first);
+        JavaRefTypeInstance type = before.getRefClassType();
+        // Loading the rest has made the first the least recently used.
+        for (String path : paths.subList(1, paths.size())) {
+            state.getClassFile(path);
+        }
+
+        state.trimClassFiles(Long.MAX_VALUE);
+        ClassFile after = state.getClassFile(first);
+        assertNotSame(before, after);
+        assertSame(type, after.getRefClassType());
+    }
+
+    public void testUnbounded() {
+        DCCommonState state = newState("0");
+        List<String> paths = loadPastBudget(state);
+        ClassFile before = state.getClassFile(paths.get(0));
+        state.trimClassFiles(Long.MAX_VALUE);
+        assertSame(before, state.getClassFile(paths.get(0)));
+    }
+
+    public void testInUseKept() {
+        DCCommonState state = newState("1");
+        List<String> paths = loadPastBudget(state);
+        ClassFile before = state.getClassFile(paths.get(0));
+        long running = state.beginGeneration();
+        for (String path : paths) {
+            state.getClassFile(path);
+        }
+        // Everything has been used by the analysis which is still running.
+        state.trimClassFiles(running);
+        assertSame(before, state.getClassFile(paths.get(0)));
+    }
+}
@@ -0,0 +1,54 @@
+package org.benf.cfr.reader.state;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
+import org.benf.cfr.reader.bytecode.analysis.types.JavaTypeInstance;
+import org.benf.cfr.reader.bytecode.analysis.types.RawJavaType;
+import org.benf.cfr.reader.bytecode.analysis.types.TypeConstants;
+
+import java.util.Collections;
+import java.util.List;
+
+public class DescriptorCacheTest extends TestCase {
+    private final DescriptorCache cache = new DescriptorCache();
+
+    public void testTypes() {
+        assertNull(cache.getTypeOrNull("Ljava/lang/Object;"));
+        cache.putType("Ljava/lang/Object;", TypeConstants.OBJECT);
+        assertSame(TypeConstants.OBJECT, cache.getTypeOrNull("Ljava/lang/Object;"));
+        assertNull(cache.getTypeOrNull("Ljava/lang/String;"));
+    }
+
+    public void testPrototypes() {
+        Pair<List<JavaTypeInstance>, JavaTypeInstance> prototype =
+                Pair.make(Collections.<JavaTypeInstance>singletonList(TypeConstants.OBJECT), (JavaTypeInstance) RawJavaType.BOOLEAN);
+        cache.putPrototype("(Ljava/lang/Object;)Z", prototype);
+        assertSame(prototype, cache.getPrototypeOrNull("(Ljava/lang/Object;)Z"));
+        // Types and prototypes are kept apart.
+        assertNull(cache.getTypeOrNull("(Ljava/lang/Object;)Z"));
+    }
+
+    public void testClear() {
+        cache.putType("Z", RawJavaType.BOOLEAN);
+        cache.putPrototype("()V", Pair.make(Collections.<JavaTypeInstance>emptyList(), (JavaTypeInstance) RawJavaType.VOID));
+        cache.clear();
+        assertNull(cache.getTypeOrNull("Z"));
+        assertNull(cache.getPrototypeOrNull("()V"));
+    }
+
+    /*
+     * Bounded - the least recently used go first.
+     */
+    public void testLeastRecentlyUsedDropped() {
+        cache.putType("Lfirst;", TypeConstants.OBJECT);
+        cache.putType("Lsecond;", TypeConstants.OBJECT);
+        for (int x = 0; x < 100000; ++x) {
+            cache.getTypeOrNull("Lfirst;");
+            cache.putType("Lfiller" + x + ";", TypeConstants.OBJECT);
+        }
+        assertNotNull(cache.getTypeOrNull("Lfirst;"));
+        assertNull(cache.getTypeOrNull("Lsecond;"));
+        assertNull(cache.getTypeOrNull("Lfiller0;"));
+        assertNotNull(cache.getTypeOrNull("Lfiller99999;"));
+    }
+}
@@ -0,0 +1,59 @@
+package org.benf.cfr.reader.state;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.TestInputs;
+import org.benf.cfr.reader.entities.ClassFile;
+import org.benf.cfr.reader.util.collections.ListFactory;
+import org.benf.cfr.reader.util.getopt.Options;
+import org.benf.cfr.reader.util.getopt.OptionsImpl;
+import org.benf.cfr.reader.util.output.Dumper;
+import org.benf.cfr.reader.util.output.IllegalIdentifierDump;
+import org.benf.cfr.reader.util.output.NopSummaryDumper;
+import org.benf.cfr.reader.util.output.SinkDumperFactory;
+
+import java.util.HashMap;
+import java.util.List;
+
+/*
+ * Replaying what was recorded while collecting type usage must give exactly what dumping again would.
+ */
+public class ReplayingDumperTest extends TestCase {
+    private static final String[] CLASSES = {
+            "org/benf/cfr/reader/entities/ClassFile",
+            // Plenty of anonymous classes, which aren't all replayable.
+            "org/benf/cfr/reader/util/getopt/OptionsImpl",
+            "org/benf/cfr/reader/state/DumpRecording"
+    };
+
+    private static void assertSameOutput(String name) {
+        Options options = new OptionsImpl(new HashMap<String, String>());
+        DCCommonState state = new DCCommonState(options, new ClassFileSourceImpl(options));
+        ClassFile c = state.getClassFileMaybePath(TestInputs.getClassFile(name).getPath());
+        state.configureWith(c);
+        c.loadInnerClasses(state);
+        c.analyseTop(state);
+        TypeUsageCollectingDumper collectingDumper = new TypeUsageCollectingDumper(options, c);
+        c.dump(collectingDumper);
+        TypeUsageInformation typeUsageInformation = collectingDumper.getRealTypeUsageInformation();
+
+        List<String> res = ListFactory.newList();
+        SinkDumperFactory dumperFactory = new SinkDumperFactory(TestInputs.collectJava(res), options);
+        IllegalIdentifierDump illegalIdentifierDump = IllegalIdentifierDump.Factory.get(options);
+        Dumper live = dumperFactory.getNewTopLevelDumper(c.getClassType(), new NopSummaryDumper(), typeUsageInformation, illegalIdentifierDump);
+        c.dump(live);
+        live.close();
+        Dumper replayed = dumperFactory.getNewTopLevelDumper(c.getClassType(), new NopSummaryDumper(), typeUsageInformation, illegalIdentifierDump);
+        c.dump(collectingDumper.getReplayingDumper(replayed));
+        replayed.close();
+
+        assertEquals(2, res.size());
+        assertTrue(res.get(0).contains("class "));
+        assertEquals(name, res.get(0), res.get(1));
+    }
+
+    public void testSameAsLive() {
+        for (String name : CLASSES) {
+            assertSameOutput(name);
+        }
+    }
+}
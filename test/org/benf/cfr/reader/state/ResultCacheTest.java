@@ -0,0 +1,103 @@
+package org.benf.cfr.reader.state;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.TestInputs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Output from the cache must be what we'd have got by decompiling.
+ */
+public class ResultCacheTest extends TestCase {
+    private File dir;
+    private File cacheDir;
+    private int runs;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = TestInputs.makeTempDir("cfr-cache");
+        cacheDir = new File(dir, "cache");
+    }
+
+    @Override
+    protected void tearDown() {
+        TestInputs.deleteRecursively(dir);
+    }
+
+    private Map<String, String> decompile(String path, boolean cached, String... options) throws IOException {
+        Map<String, String> optionMap = new HashMap<String, String>();
+        if (cached) optionMap.put("cachedir", cacheDir.getPath());
+        for (int x = 0; x < options.length; x += 2) {
+            optionMap.put(options[x], options[x + 1]);
+        }
+        return TestInputs.decompileToDir(path, optionMap, new File(dir, "out" + runs++));
+    }
+
+    private int countEntries() {
+        int res = 0;
+        File[] files = cacheDir.listFiles();
+        if (files == null) return 0;
+        for (File file : files) {
+            File[] entries = file.listFiles();
+            res += entries == null ? 1 : entries.length;
+        }
+        return res;
+    }
+
+    public void testJarHitEqualsMiss() throws Exception {
+        File jar = TestInputs.makeJar(dir, "input.jar", "org/benf/cfr/reader/util/collections");
+        Map<String, String> uncached = decompile(jar.getPath(), false);
+        Map<String, String> miss = decompile(jar.getPath(), true);
+        int entries = countEntries();
+        assertTrue(entries > 0);
+        Map<String, String> hit = decompile(jar.getPath(), true);
+        // Nothing new - every class came from the cache.
+        assertEquals(entries, countEntries());
+        assertEquals(uncached, miss);
+        assertEquals(uncached, hit);
+    }
+
+    public void testClassHitEqualsMiss() throws Exception {
+        String path = TestInputs.getClassFile("org/benf/cfr/reader/util/collections/ListFactory").getPath();
+        Map<String, String> uncached = decompile(path, false);
+        Map<String, String> miss = decompile(path, true);
+        Map<String, String> hit = decompile(path, true);
+        assertEquals(1, countEntries());
+        assertTrue(uncached.size() > 0);
+        assertEquals(uncached, miss);
+        assertEquals(uncached, hit);
+    }
+
+    public void testOptionsArePartOfKey() throws Exception {
+        String path = TestInputs.getClassFile("org/benf/cfr/reader/util/collections/ListFactory").getPath();
+        Map<String, String> versioned = decompile(path, true, "showversion", "true");
+        Map<String, String> uncached = decompile(path, false, "showversion", "false");
+        assertFalse(versioned.equals(uncached));
+        Map<String, String> cached = decompile(path, true, "showversion", "false");
+        assertEquals(2, countEntries());
+        assertEquals(uncached, cached);
+    }
+
+    public void testThreadsAreNotPartOfKey() throws Exception {
+        File jar = TestInputs.makeJar(dir, "input.jar", "org/benf/cfr/reader/util/functors");
+        Map<String, String> miss = decompile(jar.getPath(), true, "threads", "1");
+        int entries = countEntries();
+        Map<String, String> hit = decompile(jar.getPath(), true, "threads", "2");
+        assertEquals(entries, countEntries());
+        assertEquals(miss, hit);
+    }
+
+    public void testChangedJarMisses() throws Exception {
+        File jar = TestInputs.makeJar(dir, "input.jar", "org/benf/cfr/reader/util/functors");
+        decompile(jar.getPath(), true);
+        int entries = countEntries();
+        // Same classes, and more - the rest of the jar can change how a class decompiles.
+        File bigger = TestInputs.makeJar(dir, "bigger.jar", "org/benf/cfr/reader/util/functors", "org/benf/cfr/reader/util/collections");
+        decompile(bigger.getPath(), true);
+        // New entries for the classes we had already, as well as for the new ones.
+        assertTrue(countEntries() > 2 * entries);
+    }
+}
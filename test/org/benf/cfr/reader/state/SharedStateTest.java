@@ -0,0 +1,52 @@
+package org.benf.cfr.reader.state;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.TestInputs;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Sharing state between inputs mustn't change what any of them decompile to.
+ */
+public class SharedStateTest extends TestCase {
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = TestInputs.makeTempDir("cfr-shared");
+    }
+
+    @Override
+    protected void tearDown() {
+        TestInputs.deleteRecursively(dir);
+    }
+
+    private static void assertSameWhenShared(List<String> paths) {
+        Map<String, String> options = new HashMap<String, String>();
+        List<String> separate = TestInputs.decompile(paths, options);
+        options.put("sharedstate", "true");
+        List<String> shared = TestInputs.decompile(paths, options);
+        assertTrue(separate.size() >= paths.size());
+        assertEquals(separate, shared);
+    }
+
+    public void testJars() throws Exception {
+        // The second uses classes from the first, as well as its own.
+        File functors = TestInputs.makeJar(dir, "a.jar", "org/benf/cfr/reader/util/functors");
+        File collections = TestInputs.makeJar(dir, "b.jar", "org/benf/cfr/reader/util/collections", "org/benf/cfr/reader/util/functors");
+        assertSameWhenShared(Arrays.asList(functors.getPath(), collections.getPath()));
+    }
+
+    public void testClassFiles() {
+        String[] names = {"ListFactory", "MapFactory", "SetFactory", "Functional", "LazyMap"};
+        String[] paths = new String[names.length];
+        for (int x = 0; x < names.length; ++x) {
+            paths[x] = TestInputs.getClassFile("org/benf/cfr/reader/util/collections/" + names[x]).getPath();
+        }
+        assertSameWhenShared(Arrays.asList(paths));
+    }
+}
@@ -0,0 +1,124 @@
+package org.benf.cfr.reader.state;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.TestInputs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * An open handle keeps reading a jar after it's deleted, so deleting one shows whether we went back to the file.
+ */
+public class ZipFileCacheTest extends TestCase {
+    private static final String PACKAGE = "org/benf/cfr/reader/util/functors";
+    private static final String ENTRY = PACKAGE + "/UnaryFunction.class";
+
+    private File dir;
+    private ZipFileCache cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = TestInputs.makeTempDir("cfr-zip");
+        cache = new ZipFileCache();
+    }
+
+    @Override
+    protected void tearDown() {
+        cache.close();
+        TestInputs.deleteRecursively(dir);
+    }
+
+    private File makeJar(String name) throws IOException {
+        return TestInputs.makeJar(dir, name, PACKAGE);
+    }
+
+    public void testContent() throws IOException {
+        File jar = makeJar("input.jar");
+        byte[] expected = TestInputs.getClassBytes(PACKAGE + "/UnaryFunction");
+        assertTrue(Arrays.equals(expected, cache.getEntryContent(jar.getPath(), ENTRY)));
+        assertNull(cache.getEntryContent(jar.getPath(), "no/such/Entry.class"));
+    }
+
+    public void testHandleReused() throws IOException {
+        File jar = makeJar("input.jar");
+        byte[] first = cache.getEntryContent(jar.getPath(), ENTRY);
+        assertTrue(jar.delete());
+        assertTrue(Arrays.equals(first, cache.getEntryContent(jar.getPath(), ENTRY)));
+    }
+
+    public void testClosed() throws IOException {
+        File jar = makeJar("input.jar");
+        cache.getEntryContent(jar.getPath(), ENTRY);
+        cache.close();
+        assertTrue(jar.delete());
+        try {
+            cache.getEntryContent(jar.getPath(), ENTRY);
+            fail();
+        } catch (IOException e) {
+            // expected - had to reopen it.
+        }
+    }
+
+    public void testLeastRecentlyUsedClosed() throws IOException {
+        File first = makeJar("first.jar");
+        cache.getEntryContent(first.getPath(), ENTRY);
+        File second = makeJar("second.jar");
+        cache.getEntryContent(second.getPath(), ENTRY);
+        for (int x = 0; x < 15; ++x) {
+            cache.getEntryContent(makeJar("other" + x + ".jar").getPath(), ENTRY);
+            // Keep the first one in use.
+            cache.getEntryContent(first.getPath(), ENTRY);
+        }
+        assertTrue(first.delete());
+        assertTrue(second.delete());
+        assertNotNull(cache.getEntryContent(first.getPath(), ENTRY));
+        try {
+            cache.getEntryContent(second.getPath(), ENTRY);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /*
+     * Reads from more jars than are kept open, from several threads - so handles are evicted while others are
+     * still reading from them.
+     */
+    public void testConcurrentReads() throws Exception {
+        final List<String> jars = new ArrayList<String>();
+        for (int x = 0; x < 20; ++x) {
+            jars.add(makeJar("input" + x + ".jar").getPath());
+        }
+        final byte[] expected = TestInputs.getClassBytes(PACKAGE + "/UnaryFunction");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int task = 0; task < 8; ++task) {
+                final int offset = task;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws IOException {
+                        for (int x = 0; x < 200; ++x) {
+                            String jar = jars.get((x * 7 + offset) % jars.size());
+                            if (!Arrays.equals(expected, cache.getEntryContent(jar, ENTRY))) return false;
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
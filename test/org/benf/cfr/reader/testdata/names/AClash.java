@@ -0,0 +1,14 @@
+package org.benf.cfr.reader.testdata.names;
+
+/*
+ * A local variable with the name of a class another class in the jar uses.
+ */
+public class AClash {
+    public int sum(int[] values) {
+        int Random = 0;
+        for (int value : values) {
+            Random += value;
+        }
+        return Random;
+    }
+}
@@ -0,0 +1,9 @@
+package org.benf.cfr.reader.testdata.names;
+
+import java.util.Random;
+
+public class BRandom {
+    public int next(long seed) {
+        return new Random(seed).nextInt();
+    }
+}
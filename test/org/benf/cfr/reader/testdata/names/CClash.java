@@ -0,0 +1,14 @@
+package org.benf.cfr.reader.testdata.names;
+
+/*
+ * As AClash, but after BRandom in the jar.
+ */
+public class CClash {
+    public int sum(int[] values) {
+        int Random = 0;
+        for (int value : values) {
+            Random += value;
+        }
+        return Random;
+    }
+}
@@ -0,0 +1,100 @@
+package org.benf.cfr.reader.util;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class PendingResultTest extends TestCase {
+    private ExecutorService executor;
+    private PendingResults results;
+
+    @Override
+    protected void setUp() {
+        executor = Executors.newCachedThreadPool();
+        results = new PendingResults();
+    }
+
+    @Override
+    protected void tearDown() {
+        executor.shutdownNow();
+    }
+
+    public void testOwnerCantWait() {
+        PendingResult<String> pending = results.newPendingResult();
+        assertFalse(pending.await());
+        pending.complete("done");
+        // Once it's finished, there's no waiting to do.
+        assertTrue(pending.await());
+        assertEquals("done", pending.get());
+    }
+
+    public void testOtherThreadWaitsForResult() throws Exception {
+        final PendingResult<String> pending = results.newPendingResult();
+        Future<String> waiter = executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                assertTrue(pending.await());
+                return pending.get();
+            }
+        });
+        Thread.sleep(50);
+        assertFalse(waiter.isDone());
+        pending.complete("done");
+        assertEquals("done", waiter.get(10, TimeUnit.SECONDS));
+    }
+
+    public void testOtherThreadSeesFailure() throws Exception {
+        final PendingResult<String> pending = results.newPendingResult();
+        final IllegalStateException failure = new IllegalStateException("failed");
+        Future<Boolean> waiter = executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return pending.await();
+            }
+        });
+        pending.fail(failure);
+        try {
+            waiter.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    /*
+     * This thread owns first, and another thread owns second and is waiting for first - so waiting for second
+     * would never end.
+     */
+    public void testCycleAcrossThreadsDetected() throws Exception {
+        final PendingResult<String> first = results.newPendingResult();
+        final CountDownLatch secondCreated = new CountDownLatch(1);
+        final PendingResult<?>[] second = new PendingResult<?>[1];
+        final Thread[] otherThread = new Thread[1];
+        Future<String> other = executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                PendingResult<String> mine = results.newPendingResult();
+                second[0] = mine;
+                otherThread[0] = Thread.currentThread();
+                secondCreated.countDown();
+                assertTrue(first.await());
+                mine.complete("second");
+                return first.get();
+            }
+        });
+        assertTrue(secondCreated.await(10, TimeUnit.SECONDS));
+        while (otherThread[0].getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        assertFalse(second[0].await());
+        first.complete("first");
+        assertEquals("first", other.get(10, TimeUnit.SECONDS));
+        assertTrue(second[0].await());
+    }
+}
@@ -0,0 +1,100 @@
+package org.benf.cfr.reader.util.collections;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.util.PendingResults;
+import org.benf.cfr.reader.util.functors.UnaryFunction;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LazyExceptionRetainingMapTest extends TestCase {
+    private LazyExceptionRetainingMap<String, String> map;
+    private int creations;
+
+    /*
+     * The first creation of a key needs the same key again (as loading one class may), and that nested
+     * creation succeeds - then the first fails.
+     */
+    public void testFailureAfterNestedSuccess() {
+        map = MapFactory.newExceptionRetainingLazyMap(new UnaryFunction<String, String>() {
+            @Override
+            public String invoke(String arg) {
+                if (creations++ > 0) return "value";
+                assertEquals("value", map.get(arg));
+                throw new IllegalStateException("first creation failed");
+            }
+        }, new PendingResults());
+        try {
+            map.get("key");
+            fail();
+        } catch (IllegalStateException e) {
+            // expected - this creation did fail.
+        }
+        assertEquals("value", map.get("key"));
+        assertEquals("value", map.getOrNull("key"));
+        assertEquals(2, creations);
+    }
+
+    public void testFailureRemembered() {
+        map = MapFactory.newExceptionRetainingLazyMap(new UnaryFunction<String, String>() {
+            @Override
+            public String invoke(String arg) {
+                creations++;
+                throw new IllegalStateException("failed");
+            }
+        }, new PendingResults());
+        assertNull(map.getOrNull("key"));
+        assertNull(map.getOrNull("key"));
+        assertEquals(1, creations);
+        map.remove("key");
+        assertNull(map.getOrNull("key"));
+        assertEquals(2, creations);
+    }
+
+    /*
+     * A second thread wanting a key being created waits for it, rather than creating it again.
+     */
+    public void testOtherThreadWaits() throws Exception {
+        final CountDownLatch creating = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        map = MapFactory.newExceptionRetainingLazyMap(new UnaryFunction<String, String>() {
+            @Override
+            public String invoke(String arg) {
+                synchronized (LazyExceptionRetainingMapTest.this) {
+                    creations++;
+                }
+                creating.countDown();
+                try {
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return "value";
+            }
+        }, new PendingResults());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Callable<String> get = new Callable<String>() {
+                @Override
+                public String call() {
+                    return map.get("key");
+                }
+            };
+            Future<String> first = executor.submit(get);
+            assertTrue(creating.await(10, TimeUnit.SECONDS));
+            Future<String> second = executor.submit(get);
+            release.countDown();
+            assertEquals("value", first.get(10, TimeUnit.SECONDS));
+            assertEquals("value", second.get(10, TimeUnit.SECONDS));
+            synchronized (this) {
+                assertEquals(1, creations);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
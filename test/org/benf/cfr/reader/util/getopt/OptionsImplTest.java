@@ -0,0 +1,75 @@
+package org.benf.cfr.reader.util.getopt;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.bytecode.analysis.parse.utils.Pair;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class OptionsImplTest extends TestCase {
+    private static Options parse(String... args) {
+        Pair<List<String>, Options> parsed = new GetOptParser().parse(args, OptionsImpl.getFactory());
+        assertEquals(Arrays.asList("input.jar"), parsed.getFirst());
+        return parsed.getSecond();
+    }
+
+    public void testThreads() {
+        assertEquals(Integer.valueOf(1), parse("input.jar").getOption(OptionsImpl.THREADS));
+        assertEquals(Integer.valueOf(4), parse("input.jar", "--threads", "4").getOption(OptionsImpl.THREADS));
+        try {
+            parse("input.jar", "--threads", "-1");
+            fail();
+        } catch (BadParametersException e) {
+            // expected
+        }
+    }
+
+    public void testMapClassFiles() {
+        assertFalse(parse("input.jar").getOption(OptionsImpl.MAP_CLASS_FILES));
+        assertTrue(parse("input.jar", "--mapclassfiles", "true").getOption(OptionsImpl.MAP_CLASS_FILES));
+    }
+
+    public void testClassCacheSize() {
+        assertEquals(Integer.valueOf(0), parse("input.jar").getOption(OptionsImpl.CLASS_CACHE_SIZE));
+        assertEquals(Integer.valueOf(16), parse("input.jar", "--classcachesize", "16").getOption(OptionsImpl.CLASS_CACHE_SIZE));
+    }
+
+    public void testCache() {
+        Options options = parse("input.jar");
+        assertNull(options.getOption(OptionsImpl.CACHE_DIR));
+        assertEquals(Integer.valueOf(256), options.getOption(OptionsImpl.CACHE_SIZE));
+        options = parse("input.jar", "--cachedir", "cache", "--cachesize", "10");
+        assertEquals("cache", options.getOption(OptionsImpl.CACHE_DIR));
+        assertEquals(Integer.valueOf(10), options.getOption(OptionsImpl.CACHE_SIZE));
+    }
+
+    public void testSharedState() {
+        assertFalse(parse("input.jar").getOption(OptionsImpl.SHARED_STATE));
+        assertTrue(parse("input.jar", "--sharedstate", "true").getOption(OptionsImpl.SHARED_STATE));
+    }
+
+    public void testMethodTimeout() {
+        assertEquals(Integer.valueOf(0), parse("input.jar").getOption(OptionsImpl.METHOD_TIMEOUT));
+        assertEquals(Integer.valueOf(30), parse("input.jar", "--methodtimeout", "30").getOption(OptionsImpl.METHOD_TIMEOUT));
+    }
+
+    public void testOutputZip() {
+        assertNull(parse("input.jar").getOption(OptionsImpl.OUTPUT_ZIP));
+        assertEquals("out.zip", parse("input.jar", "--outputzip", "out.zip").getOption(OptionsImpl.OUTPUT_ZIP));
+    }
+
+    public void testAsyncOutput() {
+        assertFalse(parse("input.jar").getOption(OptionsImpl.ASYNC_OUTPUT));
+        assertTrue(parse("input.jar", "--asyncoutput", "true").getOption(OptionsImpl.ASYNC_OUTPUT));
+    }
+
+    public void testJdkHome() {
+        assertNull(parse("input.jar").getOption(OptionsImpl.JDK_HOME));
+        assertEquals("jdk", parse("input.jar", "--jdkhome", "jdk").getOption(OptionsImpl.JDK_HOME));
+    }
+
+    public void testMetrics() {
+        assertNull(parse("input.jar").getOption(OptionsImpl.METRICS));
+        assertEquals("metrics.json", parse("input.jar", "--metrics", "metrics.json").getOption(OptionsImpl.METRICS));
+    }
+}
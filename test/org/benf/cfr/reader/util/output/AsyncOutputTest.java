@@ -0,0 +1,113 @@
+package org.benf.cfr.reader.util.output;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncOutputTest extends TestCase {
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @Override
+    protected void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /*
+     * Producing happens on another thread, so a hang fails the test rather than hanging it.
+     */
+    private <T> T produce(Callable<T> producer) throws Exception {
+        return executor.submit(producer).get(30, TimeUnit.SECONDS);
+    }
+
+    public void testInOrder() throws Exception {
+        final AsyncOutput output = new AsyncOutput("test-output");
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int x = 0; x < 500; ++x) {
+            final int idx = x;
+            expected.add(x);
+            output.submit(new Runnable() {
+                @Override
+                public void run() {
+                    written.add(idx);
+                }
+            });
+        }
+        output.close();
+        assertEquals(expected, written);
+    }
+
+    public void testFailureReported() throws Exception {
+        final AsyncOutput output = new AsyncOutput("test-output");
+        output.submit(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalArgumentException("can't write");
+            }
+        });
+        try {
+            output.close();
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    /*
+     * Once the output thread has died, a producer with a full queue must give up, not wait forever.
+     */
+    public void testThreadDeathDoesNotBlockProducers() throws Exception {
+        final AsyncOutput output = new AsyncOutput("test-output");
+        output.submit(new Runnable() {
+            @Override
+            public void run() {
+                throw new StackOverflowError("deliberate");
+            }
+        });
+        try {
+            produce(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    // More than fits in the queue.
+                    for (int x = 0; x < 1000; ++x) {
+                        output.submit(new Runnable() {
+                            @Override
+                            public void run() {
+                            }
+                        });
+                    }
+                    return null;
+                }
+            });
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        try {
+            produce(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    output.close();
+                    return null;
+                }
+            });
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+            assertTrue(e.getCause().getCause().getCause() instanceof StackOverflowError);
+        }
+    }
+}
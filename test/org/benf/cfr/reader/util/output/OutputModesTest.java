@@ -0,0 +1,95 @@
+package org.benf.cfr.reader.util.output;
+
+import junit.framework.TestCase;
+import org.benf.cfr.reader.TestInputs;
+import org.benf.cfr.reader.api.CfrDriver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+ * However output is written, it should be exactly what the same options write into an output directory.
+ */
+public class OutputModesTest extends TestCase {
+    private File dir;
+    private File jar;
+    private int runs;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = TestInputs.makeTempDir("cfr-zip-out");
+        jar = TestInputs.makeJar(dir, "input.jar", "org/benf/cfr/reader/util/collections", "org/benf/cfr/reader/util/functors");
+    }
+
+    @Override
+    protected void tearDown() {
+        TestInputs.deleteRecursively(dir);
+    }
+
+    private Map<String, String> decompileToZip(Map<String, String> options) throws IOException {
+        File zip = new File(dir, "out" + runs++ + ".zip");
+        Map<String, String> withOutput = new HashMap<String, String>(options);
+        withOutput.put("outputzip", zip.getPath());
+        withOutput.put("silent", "true");
+        new CfrDriver.Builder().withOptions(withOutput).build().analyse(Collections.singletonList(jar.getPath()));
+
+        Map<String, String> res = new TreeMap<String, String>();
+        ZipFile zipFile = new ZipFile(zip);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                InputStream is = zipFile.getInputStream(entry);
+                try {
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                    byte[] buf = new byte[8192];
+                    int read;
+                    while ((read = is.read(buf)) >= 0) {
+                        bos.write(buf, 0, read);
+                    }
+                    res.put(entry.getName(), new String(bos.toByteArray(), "UTF-8"));
+                } finally {
+                    is.close();
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+        return res;
+    }
+
+    private Map<String, String> decompileToDir(Map<String, String> options) throws IOException {
+        return TestInputs.decompileToDir(jar.getPath(), options, new File(dir, "out" + runs++));
+    }
+
+    private static void assertSameFiles(Map<String, String> expected, Map<String, String> actual) {
+        assertTrue(expected.size() > 10);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    public void testZip() throws IOException {
+        Map<String, String> options = new HashMap<String, String>();
+        assertSameFiles(decompileToDir(options), decompileToZip(options));
+    }
+
+    public void testAsync() throws IOException {
+        Map<String, String> options = new HashMap<String, String>();
+        Map<String, String> files = decompileToDir(options);
+        options.put("asyncoutput", "true");
+        assertSameFiles(files, decompileToDir(options));
+        options.put("threads", "2");
+        assertSameFiles(files, decompileToDir(options));
+    }
+}